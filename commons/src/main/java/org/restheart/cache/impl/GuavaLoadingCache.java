@@ -22,9 +22,12 @@ package org.restheart.cache.impl;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -56,6 +59,32 @@ public class GuavaLoadingCache<K, V> implements org.restheart.cache.LoadingCache
         });
     }
 
+    public GuavaLoadingCache(long size, EXPIRE_POLICY expirePolicy, long ttl, Function<K, V> loader, Consumer<Map.Entry<K, Optional<V>>> remover) {
+        CacheBuilder builder = CacheBuilder.newBuilder();
+
+        builder.maximumSize(size);
+
+        if (ttl > 0 && expirePolicy == EXPIRE_POLICY.AFTER_WRITE) {
+            builder.expireAfterWrite(ttl, TimeUnit.MILLISECONDS);
+        } else if (ttl > 0 && expirePolicy == EXPIRE_POLICY.AFTER_READ) {
+            builder.expireAfterAccess(ttl, TimeUnit.MILLISECONDS);
+        }
+
+        wrapped = builder
+                .removalListener((RemovalNotification notification) -> {
+                    // a replaced entry is still in the cache
+                    if (notification.getCause() != RemovalCause.REPLACED) {
+                        remover.accept(notification);
+                    }
+                })
+                .build(new CacheLoader<K, Optional<V>>() {
+                    @Override
+                    public Optional<V> load(K key) throws Exception {
+                        return Optional.ofNullable(loader.apply(key));
+                    }
+                });
+    }
+
     @Override
     public Optional<V> get(K key) {
         return wrapped.getIfPresent(key);
@@ -21,10 +21,10 @@
 package org.restheart.exchange;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Deque;
 import java.util.List;
-import java.util.Scanner;
 
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
@@ -32,8 +32,9 @@ import org.bson.BsonObjectId;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.json.JsonParseException;
-import org.restheart.utils.ChannelReader;
+import org.restheart.utils.CsvReader;
 import org.restheart.utils.JsonUtils;
+import org.xnio.streams.ChannelInputStream;
 
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
@@ -44,6 +45,11 @@ import io.undertow.util.Headers;
  * data. Two query parameters controls the conversion: 'id', the the index of
  * the _id property and 'sep', the separator char
  *
+ * The csv content is parsed as it is read from the request channel: use
+ * nextDocument() to get the documents one by one. getContent() reads the whole
+ * content into a BsonArray, thus it should only be used when the content is
+ * small, e.g. by an interceptor that needs to modify it.
+ *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
@@ -52,6 +58,17 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
      */
     public static final String CVS_CONTENT_TYPE = "text/csv";
 
+    private CsvRequestParams params;
+
+    private CsvReader reader = null;
+    private List<String> cols = null;
+
+    // the number of documents returned by nextDocument()
+    private int row = 0;
+
+    // the error parsing the content in getContent(), rethrown by nextDocument()
+    private IOException contentError = null;
+
     private BsonFromCsvRequest(HttpServerExchange exchange) {
         super(exchange);
     }
@@ -61,10 +78,7 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
 
         if (checkContentType(exchange)) {
             try {
-                ret.injectContent(exchange);
-            } catch (IOException ex) {
-                LOGGER.warn("error parsing CSV", ex);
-                ret.setInError(true);
+                ret.params = new CsvRequestParams(exchange);
             } catch (Throwable ieo) {
                 LOGGER.warn("error initializing request", ieo);
                 ret.setInError(true);
@@ -81,88 +95,152 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
         return of(exchange, BsonFromCsvRequest.class);
     }
 
+    /**
+     * reads the whole csv content
+     *
+     * @param exchange
+     * @throws IOException
+     */
     public void injectContent(HttpServerExchange exchange) throws IOException {
-        final var params = new CsvRequestParams(exchange);
-        final var csv = ChannelReader.readString(exchange);
+        var bson = new BsonArray();
 
-        setContent(parseCsv(params, csv));
+        BsonDocument doc;
+
+        while ((doc = nextDocument()) != null) {
+            bson.add(doc);
+        }
+
+        setContent(bson);
     }
 
-    private static boolean checkContentType(HttpServerExchange exchange) {
-        HeaderValues contentType = exchange.getRequestHeaders().get(Headers.CONTENT_TYPE);
+    /**
+     * If the content has not been read yet, reads the whole csv content.
+     *
+     * Returns null if the content has been already (partially) read via
+     * nextDocument()
+     *
+     * @return the documents
+     */
+    @Override
+    public BsonArray getContent() {
+        if (this.content == null && this.reader == null && !isInError()) {
+            try {
+                injectContent(getExchange());
 
-        return contentType != null && contentType.stream()
-                .anyMatch(ct -> ct.equals(CVS_CONTENT_TYPE) || ct.startsWith(CVS_CONTENT_TYPE.concat(";")));
+                // nextDocument() iterates over the content from the beginning
+                this.row = 0;
+            } catch (IOException ex) {
+                LOGGER.warn("error parsing CSV", ex);
+                this.contentError = ex;
+                setInError(true);
+            }
+        }
+
+        return this.content;
     }
 
-    private BsonArray parseCsv(CsvRequestParams params, String csv) throws IOException {
-        var bson = new BsonArray();
+    /**
+     * Parses the next csv record, reading the request content as needed. If
+     * the content has been set, returns its next document.
+     *
+     * @return the next document, null if there are no more documents
+     * @throws IOException if the content cannot be read or is not valid csv,
+     * also when getContent() failed parsing it
+     */
+    public BsonDocument nextDocument() throws IOException {
+        if (this.contentError != null) {
+            throw this.contentError;
+        }
 
-        boolean isHeader = true;
+        if (this.content != null) {
+            return this.row < this.content.size()
+                    ? this.content.get(this.row++).asDocument()
+                    : null;
+        }
 
-        List<String> cols = null;
+        if (this.reader == null) {
+            var channel = getExchange().getRequestChannel();
 
-        try (Scanner scanner = new Scanner(csv)) {
-            while (scanner.hasNext()) {
-                String line = scanner.nextLine();
+            if (channel == null) {
+                return null;
+            }
+
+            this.reader = new CsvReader(new InputStreamReader(
+                    new ChannelInputStream(channel), StandardCharsets.UTF_8),
+                    params.sep);
+
+            this.cols = this.reader.nextRecord();
+        }
+
+        List<String> vals;
+
+        do {
+            vals = this.reader.nextRecord();
+
+            if (vals == null) {
+                return null;
+            }
+        } while (isBlank(vals));
+
+        this.row++;
+
+        return toDocument(vals);
+    }
+
+    /**
+     * @return the number of the csv row (excluding the header) of the last
+     * document returned by nextDocument()
+     */
+    public int getRow() {
+        return this.row;
+    }
+
+    private boolean isBlank(List<String> vals) {
+        return vals.size() == 1 && !reader.isQuoted(0) && vals.get(0).isBlank();
+    }
 
-                // split on the separator only if that comma has zero,
-                // or an even number of quotes ahead of it.
-                List<String> vals = Arrays.asList(line.split(params.sep + "(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+    private BsonDocument toDocument(List<String> vals) {
+        var doc = new BsonDocument("_etag", new BsonObjectId());
 
-                if (isHeader) {
-                    cols = vals;
+        int unnamedProps = 0;
+
+        for (int idx = 0; idx < vals.size(); idx++) {
+            var _v = getBsonValue(vals.get(idx), reader.isQuoted(idx));
+
+            if (idx == params.idIdx) {
+                doc.append("_id", _v);
+            } else {
+                String propname;
+
+                if (cols == null || cols.size() <= idx) {
+                    propname = "unnamed_" + unnamedProps;
+                    unnamedProps++;
                 } else {
-                    var doc = new BsonDocument("_etag", new BsonObjectId());
-
-                    int unnamedProps = 0;
-
-                    for (int idx = 0; idx < vals.size(); idx++) {
-                        if (idx == params.idIdx) {
-                            var _v = vals.get(params.idIdx);
-
-                            if (_v != null) {
-                                // quote empty string
-                                if ("".equals(_v.trim())) {
-                                    _v = "\"".concat(_v).concat("\"");
-                                }
-
-                                doc.append("_id", getBsonValue(_v));
-                            }
-                        } else {
-                            String propname;
-
-                            if (cols == null || cols.size() <= idx) {
-                                propname = "unnamed_" + unnamedProps;
-                                unnamedProps++;
-                            } else {
-                                propname = cols.get(idx);
-                            }
-
-                            var _v = vals.get(idx);
-
-                            // quote empty string
-                            if ("".equals(_v.trim())) {
-                                _v = "\"".concat(_v).concat("\"");
-                            }
-
-                            if (_v != null) {
-                                doc.append(propname, getBsonValue(_v));
-                            }
-                        }
-                    }
-
-                    bson.add(doc);
+                    propname = cols.get(idx);
                 }
 
-                isHeader = false;
+                doc.append(propname, _v);
             }
         }
 
-        return bson;
+        return doc;
     }
 
-    private BsonValue getBsonValue(String raw) {
+    private static boolean checkContentType(HttpServerExchange exchange) {
+        HeaderValues contentType = exchange.getRequestHeaders().get(Headers.CONTENT_TYPE);
+
+        return contentType != null && contentType.stream()
+                .anyMatch(ct -> ct.equals(CVS_CONTENT_TYPE) || ct.startsWith(CVS_CONTENT_TYPE.concat(";")));
+    }
+
+    /**
+     * quoted and empty values are strings, other values are parsed as json
+     */
+    private BsonValue getBsonValue(String raw, boolean quoted) {
+        if (quoted || raw.isBlank()) {
+            return new BsonString(raw);
+        }
+
         try {
             return JsonUtils.parse(raw);
         } catch (JsonParseException jpe) {
@@ -175,15 +253,23 @@ public class BsonFromCsvRequest extends ServiceRequest<BsonArray> {
         private static final String SEPARATOR_QPARAM_NAME = "sep";
 
         public final int idIdx;
-        public final String sep;
+        public final char sep;
 
         CsvRequestParams(HttpServerExchange exchange) {
             Deque<String> _sep = exchange.getQueryParameters().get(SEPARATOR_QPARAM_NAME);
             Deque<String> _id = exchange.getQueryParameters().get(ID_IDX_QPARAM_NAME);
 
-            sep = _sep != null ? _sep.size() > 0 ? _sep.getFirst() : "" : ",";
+            String __sep = _sep != null ? _sep.size() > 0 ? _sep.getFirst() : "" : ",";
             String _idIdx = _id != null ? _id.size() > 0 ? _id.getFirst() : "-1" : "-1";
 
+            if (__sep.length() == 1) {
+                sep = __sep.charAt(0);
+            } else if ("\\t".equals(__sep)) {
+                sep = '\t';
+            } else {
+                throw new IllegalArgumentException("sep must be a single char");
+            }
+
             try {
                 idIdx = Integer.parseInt(_idIdx);
             } catch (NumberFormatException nfe) {
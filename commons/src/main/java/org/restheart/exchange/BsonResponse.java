@@ -20,6 +20,8 @@
 package org.restheart.exchange;
 
 import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.io.OutputStream;
 import org.bson.BsonDocument;
 import org.bson.BsonString;
 import org.bson.BsonValue;
@@ -53,6 +55,17 @@ public class BsonResponse extends ServiceResponse<BsonValue> {
         }
     }
 
+    /**
+     * Writes the content to the output stream in the same format of
+     * readContent() without building the intermediate String
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeContent(OutputStream out) throws IOException {
+        JsonUtils.toJson(content, null, out);
+    }
+
     @Override
     public void setInError(int code, String message, Throwable t) {
         setStatusCode(code);
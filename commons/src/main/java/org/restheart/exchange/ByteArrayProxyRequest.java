@@ -62,7 +62,7 @@ public class ByteArrayProxyRequest extends ProxyRequest<byte[]> {
     @Override
     public byte[] readContent()
             throws IOException {
-        return BuffersUtils.toByteArray(getBuffer());
+        return BuffersUtils.toByteArray(getWrappedExchange(), getBuffer());
     }
 
     @Override
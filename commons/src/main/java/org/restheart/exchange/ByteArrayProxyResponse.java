@@ -65,7 +65,7 @@ public class ByteArrayProxyResponse extends ProxyResponse<byte[]> {
     @Override
     public byte[] readContent()
             throws IOException {
-        return BuffersUtils.toByteArray(getBuffer());
+        return BuffersUtils.toByteArray(getWrappedExchange(), getBuffer());
     }
 
     @Override
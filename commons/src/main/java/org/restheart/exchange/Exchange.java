@@ -46,6 +46,11 @@ public abstract class Exchange<T> {
      */
     public static final String JSON_MEDIA_TYPE = "application/json";
 
+    /**
+     * newline delimited json
+     */
+    public static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
     /**
      *
      */
@@ -36,6 +36,17 @@ public interface ExchangeKeys {
      */
     public static final String PAGESIZE_QPARAM_KEY = "pagesize";
 
+    /**
+     * the continuation token of keyset pagination
+     */
+    public static final String AFTER_QPARAM_KEY = "after";
+
+    /**
+     * the response header that holds the continuation token of keyset
+     * pagination
+     */
+    public static final String CONTINUATION_TOKEN_HEADER = "Continuation-Token";
+
     /**
      *
      */
@@ -136,6 +147,11 @@ public interface ExchangeKeys {
      */
     public static final String WRITE_MODE_SHORT_QPARAM_KEY = "wm";
 
+    /**
+     * the resume token of change streams
+     */
+    public static final String RESUME_AFTER_QPARAM_KEY = "resumeAfter";
+
     // matadata
 
     /**
@@ -64,7 +64,7 @@ public class JsonProxyRequest extends ProxyRequest<JsonElement> {
             return JsonNull.INSTANCE;
         } else {
             try {
-                return JsonParser.parseString(BuffersUtils.toString(getBuffer(),
+                return JsonParser.parseString(BuffersUtils.toString(getWrappedExchange(), getBuffer(),
                         StandardCharsets.UTF_8));
             } catch (JsonParseException ex) {
                 // dump bufferd content
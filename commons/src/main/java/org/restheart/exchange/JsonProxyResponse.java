@@ -69,6 +69,7 @@ public class JsonProxyResponse extends ProxyResponse<JsonElement> {
         } else {
             try {
                 String rawContentAsString = BuffersUtils.toString(
+                        getWrappedExchange(),
                         getBuffer(),
                         StandardCharsets.UTF_8);
 
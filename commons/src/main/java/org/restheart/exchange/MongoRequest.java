@@ -24,13 +24,17 @@ import io.undertow.server.HttpServerExchange;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
 import io.undertow.util.PathTemplateMatch;
+import java.io.InputStream;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Deque;
+import java.util.List;
 import java.util.Map;
+import java.util.function.UnaryOperator;
 import java.util.stream.Collectors;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
@@ -71,14 +75,18 @@ public class MongoRequest extends BsonRequest {
     private BsonDocument collectionProps;
 
     private Path filePath;
+    private InputStream fileInputStream;
 
     private int page = 1;
     private int pagesize = 100;
+    private String after = null; // keyset pagination continuation token
     private boolean count = false;
     private boolean etagCheckRequired = false;
     private WRITE_MODE writeMode = WRITE_MODE.UPSERT;
     private EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy;
     private Deque<String> filter = null;
+    private final List<BsonDocument> filterDocuments = new ArrayList<>();
+    private final List<UnaryOperator<BsonDocument>> streamedContentProcessors = new ArrayList<>();
     private BsonDocument aggregationVars = null; // aggregation vars
     private Deque<String> keys = null;
     private Deque<String> sortBy = null;
@@ -754,6 +762,28 @@ public class MongoRequest extends BsonRequest {
         this.page = page;
     }
 
+    /**
+     * @return the continuation token of keyset pagination, empty for the first
+     * page; null if keyset pagination is not requested
+     */
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * @param after the continuation token of keyset pagination
+     */
+    public void setAfter(String after) {
+        this.after = after;
+    }
+
+    /**
+     * @return true if keyset pagination is requested
+     */
+    public boolean isKeysetPagination() {
+        return after != null;
+    }
+
     /**
      * @return the pagesize
      */
@@ -832,26 +862,89 @@ public class MongoRequest extends BsonRequest {
     }
 
     /**
+     * The content of an application/x-ndjson bulk POST is not read upfront:
+     * the documents are streamed by the handler that writes them, and
+     * getContent() returns null to the request interceptors.
+     *
+     * @return true if the request content is streamed
+     */
+    public boolean isContentStreamed() {
+        var contentType = getHeaders() == null
+                ? null
+                : getHeaders().get(Headers.CONTENT_TYPE);
+
+        return isPost()
+                && contentType != null
+                && contentType.stream().anyMatch(ct -> ct.startsWith(NDJSON_MEDIA_TYPE));
+    }
+
+    /**
+     * @return the processors to apply to each document of a streamed content
+     */
+    public List<UnaryOperator<BsonDocument>> getStreamedContentProcessors() {
+        return streamedContentProcessors;
+    }
+
+    /**
+     * adds a processor that the handler applies, in order, to each document of
+     * a streamed content, before writing it. This allows request interceptors
+     * to check and modify the documents that they cannot get via
+     * getContent().
      *
-     * @return the $and composed filter qparam values
+     * The processor can throw BadRequestException to reject the request: the
+     * documents of the previous batches are already written.
+     *
+     * @param processor the function that returns the processed document
+     */
+    public void addStreamedContentProcessor(UnaryOperator<BsonDocument> processor) {
+        this.streamedContentProcessors.add(processor);
+    }
+
+    /**
+     * @return the filter documents added by the interceptors
+     */
+    public List<BsonDocument> getFilterDocuments() {
+        return filterDocuments;
+    }
+
+    /**
+     * adds a filter document that is composed in $and with the filter qparam
+     * values by getFiltersDocument(); differently from adding it to the filter
+     * qparam, the document is not serialized and parsed again
+     *
+     * @param filter the filter document to add
+     */
+    public void addFilterDocument(BsonDocument filter) {
+        if (filter != null) {
+            this.filterDocuments.add(filter);
+        }
+    }
+
+    /**
+     *
+     * @return the $and composed filter qparam values and filter documents
      */
     public BsonDocument getFiltersDocument() throws JsonParseException {
         final BsonDocument filterQuery = new BsonDocument();
 
+        var filters = new ArrayList<BsonDocument>();
+
         if (filter != null) {
-            if (filter.size() > 1) {
-                BsonArray _filters = new BsonArray();
+            filter.stream().forEach((String f) -> {
+                filters.add(BsonDocument.parse(f)); // this can throw JsonParseException for invalid filter parameters
+            });
+        }
 
-                filter.stream().forEach((String f) -> {
-                    _filters.add(BsonDocument.parse(f));
-                });
+        filters.addAll(filterDocuments);
 
-                filterQuery.put("$and", _filters);
-            } else if (filter.size() == 1) {
-                filterQuery.putAll(BsonDocument.parse(filter.getFirst()));  // this can throw JsonParseException for invalid filter parameters
-            } else {
-                return filterQuery;
-            }
+        if (filters.size() > 1) {
+            var _filters = new BsonArray();
+
+            filters.stream().forEach(_filters::add);
+
+            filterQuery.put("$and", _filters);
+        } else if (filters.size() == 1) {
+            filterQuery.putAll(filters.get(0));
         }
 
         return filterQuery;
@@ -1130,6 +1223,21 @@ public class MongoRequest extends BsonRequest {
         this.filePath = filePath;
     }
 
+    /**
+     * @return the stream of the file being uploaded, when the multipart
+     * content is not spooled to a temporary file
+     */
+    public InputStream getFileInputStream() {
+        return fileInputStream;
+    }
+
+    /**
+     * @param fileInputStream the fileInputStream to set
+     */
+    public void setFileInputStream(InputStream fileInputStream) {
+        this.fileInputStream = fileInputStream;
+    }
+
     /**
      * @return keys
      */
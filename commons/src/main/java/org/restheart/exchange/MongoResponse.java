@@ -30,6 +30,8 @@ import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.result.UpdateResult;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
@@ -37,6 +39,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonInt32;
@@ -68,6 +71,10 @@ public class MongoResponse extends BsonResponse {
 
     private long count = -1;
 
+    private boolean contentStreamed = false;
+
+    private final List<UnaryOperator<BsonDocument>> streamedContentProcessors = new ArrayList<>();
+
     protected MongoResponse(HttpServerExchange exchange) {
         super(exchange);
     }
@@ -91,13 +98,7 @@ public class MongoResponse extends BsonResponse {
     @Override
     public String readContent() {
         var request = MongoRequest.of(wrapped);
-        BsonValue tosend;
-
-        if (!request.isGet() && (content == null || content.isDocument())) {
-            tosend = addWarnings(content == null ? null : content.asDocument());
-        } else {
-            tosend = content;
-        }
+        var tosend = contentToSend(request);
 
         if (tosend != null) {
             return JsonUtils.toJson(tosend, request.getJsonMode());
@@ -106,6 +107,21 @@ public class MongoResponse extends BsonResponse {
         }
     }
 
+    @Override
+    public void writeContent(OutputStream out) throws IOException {
+        var request = MongoRequest.of(wrapped);
+
+        JsonUtils.toJson(contentToSend(request), request.getJsonMode(), out);
+    }
+
+    private BsonValue contentToSend(MongoRequest request) {
+        if (!request.isGet() && (content == null || content.isDocument())) {
+            return addWarnings(content == null ? null : content.asDocument());
+        } else {
+            return content;
+        }
+    }
+
     private BsonDocument addWarnings(BsonDocument content) {
         if (content != null) {
             if (warnings != null
@@ -210,6 +226,51 @@ public class MongoResponse extends BsonResponse {
         this.count = count;
     }
 
+    /**
+     * A streamed response content is written to the client by the custom
+     * sender as it is read from the db, after the response interceptors have
+     * been executed. Response interceptors of streamed responses:
+     * <ul>
+     * <li>get null from getContent() and cannot modify the content but can
+     * add a processor that is applied to each document with
+     * addStreamedContentProcessor()</li>
+     * <li>can modify the status code and the headers</li>
+     * <li>can set an error with setInError(): in this case the error is sent
+     * in place of the streamed content</li>
+     * </ul>
+     *
+     * @return true if the response content is streamed
+     */
+    public boolean isContentStreamed() {
+        return contentStreamed;
+    }
+
+    /**
+     * @param contentStreamed true if the response content is streamed
+     */
+    public void setContentStreamed(boolean contentStreamed) {
+        this.contentStreamed = contentStreamed;
+    }
+
+    /**
+     * @return the processors to apply to each document of a streamed content
+     */
+    public List<UnaryOperator<BsonDocument>> getStreamedContentProcessors() {
+        return streamedContentProcessors;
+    }
+
+    /**
+     * adds a processor that the custom sender applies, in order, to each
+     * document of a streamed content, before writing it. This allows response
+     * interceptors to modify the documents that they cannot get via
+     * getContent().
+     *
+     * @param processor the function that returns the processed document
+     */
+    public void addStreamedContentProcessor(UnaryOperator<BsonDocument> processor) {
+        this.streamedContentProcessors.add(processor);
+    }
+
     /**
      *
      * @param href
@@ -75,9 +75,37 @@ public interface PluginsRegistry {
     @SuppressWarnings("rawtypes")
     public Set<PluginRecord<Service>> getServices();
 
+    /**
+     * @param name the name of the service
+     * @return the service or null if no service with the given name is registered
+     */
+    @SuppressWarnings("rawtypes")
+    public PluginRecord<Service> getService(String name);
+
+    /**
+     * @return the interceptors
+     */
     @SuppressWarnings("rawtypes")
     public Set<PluginRecord<Interceptor>> getInterceptors();
 
+    /**
+     * Adds an interceptor; the interceptors chains of the plugged pipelines
+     * are recompiled
+     *
+     * @param interceptor the interceptor to add
+     */
+    @SuppressWarnings("rawtypes")
+    public void addInterceptor(PluginRecord<Interceptor> interceptor);
+
+    /**
+     * Removes the interceptors matching the filter; the interceptors chains of
+     * the plugged pipelines are recompiled
+     *
+     * @param filter the filter to select the interceptors to remove
+     */
+    @SuppressWarnings("rawtypes")
+    public void removeInterceptorIf(java.util.function.Predicate<PluginRecord<Interceptor>> filter);
+
     /**
      * global security predicates must all resolve to true to allow the request
      *
@@ -21,6 +21,7 @@ package org.restheart.utils;
 
 import io.undertow.connector.PooledByteBuffer;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.AttachmentKey;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -38,10 +39,35 @@ public class BuffersUtils {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(BuffersUtils.class);
 
+    // counters of the bytes copied from pooled buffers for the request
+    private static final AttachmentKey<CopyCounters> COPY_COUNTERS_KEY
+            = AttachmentKey.create(CopyCounters.class);
+
     /**
      * @param srcs
-     * @return
-     * @throws IOException
+     * @return the number of bytes available in the pooled buffers
+     */
+    public static int remaining(final PooledByteBuffer[] srcs) {
+        if (srcs == null) {
+            return 0;
+        }
+
+        long size = 0;
+
+        for (PooledByteBuffer src : srcs) {
+            if (src != null) {
+                size += src.getBuffer().remaining();
+            }
+        }
+
+        return size > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) size;
+    }
+
+    /**
+     * @param srcs
+     * @return a ByteBuffer, sized exactly as the available content, that holds
+     * the content of the pooled buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
      */
     public static ByteBuffer toByteBuffer(final PooledByteBuffer[] srcs)
             throws IOException {
@@ -49,41 +75,101 @@ public class BuffersUtils {
             return null;
         }
 
-        ByteBuffer dst = ByteBuffer.allocate(MAX_CONTENT_SIZE);
+        return ByteBuffer.wrap(toByteArray(srcs));
+    }
 
-        for (int i = 0; i < srcs.length; i++) {
-            PooledByteBuffer src = srcs[i];
+    /**
+     * @param srcs
+     * @return a byte array, sized exactly as the available content, that holds
+     * the content of the pooled buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static byte[] toByteArray(final PooledByteBuffer[] srcs)
+            throws IOException {
+        if (srcs == null) {
+            return new byte[0];
+        }
+
+        int size = checkedSize(srcs);
+
+        byte[] ret = new byte[size];
+
+        int pos = 0;
+
+        for (PooledByteBuffer src : srcs) {
             if (src != null) {
-                final ByteBuffer srcBuffer = src.getBuffer();
+                // duplicate() does not modify the position of the pooled buffer
+                final ByteBuffer srcBuffer = src.getBuffer().duplicate();
+                final int remaining = srcBuffer.remaining();
 
-                if (srcBuffer.remaining() > dst.remaining()) {
-                    LOGGER.error("Request content exceeeded {} bytes limit",
-                            MAX_CONTENT_SIZE);
-                    throw new IOException("Request content exceeeded "
-                            + MAX_CONTENT_SIZE + " bytes limit");
-                }
+                srcBuffer.get(ret, pos, remaining);
+                pos += remaining;
+            }
+        }
 
-                if (srcBuffer.hasRemaining()) {
-                    Buffers.copy(dst, srcBuffer);
+        return ret;
+    }
 
-                    // very important, I lost a day for this!
-                    srcBuffer.flip();
-                }
+    /**
+     * as toByteArray(srcs), counting the bytes copied for the exchange
+     *
+     * @param exchange
+     * @param srcs
+     * @return a byte array, sized exactly as the available content, that holds
+     * the content of the pooled buffers
+     * @throws IOException if the content exceeds MAX_CONTENT_SIZE
+     */
+    public static byte[] toByteArray(final HttpServerExchange exchange,
+            final PooledByteBuffer[] srcs) throws IOException {
+        var ret = toByteArray(srcs);
+
+        if (exchange != null) {
+            var counters = exchange.getAttachment(COPY_COUNTERS_KEY);
+
+            if (counters == null) {
+                counters = new CopyCounters();
+                exchange.putAttachment(COPY_COUNTERS_KEY, counters);
             }
+
+            counters.bytes += ret.length;
+            counters.copies++;
         }
 
-        return dst.flip();
+        return ret;
     }
 
-    public static byte[] toByteArray(final PooledByteBuffer[] srcs)
+    private static int checkedSize(final PooledByteBuffer[] srcs)
             throws IOException {
-        ByteBuffer content = toByteBuffer(srcs);
+        int size = remaining(srcs);
+
+        if (size > MAX_CONTENT_SIZE) {
+            LOGGER.error("Request content exceeeded {} bytes limit",
+                    MAX_CONTENT_SIZE);
+            throw new IOException("Request content exceeeded "
+                    + MAX_CONTENT_SIZE + " bytes limit");
+        }
 
-        byte[] ret = new byte[content.limit()];
+        return size;
+    }
 
-        content.get(ret);
+    /**
+     * @param exchange
+     * @return the number of bytes copied from pooled buffers for the exchange
+     * by toByteArray(exchange, srcs) and toString(exchange, srcs, cs)
+     */
+    public static long copiedBytes(final HttpServerExchange exchange) {
+        var counters = exchange.getAttachment(COPY_COUNTERS_KEY);
+        return counters == null ? 0 : counters.bytes;
+    }
 
-        return ret;
+    /**
+     * @param exchange
+     * @return the number of copies from pooled buffers done for the exchange
+     * by toByteArray(exchange, srcs) and toString(exchange, srcs, cs)
+     */
+    public static long copies(final HttpServerExchange exchange) {
+        var counters = exchange.getAttachment(COPY_COUNTERS_KEY);
+        return counters == null ? 0 : counters.copies;
     }
 
     public static String toString(final PooledByteBuffer[] srcs, Charset cs)
@@ -91,6 +177,11 @@ public class BuffersUtils {
         return new String(toByteArray(srcs), cs);
     }
 
+    public static String toString(final HttpServerExchange exchange,
+            final PooledByteBuffer[] srcs, Charset cs) throws IOException {
+        return new String(toByteArray(exchange, srcs), cs);
+    }
+
     public static String toString(final byte[] src, Charset cs)
             throws IOException {
         return new String(src, cs);
@@ -236,4 +327,12 @@ public class BuffersUtils {
 
         return copied;
     }
+
+    /**
+     * the exchange is handled by one thread at a time
+     */
+    private static class CopyCounters {
+        private long bytes = 0;
+        private long copies = 0;
+    }
 }
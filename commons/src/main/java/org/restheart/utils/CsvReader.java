@@ -0,0 +1,176 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Reads the records of csv content (RFC 4180) as they arrive from the
+ * stream.
+ *
+ * Fields can be enclosed in double quotes; quoted fields can contain the
+ * separator, line breaks and double quotes, escaped by a preceding double
+ * quote. Records are separated by either CRLF or LF.
+ *
+ * Not thread safe.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader in;
+    private final char sep;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int pos = 0;
+    private int limit = 0;
+
+    private final BitSet quoted = new BitSet();
+    private long lineNumber = 0;
+
+    /**
+     *
+     * @param in the csv content
+     * @param sep the separator char
+     */
+    public CsvReader(Reader in, char sep) {
+        this.in = in;
+        this.sep = sep;
+    }
+
+    /**
+     * @return the values of the next record, null if there are no more
+     * records
+     * @throws IOException if the content cannot be read or a quoted field is
+     * not terminated
+     */
+    public List<String> nextRecord() throws IOException {
+        int c = read();
+
+        if (c < 0) {
+            return null;
+        }
+
+        var values = new ArrayList<String>();
+        var field = new StringBuilder();
+        var inQuotes = false;
+        var startLine = lineNumber + 1;
+
+        quoted.clear();
+
+        while (true) {
+            if (inQuotes) {
+                if (c < 0) {
+                    throw new IOException("Unterminated quoted field "
+                            + "in record starting at line " + startLine);
+                } else if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    if (c == '\n') {
+                        lineNumber++;
+                    }
+
+                    field.append((char) c);
+                }
+            } else if (c == sep) {
+                values.add(field.toString());
+                field.setLength(0);
+            } else if (c < 0 || c == '\n' || c == '\r') {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+
+                values.add(field.toString());
+                lineNumber++;
+                return values;
+            } else if (c == '"' && field.length() == 0 && !quoted.get(values.size())) {
+                inQuotes = true;
+                quoted.set(values.size());
+            } else {
+                field.append((char) c);
+            }
+
+            c = read();
+        }
+    }
+
+    /**
+     * @param idx the index of the field
+     * @return true if the field of the last record was enclosed in double
+     * quotes
+     */
+    public boolean isQuoted(int idx) {
+        return quoted.get(idx);
+    }
+
+    /**
+     * @return the number of lines read so far
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+
+        do {
+            read = in.read(buffer, 0, buffer.length);
+        } while (read == 0);
+
+        if (read < 0) {
+            return false;
+        }
+
+        pos = 0;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
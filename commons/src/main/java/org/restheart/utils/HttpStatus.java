@@ -234,6 +234,10 @@ public class HttpStatus {
      * {@literal <tt>}424 Failed Dependency{@literal <tt/>} (WebDAV - RFC 2518)
      */
     public static final int SC_FAILED_DEPENDENCY = 424;
+    /**
+     * {@literal <tt>}429 Too Many Requests{@literal <tt/>} (RFC 6585)
+     */
+    public static final int SC_TOO_MANY_REQUESTS = 429;
 
     // --- 5xx Server Error ---
     /**
@@ -334,6 +338,7 @@ public class HttpStatus {
         addStatusCodeMap(SC_LOCKED, "Locked");
         addStatusCodeMap(SC_INSUFFICIENT_STORAGE, "Insufficient Storage");
         addStatusCodeMap(SC_FAILED_DEPENDENCY, "Failed Dependency");
+        addStatusCodeMap(SC_TOO_MANY_REQUESTS, "Too Many Requests");
     }
 
     // --------------------------------------------------------- Public Methods
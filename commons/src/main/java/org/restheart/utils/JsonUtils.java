@@ -21,6 +21,11 @@
 package org.restheart.utils;
 
 import com.mongodb.MongoClient;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -39,13 +44,16 @@ import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.codecs.BsonArrayCodec;
+import org.bson.codecs.BsonDocumentCodec;
 import org.bson.codecs.BsonValueCodecProvider;
 import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
 import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.json.Converter;
 import org.bson.json.JsonMode;
 import org.bson.json.JsonParseException;
 import org.bson.json.JsonReader;
+import org.bson.json.JsonWriter;
 import org.bson.json.JsonWriterSettings;
 import org.bson.json.StrictJsonWriter;
 import org.bson.types.ObjectId;
@@ -64,6 +72,8 @@ public class JsonUtils {
             CodecRegistries.fromProviders(
                     new BsonValueCodecProvider()));
 
+    private static final BsonDocumentCodec BSON_DOCUMENT_CODEC = new BsonDocumentCodec();
+
     private static final String ESCAPED_DOLLAR = "_$";
     private static final String ESCAPED_DOT = "::";
     private static final String DOLLAR = "$";
@@ -640,20 +650,7 @@ public class JsonUtils {
             return null;
         }
 
-        var settings = mode != null
-                ? JsonWriterSettings.builder()
-                        .outputMode(mode)
-                        .indent(false)
-                        .build()
-                : JsonWriterSettings.builder()
-                        .indent(false)
-                        .dateTimeConverter(new Converter<Long>() {
-                            @Override
-                            public void convert(Long t, StrictJsonWriter writer) {
-                                writer.writeRaw("{\"$date\": " + t + " }");
-                            }
-                        })
-                        .build();
+        var settings = jsonWriterSettings(mode);
 
         if (bson.isDocument()) {
             return minify(bson.asDocument().toJson(settings));
@@ -685,6 +682,85 @@ public class JsonUtils {
         }
     }
 
+    /**
+     * Writes the minified json representation of the bson value to the output
+     * stream, encoded in UTF-8.
+     *
+     * It produces the same output of toJson(bson, mode) without building the
+     * intermediate Strings: documents are encoded straight to the stream and
+     * insignificant whitespaces are removed while writing.
+     *
+     * The output stream is flushed but not closed.
+     *
+     * @param bson the value to write
+     * @param mode
+     * @param out the output stream
+     * @throws IOException
+     */
+    public static void toJson(BsonValue bson, JsonMode mode, OutputStream out)
+            throws IOException {
+        if (bson == null) {
+            return;
+        }
+
+        var settings = jsonWriterSettings(mode);
+        var writer = new MinifyingWriter(new OutputStreamWriter(out,
+                StandardCharsets.UTF_8));
+
+        if (bson.isDocument()) {
+            writeDocument(bson.asDocument(), settings, writer);
+        } else if (bson.isArray()) {
+            writer.write('[');
+
+            var first = true;
+
+            for (var element : bson.asArray()) {
+                if (first) {
+                    first = false;
+                } else {
+                    writer.write(',');
+                }
+
+                if (element.isDocument()) {
+                    writeDocument(element.asDocument(), settings, writer);
+                } else {
+                    writer.write(toJson(element, mode));
+                }
+            }
+
+            writer.write(']');
+        } else {
+            writer.write(toJson(bson, mode));
+        }
+
+        writer.flush();
+    }
+
+    private static void writeDocument(BsonDocument doc,
+            JsonWriterSettings settings,
+            Writer writer) {
+        BSON_DOCUMENT_CODEC.encode(new JsonWriter(writer, settings),
+                doc,
+                EncoderContext.builder().build());
+    }
+
+    private static JsonWriterSettings jsonWriterSettings(JsonMode mode) {
+        return mode != null
+                ? JsonWriterSettings.builder()
+                        .outputMode(mode)
+                        .indent(false)
+                        .build()
+                : JsonWriterSettings.builder()
+                        .indent(false)
+                        .dateTimeConverter(new Converter<Long>() {
+                            @Override
+                            public void convert(Long t, StrictJsonWriter writer) {
+                                writer.writeRaw("{\"$date\": " + t + " }");
+                            }
+                        })
+                        .build();
+    }
+
     /**
      *
      * @param id
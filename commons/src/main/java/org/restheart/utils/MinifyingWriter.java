@@ -0,0 +1,142 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A Writer that removes the whitespaces that are insignificant in the JSON
+ * written to it, as it is written.
+ *
+ * It is the streaming counterpart of Minify for the JSON produced by
+ * org.bson.json.JsonWriter: whitespaces within strings and regular expression
+ * literals are preserved and a single space is kept between two alphanumeric
+ * tokens (e.g. new Date(...) in JsonMode.SHELL)
+ *
+ * Not thread safe.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MinifyingWriter extends Writer {
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Writer out;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int count = 0;
+
+    // the quote char of the string or the regex literal being written, 0 if none
+    private char literal = 0;
+    private boolean escaped = false;
+    private boolean pendingSpace = false;
+    private char last = 0;
+
+    /**
+     *
+     * @param out the writer to write the minified json to
+     */
+    public MinifyingWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        write((char) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(cbuf[i]);
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        for (int i = off; i < off + len; i++) {
+            write(str.charAt(i));
+        }
+    }
+
+    private void write(char c) throws IOException {
+        if (literal != 0) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == literal) {
+                literal = 0;
+            }
+
+            emit(c);
+        } else if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+            pendingSpace = true;
+        } else {
+            if (pendingSpace && isAlphanum(last) && isAlphanum(c)) {
+                emit(' ');
+            }
+
+            pendingSpace = false;
+
+            if (c == '"' || c == '\'' || c == '/') {
+                literal = c;
+            }
+
+            emit(c);
+        }
+    }
+
+    private void emit(char c) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+
+        buffer[count++] = c;
+        last = c;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * same definition of Minify.isAlphanum()
+     */
+    private static boolean isAlphanum(char c) {
+        return ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || c == '\\'
+                || c > 126);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -207,15 +207,10 @@ public class PluginUtils {
         var pi = pipelineInfo(exchange);
 
         if (pi != null && pi.getType() == SERVICE) {
-            var srvName = pi.getName();
+            var srv = registry.getService(pi.getName());
 
-            if (srvName != null) {
-                var _s = registry.getServices().stream().filter(s -> srvName.equals(s.getName()))
-                        .map(s -> s.getInstance()).findAny();
-
-                if (_s.isPresent()) {
-                    return _s.get();
-                }
+            if (srv != null) {
+                return srv.getInstance();
             }
         }
 
@@ -0,0 +1,76 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import io.undertow.connector.PooledByteBuffer;
+import io.undertow.server.DefaultByteBufferPool;
+import io.undertow.server.HttpServerExchange;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BuffersUtilsTest {
+
+    private static final DefaultByteBufferPool POOL = new DefaultByteBufferPool(false, 16);
+
+    private static PooledByteBuffer pooled(String content) {
+        var ret = POOL.allocate();
+        ret.getBuffer().put(content.getBytes(StandardCharsets.UTF_8));
+        ret.getBuffer().flip();
+        return ret;
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testToByteArray() throws Exception {
+        var srcs = new PooledByteBuffer[]{pooled("hello "), pooled("world"), null};
+
+        var exchange = new HttpServerExchange();
+
+        Assert.assertEquals(11, BuffersUtils.remaining(srcs));
+
+        var content = BuffersUtils.toByteArray(exchange, srcs);
+
+        Assert.assertEquals(11, content.length);
+        Assert.assertEquals("hello world", new String(content, StandardCharsets.UTF_8));
+        Assert.assertEquals(11, BuffersUtils.copiedBytes(exchange));
+        Assert.assertEquals(1, BuffersUtils.copies(exchange));
+
+        // the pooled buffers can be read again
+        Assert.assertEquals("hello world", BuffersUtils.toString(exchange, srcs, StandardCharsets.UTF_8));
+        Assert.assertEquals(22, BuffersUtils.copiedBytes(exchange));
+        Assert.assertEquals(2, BuffersUtils.copies(exchange));
+
+        // the counters are per exchange
+        Assert.assertEquals(0, BuffersUtils.copiedBytes(new HttpServerExchange()));
+
+        var bb = BuffersUtils.toByteBuffer(srcs);
+
+        Assert.assertEquals(11, bb.remaining());
+        Assert.assertEquals(11, bb.capacity());
+    }
+}
@@ -0,0 +1,71 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-commons
+ * %%
+ * Copyright (C) 2019 - 2020 SoftInstigate
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.utils;
+
+import java.io.StringReader;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class CsvReaderTest {
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNextRecord() throws Exception {
+        var csv = "a,b,c\r\n"
+                + "1,\"x, y\",\"say \"\"hi\"\"\"\n"
+                + "2,\"multi\nline\",\n"
+                + "3";
+
+        var reader = new CsvReader(new StringReader(csv), ',');
+
+        Assert.assertEquals(List.of("a", "b", "c"), reader.nextRecord());
+        Assert.assertFalse(reader.isQuoted(0));
+
+        Assert.assertEquals(List.of("1", "x, y", "say \"hi\""), reader.nextRecord());
+        Assert.assertFalse(reader.isQuoted(0));
+        Assert.assertTrue(reader.isQuoted(1));
+        Assert.assertTrue(reader.isQuoted(2));
+
+        Assert.assertEquals(List.of("2", "multi\nline", ""), reader.nextRecord());
+        Assert.assertEquals(4, reader.getLineNumber());
+
+        Assert.assertEquals(List.of("3"), reader.nextRecord());
+        Assert.assertNull(reader.nextRecord());
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test(expected = java.io.IOException.class)
+    public void testUnterminatedQuote() throws Exception {
+        var reader = new CsvReader(new StringReader("1;\"open\n2;3"), ';');
+
+        reader.nextRecord();
+    }
+}
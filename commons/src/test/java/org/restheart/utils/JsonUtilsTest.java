@@ -20,6 +20,8 @@
 
 package org.restheart.utils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -29,6 +31,7 @@ import org.bson.BsonDouble;
 import org.bson.BsonNull;
 import org.bson.BsonString;
 import org.bson.BsonValue;
+import org.bson.json.JsonMode;
 import org.bson.types.ObjectId;
 import org.junit.After;
 import org.junit.AfterClass;
@@ -922,4 +925,34 @@ public class JsonUtilsTest {
                 JsonUtils.parse(
                         "{'n':{'$numberDouble':'11111111158873916063432424232349289023842309842039587209357329578573489573958734985753498573495743957349839'}}")));
     }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testStreamingToJson() throws Exception {
+        var values = new String[]{
+            "{'a': 1, 'b': 'a string with  spaces', 'c': {'$date': 1585152000000}, 'd': [1, 2.0, {'e': null}]}",
+            "[{'_id': {'$oid': '550c6e62c2e62b5640673e93'}, 'n': {'$numberLong': '5887391606'}}, {'r': {'$regex': 'a b', '$options': 'i'}}]",
+            "[1, 'two', {'three': 3}]",
+            "[]",
+            "{}"
+        };
+
+        var modes = new JsonMode[]{null, JsonMode.RELAXED, JsonMode.EXTENDED, JsonMode.SHELL};
+
+        for (var value : values) {
+            var bson = JsonUtils.parse(value);
+
+            for (var mode : modes) {
+                var out = new ByteArrayOutputStream();
+
+                JsonUtils.toJson(bson, mode, out);
+
+                Assert.assertEquals(JsonUtils.toJson(bson, mode),
+                        out.toString(StandardCharsets.UTF_8));
+            }
+        }
+    }
 }
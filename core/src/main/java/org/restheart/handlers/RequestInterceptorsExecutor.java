@@ -32,11 +32,7 @@ import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.InterceptPoint;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.HttpStatus;
-import org.restheart.utils.LambdaUtils;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -80,11 +76,15 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
     @Override
     @SuppressWarnings({"unchecked","rawtypes"})
     public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var handlingService = PluginUtils.handlingService(
+                PluginsRegistryImpl.getInstance(),
+                exchange);
+
         // if the request is handled by a service set to not execute interceptors
         // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(PluginsRegistryImpl.getInstance(), exchange);
-
-        if (Arrays.stream(vip).anyMatch(interceptPoint::equals)) {
+        if (handlingService != null
+                && Arrays.stream(PluginUtils.dontIntercept(handlingService))
+                        .anyMatch(interceptPoint::equals)) {
             next(exchange);
             return;
         }
@@ -92,10 +92,6 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
         Request request;
         Response response;
 
-        var handlingService = PluginUtils.handlingService(
-                PluginsRegistryImpl.getInstance(),
-                exchange);
-
         if (handlingService != null) {
             request = ServiceRequest.of(exchange, ServiceRequest.class);
             response = ServiceResponse.of(exchange, ServiceResponse.class);
@@ -104,56 +100,47 @@ public class RequestInterceptorsExecutor extends PipelinedHandler {
             response = ByteArrayProxyResponse.of(exchange);
         }
 
-        PluginsRegistryImpl
+        var interceptors = PluginsRegistryImpl
                 .getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept
-                // - requests handled by a Service when its request and response
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri
-                        -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null
-                && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedResponseType(handlingService))))
-                .filter(ri -> interceptPoint == interceptPoint(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                e);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    try {
-                        LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint);
-
-                        ri.handle(request, response);
-                    } catch (Exception ex) {
-                        LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                ex);
-                        Exchange.setInError(exchange);
-                        LambdaUtils.throwsSneakyException(ex);
-                    }
-                });
+                .getInterceptors(PluginUtils.pipelineInfo(exchange),
+                        interceptPoint, false);
+
+        for (var ri : interceptors) {
+            boolean resolved;
+
+            try {
+                resolved = ri.resolve(request, response);
+            } catch (Exception e) {
+                LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        e);
+
+                resolved = false;
+            }
+
+            if (!resolved) {
+                continue;
+            }
+
+            try {
+                LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint);
+
+                ri.handle(request, response);
+            } catch (Exception ex) {
+                LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        ex);
+                Exchange.setInError(exchange);
+                throw ex;
+            }
+        }
 
         // If an interceptor sets the response as errored
         // stop processing the request and send the response
@@ -40,6 +40,7 @@ import org.restheart.Bootstrapper;
 import org.restheart.Configuration;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.JsonProxyRequest;
+import org.restheart.utils.BuffersUtils;
 import static org.restheart.plugins.security.TokenManager.AUTH_TOKEN_HEADER;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -240,6 +241,10 @@ public class RequestLogger extends PipelinedHandler {
                         sb.append(" elapsed=").append(System.currentTimeMillis() - start).append("ms")
                                 .append(" contentLength=").append(exchange1.getResponseContentLength());
 
+                        if (BuffersUtils.copies(exchange1) > 0) {
+                            sb.append(" copiedBytes=").append(BuffersUtils.copiedBytes(exchange1));
+                        }
+
                         if (sc != null && sc.getAuthenticatedAccount() != null) {
                             sb.append(" ").append(sc.getAuthenticatedAccount().toString());
                         }
@@ -292,6 +297,8 @@ public class RequestLogger extends PipelinedHandler {
                         sb.append("\n");
 
                         sb.append("           elapsed=").append(System.currentTimeMillis() - start).append("ms\n");
+                        sb.append("       copiedBytes=").append(BuffersUtils.copiedBytes(exchange1))
+                                .append(" in ").append(BuffersUtils.copies(exchange1)).append(" copies\n");
                         sb.append("==============================================================");
                     }
 
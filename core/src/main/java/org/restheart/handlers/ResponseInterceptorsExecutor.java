@@ -30,14 +30,11 @@ import org.restheart.exchange.Response;
 import org.restheart.exchange.ServiceRequest;
 import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.Interceptor;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.plugins.Service;
 import org.restheart.utils.LambdaUtils;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
-import static org.restheart.utils.PluginUtils.requiresContent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -109,64 +106,42 @@ public class ResponseInterceptorsExecutor
             Response response) {
         // if the request is handled by a service set to not execute interceptors
         // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(
-                PluginsRegistryImpl.getInstance(), exchange);
-
-        if (Arrays.stream(vip).anyMatch(InterceptPoint.RESPONSE::equals)) {
+        if (handlingService != null
+                && Arrays.stream(PluginUtils.dontIntercept(handlingService))
+                        .anyMatch(InterceptPoint.RESPONSE::equals)) {
             return;
         }
 
         Exchange.setResponseInterceptorsExecuted(exchange);
-        PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(i -> interceptPoint(i.getInstance())
-                == InterceptPoint.RESPONSE)
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept
-                // - requests handled by a Service when its request and response
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedResponseType(handlingService))))
-                .filter(ri -> !this.filterRequiringContent || !requiresContent(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE,
-                                e);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
-                            ri.getClass().getSimpleName(),
-                            exchange.getRequestPath(),
-                            InterceptPoint.RESPONSE);
-
-                    try {
-                        ri.handle(request, response);
-                    } catch (Exception ex) {
-                        LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE,
-                                ex);
-
-                        Exchange.setInError(exchange);
-                        LambdaUtils.throwsSneakyException(ex);
-                    }
-                });
+
+        var interceptors = PluginsRegistryImpl.getInstance()
+                .getInterceptors(PluginUtils.pipelineInfo(exchange),
+                        InterceptPoint.RESPONSE,
+                        this.filterRequiringContent);
+
+        for (var ri : interceptors) {
+            if (!resolve(ri, exchange, request, response, InterceptPoint.RESPONSE)) {
+                continue;
+            }
+
+            LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
+                    ri.getClass().getSimpleName(),
+                    exchange.getRequestPath(),
+                    InterceptPoint.RESPONSE);
+
+            try {
+                ri.handle(request, response);
+            } catch (Exception ex) {
+                LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        InterceptPoint.RESPONSE,
+                        ex);
+
+                Exchange.setInError(exchange);
+                LambdaUtils.throwsSneakyException(ex);
+            }
+        }
     }
 
     @SuppressWarnings({"unchecked","rawtypes"})
@@ -176,65 +151,63 @@ public class ResponseInterceptorsExecutor
             Response response) {
         // if the request is handled by a service set to not execute interceptors
         // at this interceptPoint, skip interceptors execution
-        var vip = PluginUtils.dontIntercept(
-                PluginsRegistryImpl.getInstance(), exchange);
-
-        if (Arrays.stream(vip).anyMatch(InterceptPoint.RESPONSE_ASYNC::equals)) {
+        if (handlingService != null
+                && Arrays.stream(PluginUtils.dontIntercept(handlingService))
+                        .anyMatch(InterceptPoint.RESPONSE_ASYNC::equals)) {
             return;
         }
 
         Exchange.setResponseInterceptorsExecuted(exchange);
-        PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(i -> interceptPoint(
-                i.getInstance()) == InterceptPoint.RESPONSE_ASYNC)
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept 
-                // - requests handled by a Service when its request and response 
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response 
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && ri.responseType().equals(cachedResponseType(handlingService))))
-                .filter(ri -> !this.filterRequiringContent || !requiresContent(ri))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE_ASYNC);
-
-                        return false;
-                    }
-                })
-                .forEachOrdered(ri -> {
-                    exchange.getConnection().getWorker().execute(() -> {
-                        LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                InterceptPoint.RESPONSE_ASYNC);
-
-                        try {
-                            ri.handle(request, response);
-                        } catch (Exception ex) {
-                            LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
-                                    ri.getClass().getSimpleName(),
-                                    exchange.getRequestPath(),
-                                    InterceptPoint.RESPONSE_ASYNC,
-                                    ex);
-
-                            Exchange.setInError(exchange);
-                            LambdaUtils.throwsSneakyException(ex);
-                        }
-                    });
-                });
+
+        var interceptors = PluginsRegistryImpl.getInstance()
+                .getInterceptors(PluginUtils.pipelineInfo(exchange),
+                        InterceptPoint.RESPONSE_ASYNC,
+                        this.filterRequiringContent);
+
+        for (var ri : interceptors) {
+            if (!resolve(ri, exchange, request, response, InterceptPoint.RESPONSE_ASYNC)) {
+                continue;
+            }
+
+            exchange.getConnection().getWorker().execute(() -> {
+                LOGGER.debug("Executing interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        InterceptPoint.RESPONSE_ASYNC);
+
+                try {
+                    ri.handle(request, response);
+                } catch (Exception ex) {
+                    LOGGER.error("Error executing interceptor {} for {} on intercept point {}",
+                            ri.getClass().getSimpleName(),
+                            exchange.getRequestPath(),
+                            InterceptPoint.RESPONSE_ASYNC,
+                            ex);
+
+                    Exchange.setInError(exchange);
+                    LambdaUtils.throwsSneakyException(ex);
+                }
+            });
+        }
+    }
+
+    @SuppressWarnings({"unchecked","rawtypes"})
+    private static boolean resolve(Interceptor ri,
+            HttpServerExchange exchange,
+            Request request,
+            Response response,
+            InterceptPoint interceptPoint) {
+        try {
+            return ri.resolve(request, response);
+        } catch (Exception e) {
+            LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                    ri.getClass().getSimpleName(),
+                    exchange.getRequestPath(),
+                    interceptPoint,
+                    e);
+
+            return false;
+        }
     }
 
 }
@@ -22,10 +22,12 @@ package org.restheart.handlers;
 
 import io.undertow.server.HttpServerExchange;
 import java.nio.ByteBuffer;
+import org.restheart.exchange.BsonResponse;
 import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.PipelineInfo;
 import org.restheart.exchange.ServiceResponse;
 import org.restheart.plugins.PluginsRegistryImpl;
+import org.restheart.utils.PluginUtils;
 
 /**
  *
@@ -58,17 +60,18 @@ public class ResponseSender extends PipelinedHandler {
     @SuppressWarnings({"unchecked","rawtypes"})
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         var registry = PluginsRegistryImpl.getInstance();
-        var path = exchange.getRequestPath();
 
-        var pi = registry.getPipelineInfo(path);
+        var pi = PluginUtils.pipelineInfo(exchange);
+
+        if (pi == null) {
+            pi = registry.getPipelineInfo(exchange.getRequestPath());
+        }
 
         if (pi.getType() == PipelineInfo.PIPELINE_TYPE.SERVICE) {
-            var srv = registry.getServices().stream()
-                    .filter(s -> s.getName().equals(pi.getName()))
-                    .findAny();
+            var srv = registry.getService(pi.getName());
 
-            if (srv.isPresent()) {
-                var response = (ServiceResponse) srv.get().getInstance()
+            if (srv != null) {
+                var response = (ServiceResponse) srv.getInstance()
                         .response().apply(exchange);
 
                 if (response.getStatusCode() > 0) {
@@ -79,6 +82,15 @@ public class ResponseSender extends PipelinedHandler {
                 if (response.getCustomerSender() != null) {
                     // use the custom sender if it has been set
                     response.getCustomerSender().run();
+                } else if (response instanceof BsonResponse
+                        && !exchange.isInIoThread()) {
+                    // stream the json directly to the client
+                    // avoiding the intermediate String
+                    if (!exchange.isBlocking()) {
+                        exchange.startBlocking();
+                    }
+
+                    ((BsonResponse) response).writeContent(exchange.getOutputStream());
                 } else if (response.readContent() != null) {
                     // send the content via default exchange response sender
                     exchange.getResponseSender().send(response.readContent());
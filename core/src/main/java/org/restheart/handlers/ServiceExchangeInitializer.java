@@ -30,6 +30,7 @@ import org.restheart.exchange.Exchange;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.JsonUtils;
+import org.restheart.utils.PluginUtils;
 
 /**
  * Initializes the Request and the Response invoking requestInitializer() and
@@ -50,21 +51,22 @@ public class ServiceExchangeInitializer extends PipelinedHandler {
     @SuppressWarnings("unchecked")
     public void handleRequest(HttpServerExchange exchange) throws Exception {
         var registry = PluginsRegistryImpl.getInstance();
-        var path = exchange.getRequestPath();
 
-        var pi = registry.getPipelineInfo(path);
+        var pi = PluginUtils.pipelineInfo(exchange);
 
-        var srv = registry.getServices().stream()
-                .filter(s -> s.getName().equals(pi.getName()))
-                .findAny();
+        if (pi == null) {
+            pi = registry.getPipelineInfo(exchange.getRequestPath());
+        }
+
+        var srv = registry.getService(pi.getName());
 
-        if (srv.isPresent()) {
+        if (srv != null) {
             try {
-                srv.get().getInstance()
+                srv.getInstance()
                         .requestInitializer()
                         .accept(exchange);
 
-                srv.get().getInstance()
+                srv.getInstance()
                         .responseInitializer()
                         .accept(exchange);
 
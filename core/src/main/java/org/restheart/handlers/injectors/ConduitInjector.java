@@ -30,13 +30,11 @@ import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.handlers.ContentStreamSinkConduit;
 import org.restheart.handlers.ModifiableContentSinkConduit;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.plugins.InterceptPoint;
 import static org.restheart.plugins.InterceptPoint.RESPONSE;
 import static org.restheart.plugins.InterceptPoint.RESPONSE_ASYNC;
 import org.restheart.plugins.PluginsRegistryImpl;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
-import static org.restheart.utils.PluginUtils.requiresContent;
+import org.restheart.utils.PluginUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -88,31 +86,7 @@ public class ConduitInjector extends PipelinedHandler {
     private static void forceIdentityEncodingForInterceptors(
             HttpServerExchange exchange) {
 
-        if (PluginsRegistryImpl.getInstance()
-                .getInterceptors()
-                .stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                // IMPORTANT: An interceptor can intercept
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri -> cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                        && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(
-                                ByteArrayProxyRequest.of(exchange),
-                                ByteArrayProxyResponse.of(exchange));
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                e);
-
-                        return false;
-                    }
-                })
-                .anyMatch(ri -> requiresContent(ri))) {
+        if (requiresContent(exchange, InterceptPoint.values())) {
             var _before = exchange.getRequestHeaders()
                     .get(Headers.ACCEPT_ENCODING);
 
@@ -156,35 +130,7 @@ public class ConduitInjector extends PipelinedHandler {
                 MDC.setContextMap(mdcCtx);
             }
 
-            if (PluginsRegistryImpl.getInstance()
-                    .getInterceptors()
-                    .stream()
-                    .filter(ri -> ri.isEnabled())
-                    .map(ri -> ri.getInstance())
-                    .filter(ri -> interceptPoint(ri) == RESPONSE
-                    || interceptPoint(ri) == RESPONSE_ASYNC)
-                    // IMPORTANT: An interceptor can intercept
-                    // - request handled by a Proxy when its request and response
-                    //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                    .filter(ri -> cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                    && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                    .filter(ri -> {
-                        try {
-                            return ri.resolve(
-                                    ByteArrayProxyRequest.of(exchange),
-                                    ByteArrayProxyResponse.of(exchange));
-                        } catch (Exception e) {
-                            LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                    ri.getClass().getSimpleName(),
-                                    exchange.getRequestPath(),
-                                    interceptPoint(ri),
-                                    e);
-
-                            return false;
-                        }
-                    })
-                    .anyMatch(ri -> requiresContent(ri))) {
-
+            if (requiresContent(exchange, RESPONSE, RESPONSE_ASYNC)) {
                 var mcsc = new ModifiableContentSinkConduit(factory.create(),
                         cexchange);
                 cexchange.putAttachment(MCSC_KEY, mcsc);
@@ -200,4 +146,43 @@ public class ConduitInjector extends PipelinedHandler {
         next(exchange);
     }
 
+    /**
+     *
+     * @param exchange
+     * @param interceptPoints
+     * @return true if any interceptor resolving the request at the given
+     * intercept points requires the content
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static boolean requiresContent(HttpServerExchange exchange,
+            InterceptPoint... interceptPoints) {
+        var pi = PluginUtils.pipelineInfo(exchange);
+
+        for (var ip : interceptPoints) {
+            var interceptors = PluginsRegistryImpl.getInstance()
+                    .getInterceptors(pi, ip, false);
+
+            for (var ri : interceptors) {
+                if (!PluginUtils.requiresContent(ri)) {
+                    continue;
+                }
+
+                try {
+                    if (ri.resolve(
+                            ByteArrayProxyRequest.of(exchange),
+                            ByteArrayProxyResponse.of(exchange))) {
+                        return true;
+                    }
+                } catch (Exception e) {
+                    LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                            ri.getClass().getSimpleName(),
+                            exchange.getRequestPath(),
+                            ip,
+                            e);
+                }
+            }
+        }
+
+        return false;
+    }
 }
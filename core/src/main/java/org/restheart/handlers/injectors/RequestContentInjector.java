@@ -38,9 +38,6 @@ import static org.restheart.handlers.injectors.RequestContentInjector.Policy.ON_
 import org.restheart.plugins.InterceptPoint;
 import org.restheart.plugins.PluginsRegistryImpl;
 import org.restheart.utils.PluginUtils;
-import static org.restheart.utils.PluginUtils.cachedRequestType;
-import static org.restheart.utils.PluginUtils.cachedResponseType;
-import static org.restheart.utils.PluginUtils.interceptPoint;
 import static org.restheart.utils.PluginUtils.requiresContent;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -142,38 +139,30 @@ public class RequestContentInjector extends PipelinedHandler {
             response = ByteArrayProxyResponse.of(exchange);
         }
 
-        return PluginsRegistryImpl
+        var interceptors = PluginsRegistryImpl
                 .getInstance()
-                .getInterceptors().stream()
-                .filter(ri -> ri.isEnabled())
-                .map(ri -> ri.getInstance())
-                .filter(ri -> interceptPoint == interceptPoint(ri))
-                // IMPORTANT: An interceptor can intercept
-                // - requests handled by a Service when its request and response
-                //   types are equal to the ones declared by the Service
-                // - request handled by a Proxy when its request and response
-                //   are ByteArrayProxyRequest and ByteArrayProxyResponse
-                .filter(ri
-                        -> (handlingService == null
-                && cachedRequestType(ri).equals(ByteArrayProxyRequest.type())
-                && cachedResponseType(ri).equals(ByteArrayProxyResponse.type()))
-                || (handlingService != null
-                && cachedRequestType(ri).equals(cachedRequestType(handlingService))
-                && cachedResponseType(ri).equals(cachedRequestType(handlingService))))
-                .filter(ri -> {
-                    try {
-                        return ri.resolve(request, response);
-                    } catch (Exception e) {
-                        LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
-                                ri.getClass().getSimpleName(),
-                                exchange.getRequestPath(),
-                                interceptPoint,
-                                e);
-
-                        return false;
-                    }
-                })
-                .anyMatch(ri -> requiresContent(ri));
+                .getInterceptors(PluginUtils.pipelineInfo(exchange),
+                        interceptPoint, false);
+
+        for (var ri : interceptors) {
+            if (!requiresContent(ri)) {
+                continue;
+            }
+
+            try {
+                if (ri.resolve(request, response)) {
+                    return true;
+                }
+            } catch (Exception e) {
+                LOGGER.warn("Error resolving interceptor {} for {} on intercept point {}",
+                        ri.getClass().getSimpleName(),
+                        exchange.getRequestPath(),
+                        interceptPoint,
+                        e);
+            }
+        }
+
+        return false;
     }
 
     private void markInjected(HttpServerExchange exchange) {
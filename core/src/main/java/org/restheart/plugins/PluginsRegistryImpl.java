@@ -22,14 +22,22 @@ package org.restheart.plugins;
 
 import static io.undertow.Handlers.path;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.mongodb.MongoClient;
 
 import org.restheart.ConfigurationException;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ByteArrayProxyResponse;
 import org.restheart.exchange.PipelineInfo;
 import org.restheart.handlers.CORSHandler;
 import org.restheart.handlers.ConfigurableEncodingHandler;
@@ -55,6 +63,10 @@ import static org.restheart.plugins.InterceptPoint.REQUEST_AFTER_AUTH;
 import static org.restheart.plugins.InterceptPoint.REQUEST_BEFORE_AUTH;
 import static org.restheart.exchange.PipelineInfo.PIPELINE_TYPE.SERVICE;
 import static org.restheart.handlers.PipelinedHandler.pipe;
+import static org.restheart.utils.PluginUtils.cachedRequestType;
+import static org.restheart.utils.PluginUtils.cachedResponseType;
+import static org.restheart.utils.PluginUtils.interceptPoint;
+import static org.restheart.utils.PluginUtils.requiresContent;
 
 import io.undertow.predicate.Predicate;
 import io.undertow.server.handlers.PathHandler;
@@ -88,6 +100,9 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
     @SuppressWarnings("rawtypes")
     private Set<PluginRecord<Service>> services = new LinkedHashSet<>();
+    // index of services by name, allows to get the service handling a request in O(1)
+    @SuppressWarnings("rawtypes")
+    private final Map<String, PluginRecord<Service>> servicesByName = new ConcurrentHashMap<>();
     // keep track of service initialization, to allow initializers to add services 
     // before actual scannit. this is used for intance by PolyglotDeployer
     private boolean servicesInitialized = false;
@@ -97,6 +112,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @SuppressWarnings("rawtypes")
     private Set<PluginRecord<Interceptor>> interceptors;
 
+    // the interceptors chains compiled for each plugged pipeline
+    private final Map<PipelineInfo, InterceptorsChains> interceptorsChains = new ConcurrentHashMap<>();
+
+    // the interceptors chains of requests not handled by a plugged pipeline
+    private volatile InterceptorsChains defaultInterceptorsChains = null;
+
     private final Set<Predicate> globalSecurityPredicates = new LinkedHashSet<>();
 
     private PluginsRegistryImpl() {
@@ -210,7 +231,76 @@ public class PluginsRegistryImpl implements PluginsRegistry {
             this.interceptors.addAll(PluginsFactory.getInstance().interceptors());
         }
 
-        return this.interceptors;
+        return Collections.unmodifiableSet(this.interceptors);
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public synchronized void addInterceptor(PluginRecord<Interceptor> interceptor) {
+        getInterceptors();
+        this.interceptors.add(interceptor);
+        recompileInterceptorsChains();
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public synchronized void removeInterceptorIf(java.util.function.Predicate<PluginRecord<Interceptor>> filter) {
+        getInterceptors();
+
+        if (this.interceptors.removeIf(filter)) {
+            recompileInterceptorsChains();
+        }
+    }
+
+    /**
+     * Returns the enabled interceptors that can intercept requests handled by
+     * the pipeline at the given intercept point, in execution order.
+     *
+     * The returned arrays are compiled when the pipeline is plugged and
+     * recompiled when interceptors are added or removed, so that the caller
+     * only needs to invoke Interceptor.resolve() and Interceptor.handle()
+     *
+     * @param pi the PipelineInfo of the pipeline handling the request
+     * @param interceptPoint the intercept point
+     * @param excludeRequiringContent if true, the interceptors that require
+     * content are not included
+     * @return the candidate interceptors, never null. The returned array
+     * must not be modified
+     */
+    @SuppressWarnings("rawtypes")
+    public Interceptor[] getInterceptors(PipelineInfo pi,
+            InterceptPoint interceptPoint,
+            boolean excludeRequiringContent) {
+        var chains = pi == null
+                ? this.defaultInterceptorsChains
+                : this.interceptorsChains.get(pi);
+
+        if (chains == null) {
+            chains = cacheInterceptorsChains(pi);
+        }
+
+        return chains.get(interceptPoint, excludeRequiringContent);
+    }
+
+    /**
+     * compiles and caches the interceptors chains of a pipeline not plugged
+     * via plugPipeline() or of requests without PipelineInfo (pi == null);
+     * synchronized with recompileInterceptorsChains() so that a chain
+     * compiled before an interceptor is added or removed is never cached
+     *
+     * @param pi
+     * @return the interceptors chains
+     */
+    private synchronized InterceptorsChains cacheInterceptorsChains(PipelineInfo pi) {
+        if (pi == null) {
+            if (this.defaultInterceptorsChains == null) {
+                this.defaultInterceptorsChains = compileInterceptorsChains(null);
+            }
+
+            return this.defaultInterceptorsChains;
+        } else {
+            return this.interceptorsChains.computeIfAbsent(pi, this::compileInterceptorsChains);
+        }
     }
 
     /**
@@ -219,12 +309,34 @@ public class PluginsRegistryImpl implements PluginsRegistry {
     @Override
     @SuppressWarnings("rawtypes")
     public Set<PluginRecord<Service>> getServices() {
+        initServices();
+
+        return Collections.unmodifiableSet(this.services);
+    }
+
+    /**
+     * @param name the name of the service
+     * @return the service or null if no service with the given name is registered
+     */
+    @Override
+    @SuppressWarnings("rawtypes")
+    public PluginRecord<Service> getService(String name) {
+        initServices();
+
+        return name == null ? null : this.servicesByName.get(name);
+    }
+
+    private void initServices() {
         if (!servicesInitialized) {
-            this.services.addAll(PluginsFactory.getInstance().services());
+            PluginsFactory.getInstance().services().forEach(this::addService);
             this.servicesInitialized = true;
         }
+    }
 
-        return Collections.unmodifiableSet(this.services);
+    @SuppressWarnings("rawtypes")
+    private void addService(PluginRecord<Service> srv) {
+        this.services.add(srv);
+        this.servicesByName.put(srv.getName(), srv);
     }
 
     /**
@@ -254,6 +366,10 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
     @Override
     public void plugPipeline(String path, PipelinedHandler handler, PipelineInfo info) {
+        synchronized (this) {
+            this.interceptorsChains.put(info, compileInterceptorsChains(info));
+        }
+
         if (info.getUriMatchPolicy() == MATCH_POLICY.PREFIX) {
             ROOT_PATH_HANDLER.addPrefixPath(path, handler);
             PIPELINE_INFOS.addPrefixPath(path, info);
@@ -263,6 +379,86 @@ public class PluginsRegistryImpl implements PluginsRegistry {
         }
     }
 
+    private synchronized void recompileInterceptorsChains() {
+        this.interceptorsChains.replaceAll((pi, chains) -> compileInterceptorsChains(pi));
+        this.defaultInterceptorsChains = null;
+    }
+
+    /**
+     * @return a copy of the interceptors, taken under the lock that guards
+     * their modifications
+     */
+    @SuppressWarnings("rawtypes")
+    private synchronized List<PluginRecord<Interceptor>> interceptorsSnapshot() {
+        getInterceptors();
+        return new ArrayList<>(this.interceptors);
+    }
+
+    /**
+     * IMPORTANT: An interceptor can intercept
+     * - requests handled by a Service when its request and response
+     *   types are equal to the ones declared by the Service
+     * - request handled by a Proxy when its request and response
+     *   are ByteArrayProxyRequest and ByteArrayProxyResponse
+     *
+     * @param pi
+     * @return the interceptors chains of the pipeline
+     */
+    @SuppressWarnings("rawtypes")
+    private InterceptorsChains compileInterceptorsChains(PipelineInfo pi) {
+        Service handlingService = null;
+
+        if (pi != null && pi.getType() == SERVICE) {
+            var srv = getService(pi.getName());
+            handlingService = srv == null ? null : srv.getInstance();
+        }
+
+        var requestType = handlingService == null
+                ? ByteArrayProxyRequest.type()
+                : cachedRequestType(handlingService);
+
+        var responseType = handlingService == null
+                ? ByteArrayProxyResponse.type()
+                : cachedResponseType(handlingService);
+
+        var candidates = interceptorsSnapshot().stream()
+                .filter(ri -> ri.isEnabled())
+                .map(ri -> ri.getInstance())
+                .filter(ri -> cachedRequestType(ri).equals(requestType)
+                && cachedResponseType(ri).equals(responseType))
+                .toArray(Interceptor[]::new);
+
+        return new InterceptorsChains(candidates);
+    }
+
+    /**
+     * holds the candidate interceptors of a pipeline grouped by intercept point
+     */
+    @SuppressWarnings("rawtypes")
+    private static class InterceptorsChains {
+        private final Map<InterceptPoint, Interceptor[]> all = new EnumMap<>(InterceptPoint.class);
+        private final Map<InterceptPoint, Interceptor[]> notRequiringContent = new EnumMap<>(InterceptPoint.class);
+
+        InterceptorsChains(Interceptor[] candidates) {
+            for (var ip : InterceptPoint.values()) {
+                var chain = Arrays.stream(candidates)
+                        .filter(ri -> interceptPoint(ri) == ip)
+                        .toArray(Interceptor[]::new);
+
+                all.put(ip, chain);
+                notRequiringContent.put(ip, Arrays.stream(chain)
+                        .filter(ri -> !requiresContent(ri))
+                        .toArray(Interceptor[]::new));
+            }
+        }
+
+        Interceptor[] get(InterceptPoint ip, boolean excludeRequiringContent) {
+            return excludeRequiringContent
+                    ? notRequiringContent.get(ip)
+                    : all.get(ip);
+        }
+    }
+
     @Override
     public PipelineInfo getPipelineInfo(String path) {
         var m = PIPELINE_INFOS.match(path);
@@ -323,9 +519,12 @@ public class PluginsRegistryImpl implements PluginsRegistry {
                     new ResponseSender()
             );
 
-            plugPipeline(uri, _srv, new PipelineInfo(SERVICE, uri, mp, srv.getName()));
+            // add the service before plugging the pipeline
+            // since its interceptors chains are compiled on plugging
+            initServices();
+            addService(srv);
 
-            this.services.add(srv);
+            plugPipeline(uri, _srv, new PipelineInfo(SERVICE, uri, mp, srv.getName()));
     }
 
     /**
@@ -339,6 +538,11 @@ public class PluginsRegistryImpl implements PluginsRegistry {
 
         this.services.removeIf(s -> s.getName().equals(pi.getName()));
 
+        if (pi.getName() != null) {
+            this.servicesByName.remove(pi.getName());
+        }
+        this.interceptorsChains.remove(pi);
+
         if (mp == MATCH_POLICY.PREFIX) {
             ROOT_PATH_HANDLER.removePrefixPath(uri);
             PIPELINE_INFOS.removePrefixPath(uri);
@@ -23,9 +23,13 @@ package org.restheart.security.handlers;
 import io.undertow.security.api.SecurityContext;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.util.concurrent.RejectedExecutionException;
 import org.restheart.handlers.CORSHandler;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.utils.HttpStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * This is the PipelinedHandler version of
@@ -37,6 +41,7 @@ import org.restheart.utils.HttpStatus;
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class AuthenticationCallHandler extends PipelinedHandler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AuthenticationCallHandler.class);
 
     public AuthenticationCallHandler(final PipelinedHandler next) {
         super(next);
@@ -46,6 +51,10 @@ public class AuthenticationCallHandler extends PipelinedHandler {
      * Only allow the request through if successfully authenticated or if
      * authentication is not required.
      *
+     * If an authenticator cannot verify the credentials because it is
+     * overloaded, it throws RejectedExecutionException and the response is
+     * 429 Too Many Requests.
+     *
      * @throws java.lang.Exception
      * See
      * io.undertow.server.HttpHandler#handleRequest(io.undertow.server.HttpServerExchange)
@@ -58,9 +67,23 @@ public class AuthenticationCallHandler extends PipelinedHandler {
         }
         SecurityContext rcontext = exchange.getSecurityContext();
 
+        boolean authenticated;
+
+        try {
+            authenticated = rcontext.authenticate();
+        } catch (RejectedExecutionException ree) {
+            // an authenticator is overloaded and cannot verify the credentials
+            LOGGER.warn("Authentication rejected: {}", ree.getMessage());
+            CORSHandler.injectAccessControlAllowHeaders(exchange);
+            exchange.getResponseHeaders().put(Headers.RETRY_AFTER, 1);
+            exchange.setStatusCode(HttpStatus.SC_TOO_MANY_REQUESTS);
+            exchange.endExchange();
+            return;
+        }
+
         // 1 call authenticate that performs authentication on the request. 
         // 2 make sure that, only if authentication is required, than the request is authenticated
-        if (rcontext.authenticate()
+        if (authenticated
                 && (!rcontext.isAuthenticationRequired()
                 || rcontext.isAuthenticated())) {
             if (!exchange.isComplete()) {
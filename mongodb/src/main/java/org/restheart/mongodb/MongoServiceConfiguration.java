@@ -73,6 +73,8 @@ public class MongoServiceConfiguration {
     private final Map<String, Map<String, Object>> pluginsArgs;
     private final boolean localCacheEnabled;
     private final long localCacheTtl;
+    private final long localCacheSize;
+    private final boolean localCacheInvalidationStream;
     private final boolean schemaCacheEnabled;
     private final long schemaCacheTtl;
     private final int requestsLimit;
@@ -90,6 +92,13 @@ public class MongoServiceConfiguration {
     private final long aggregationTimeLimit;
     private final boolean aggregationCheckOperators;
     private final int cursorBatchSize;
+    private final int bulkWriteBatchSize;
+    private final int changeStreamsQueueSize;
+    private final int changeStreamsWorkers;
+    private final SLOW_CONSUMER_POLICY changeStreamsSlowConsumerPolicy;
+    private final int gridfsDownloadPrefetchChunks;
+    private final boolean gridfsStreamingUpload;
+    private final int jsonSchemaParallelThreshold;
     private final int defaultPagesize;
     private final int maxPagesize;
     private final METRICS_GATHERING_LEVEL metricsGatheringLevel;
@@ -234,6 +243,8 @@ public class MongoServiceConfiguration {
 
         localCacheEnabled = getAsBooleanOrDefault(conf, LOCAL_CACHE_ENABLED_KEY, true);
         localCacheTtl = getAsLongOrDefault(conf, LOCAL_CACHE_TTL_KEY, (long) 1000);
+        localCacheSize = getAsLongOrDefault(conf, LOCAL_CACHE_SIZE_KEY, (long) 1000);
+        localCacheInvalidationStream = getAsBooleanOrDefault(conf, LOCAL_CACHE_INVALIDATION_STREAM_KEY, false);
 
         schemaCacheEnabled = getAsBooleanOrDefault(conf, SCHEMA_CACHE_ENABLED_KEY, true);
         schemaCacheTtl = getAsLongOrDefault(conf, SCHEMA_CACHE_TTL_KEY, (long) 1000);
@@ -300,6 +311,29 @@ public class MongoServiceConfiguration {
 
         cursorBatchSize = getAsIntegerOrDefault(conf, CURSOR_BATCH_SIZE_KEY, DEFAULT_CURSOR_BATCH_SIZE);
 
+        bulkWriteBatchSize = getAsIntegerOrDefault(conf, BULK_WRITE_BATCH_SIZE_KEY, DEFAULT_BULK_WRITE_BATCH_SIZE);
+
+        changeStreamsQueueSize = getAsIntegerOrDefault(conf, CHANGE_STREAMS_QUEUE_SIZE_KEY, DEFAULT_CHANGE_STREAMS_QUEUE_SIZE);
+
+        changeStreamsWorkers = getAsIntegerOrDefault(conf, CHANGE_STREAMS_WORKERS_KEY, DEFAULT_CHANGE_STREAMS_WORKERS);
+
+        {
+            SLOW_CONSUMER_POLICY policy;
+            try {
+                String value = getAsStringOrDefault(conf, CHANGE_STREAMS_SLOW_CONSUMER_POLICY_KEY, "DROP");
+                policy = SLOW_CONSUMER_POLICY.valueOf(value.toUpperCase(Locale.getDefault()));
+            } catch (IllegalArgumentException iae) {
+                policy = SLOW_CONSUMER_POLICY.DROP;
+            }
+            changeStreamsSlowConsumerPolicy = policy;
+        }
+
+        gridfsDownloadPrefetchChunks = getAsIntegerOrDefault(conf, GRIDFS_DOWNLOAD_PREFETCH_CHUNKS_KEY, DEFAULT_GRIDFS_DOWNLOAD_PREFETCH_CHUNKS);
+
+        gridfsStreamingUpload = getAsBooleanOrDefault(conf, GRIDFS_STREAMING_UPLOAD_KEY, false);
+
+        jsonSchemaParallelThreshold = getAsIntegerOrDefault(conf, JSON_SCHEMA_PARALLEL_THRESHOLD_KEY, 0);
+
         defaultPagesize = getAsIntegerOrDefault(conf, DEFAULT_PAGESIZE_KEY, DEFAULT_DEFAULT_PAGESIZE);
 
         maxPagesize = getAsIntegerOrDefault(conf, MAX_PAGESIZE_KEY, DEFAULT_MAX_PAGESIZE);
@@ -321,7 +355,8 @@ public class MongoServiceConfiguration {
         return "Configuration{" + "silent=" + silent + ", instanceBaseURL=" + instanceBaseURL
                 + ", defaultRepresentationFromat=" + defaultRepresentationFormat + ", mongoUri=" + mongoUri
                 + ", mongoMounts=" + mongoMounts + ", pluginsArgs=" + getPluginsArgs() + ", localCacheEnabled="
-                + localCacheEnabled + ", localCacheTtl=" + localCacheTtl + ", schemaCacheEnabled=" + schemaCacheEnabled
+                + localCacheEnabled + ", localCacheTtl=" + localCacheTtl + ", localCacheSize=" + localCacheSize
+                + ", localCacheInvalidationStream=" + localCacheInvalidationStream + ", schemaCacheEnabled=" + schemaCacheEnabled
                 + ", schemaCacheTtl=" + schemaCacheTtl + ", requestsLimit=" + requestsLimit + ", metricsGatheringLevel="
                 + metricsGatheringLevel + ", eagerPoolSize=" + eagerPoolSize + ", eagerLinearSliceWidht="
                 + eagerLinearSliceWidht + ", eagerLinearSliceDelta=" + eagerLinearSliceDelta
@@ -330,7 +365,13 @@ public class MongoServiceConfiguration {
                 + dbEtagCheckPolicy + ", collEtagCheckPolicy=" + collEtagCheckPolicy + ", docEtagCheckPolicy="
                 + docEtagCheckPolicy + ", connectionOptions=" + connectionOptions + ", queryTimeLimit=" + queryTimeLimit
                 + ", aggregationTimeLimit=" + aggregationTimeLimit + ", aggregationCheckOperators="
-                + aggregationCheckOperators + ", cursorBatchSize=" + cursorBatchSize + ", defaultPagesize="
+                + aggregationCheckOperators + ", cursorBatchSize=" + cursorBatchSize + ", bulkWriteBatchSize="
+                + bulkWriteBatchSize + ", changeStreamsQueueSize=" + changeStreamsQueueSize
+                + ", changeStreamsWorkers=" + changeStreamsWorkers + ", changeStreamsSlowConsumerPolicy="
+                + changeStreamsSlowConsumerPolicy + ", gridfsDownloadPrefetchChunks="
+                + gridfsDownloadPrefetchChunks + ", gridfsStreamingUpload="
+                + gridfsStreamingUpload + ", jsonSchemaParallelThreshold="
+                + jsonSchemaParallelThreshold + ", defaultPagesize="
                 + defaultPagesize + ", maxPagesize=" + maxPagesize + ", configurationFileMap=" + configurationFileMap
                 + '}';
     }
@@ -740,6 +781,20 @@ public class MongoServiceConfiguration {
         return localCacheTtl;
     }
 
+    /**
+     * @return the localCacheSize
+     */
+    public long getLocalCacheSize() {
+        return localCacheSize;
+    }
+
+    /**
+     * @return the localCacheInvalidationStream
+     */
+    public boolean isLocalCacheInvalidationStream() {
+        return localCacheInvalidationStream;
+    }
+
     /**
      * @return the requestsLimit
      */
@@ -894,6 +949,55 @@ public class MongoServiceConfiguration {
         return cursorBatchSize;
     }
 
+    /**
+     * @return the bulkWriteBatchSize
+     */
+    public int getBulkWriteBatchSize() {
+        return bulkWriteBatchSize;
+    }
+
+    /**
+     * @return the changeStreamsQueueSize
+     */
+    public int getChangeStreamsQueueSize() {
+        return changeStreamsQueueSize;
+    }
+
+    /**
+     * @return the changeStreamsWorkers
+     */
+    public int getChangeStreamsWorkers() {
+        return changeStreamsWorkers;
+    }
+
+    /**
+     * @return the changeStreamsSlowConsumerPolicy
+     */
+    public SLOW_CONSUMER_POLICY getChangeStreamsSlowConsumerPolicy() {
+        return changeStreamsSlowConsumerPolicy;
+    }
+
+    /**
+     * @return the gridfsDownloadPrefetchChunks
+     */
+    public int getGridfsDownloadPrefetchChunks() {
+        return gridfsDownloadPrefetchChunks;
+    }
+
+    /**
+     * @return the gridfsStreamingUpload
+     */
+    public boolean isGridfsStreamingUpload() {
+        return gridfsStreamingUpload;
+    }
+
+    /**
+     * @return the jsonSchemaParallelThreshold
+     */
+    public int getJsonSchemaParallelThreshold() {
+        return jsonSchemaParallelThreshold;
+    }
+
     /**
      * @return the maxPagesize
      */
@@ -948,4 +1052,19 @@ public class MongoServiceConfiguration {
          */
         COLLECTION
     }
+
+    /**
+     * what to do when the queue of change stream notifications of a
+     * WebSocket session is full
+     */
+    public enum SLOW_CONSUMER_POLICY {
+        /**
+         * drop the notification
+         */
+        DROP,
+        /**
+         * close the WebSocket connection
+         */
+        DISCONNECT
+    }
 }
@@ -77,6 +77,29 @@ public interface MongoServiceConfigurationKeys {
      * default value for cursor batch size
      */
     public static final int DEFAULT_CURSOR_BATCH_SIZE = 1000;
+
+    /**
+     * default value for bulk write batch size
+     */
+    public static final int DEFAULT_BULK_WRITE_BATCH_SIZE = 1000;
+
+    /**
+     * default value for the max number of change stream notifications queued
+     * for each WebSocket session
+     */
+    public static final int DEFAULT_CHANGE_STREAMS_QUEUE_SIZE = 100;
+
+    /**
+     * default value for the number of threads that send change stream
+     * notifications
+     */
+    public static final int DEFAULT_CHANGE_STREAMS_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * default value for the number of GridFS chunks read ahead when
+     * downloading a file
+     */
+    public static final int DEFAULT_GRIDFS_DOWNLOAD_PREFETCH_CHUNKS = 4;
     
     /**
      * the key for the plugins-args property.
@@ -93,6 +116,16 @@ public interface MongoServiceConfigurationKeys {
      */
     public static final String LOCAL_CACHE_TTL_KEY = "local-cache-ttl";
 
+    /**
+     * the key for the local-cache-size property.
+     */
+    public static final String LOCAL_CACHE_SIZE_KEY = "local-cache-size";
+
+    /**
+     * the key for the local-cache-invalidation-stream property.
+     */
+    public static final String LOCAL_CACHE_INVALIDATION_STREAM_KEY = "local-cache-invalidation-stream";
+
     /**
      * the key for the schema-cache-enabled property.
      */
@@ -238,4 +271,46 @@ public interface MongoServiceConfigurationKeys {
      * The key for specifying the cursor batch size
      */
     public static final String CURSOR_BATCH_SIZE_KEY = "cursor-batch-size";
+
+    /**
+     * The key for specifying the number of documents written with a single
+     * bulkWrite when streaming NDJSON content
+     */
+    public static final String BULK_WRITE_BATCH_SIZE_KEY = "bulk-write-batch-size";
+
+    /**
+     * The key for specifying the max number of change stream notifications
+     * queued for each WebSocket session
+     */
+    public static final String CHANGE_STREAMS_QUEUE_SIZE_KEY = "change-streams-queue-size";
+
+    /**
+     * The key for specifying the number of threads that send change stream
+     * notifications
+     */
+    public static final String CHANGE_STREAMS_WORKERS_KEY = "change-streams-workers";
+
+    /**
+     * The key for specifying what to do when the queue of a WebSocket session
+     * is full, either DROP or DISCONNECT
+     */
+    public static final String CHANGE_STREAMS_SLOW_CONSUMER_POLICY_KEY = "change-streams-slow-consumer-policy";
+
+    /**
+     * The key for specifying the number of GridFS chunks read ahead when
+     * downloading a file, 0 to use the blocking download
+     */
+    public static final String GRIDFS_DOWNLOAD_PREFETCH_CHUNKS_KEY = "gridfs-download-prefetch-chunks";
+
+    /**
+     * The key for enabling the streaming of multipart uploads to GridFS,
+     * without spooling the file to a temporary file
+     */
+    public static final String GRIDFS_STREAMING_UPLOAD_KEY = "gridfs-streaming-upload";
+
+    /**
+     * The key for specifying the min number of documents of a bulk request
+     * that are validated in parallel against the json schema, 0 to disable
+     */
+    public static final String JSON_SCHEMA_PARALLEL_THRESHOLD_KEY = "json-schema-parallel-threshold";
 }
@@ -23,6 +23,8 @@ package org.restheart.mongodb;
 import java.util.Map;
 import static org.restheart.mongodb.MongoServiceConfigurationKeys.PLUGINS_ARGS_KEY;
 import org.restheart.mongodb.db.MongoClientSingleton;
+import org.restheart.mongodb.db.MongoReactiveClientSingleton;
+import org.restheart.mongodb.interceptors.MetadataCachesInvalidator;
 import org.restheart.mongodb.interceptors.MetadataCachesSingleton;
 import org.restheart.plugins.ConfigurationScope;
 import org.restheart.plugins.InitPoint;
@@ -71,6 +73,24 @@ public class MongoServiceInitializer implements Initializer {
 
         // force first connection to MongoDb
         MongoClientSingleton.getInstance();
+
+        // the reactive client is used to download GridFS files
+        // it is created on first usage
+        if (MongoServiceConfiguration.get().getGridfsDownloadPrefetchChunks() > 0
+                && !MongoReactiveClientSingleton.isInitialized()) {
+            MongoReactiveClientSingleton.init(MongoServiceConfiguration.get().getMongoUri());
+        }
+
+        // invalidate the cached db and collection properties
+        // as soon as they change, also on other nodes
+        if (MongoServiceConfiguration.get().isLocalCacheEnabled()
+                && MongoServiceConfiguration.get().isLocalCacheInvalidationStream()) {
+            if (!MongoReactiveClientSingleton.isInitialized()) {
+                MongoReactiveClientSingleton.init(MongoServiceConfiguration.get().getMongoUri());
+            }
+
+            MetadataCachesInvalidator.start();
+        }
     }
 
     private boolean isMongoEnabled(Map<String, Object> confArgs) {
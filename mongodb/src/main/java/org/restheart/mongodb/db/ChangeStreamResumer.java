@@ -0,0 +1,180 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import org.bson.BsonDocument;
+
+/**
+ * Tracks the state needed to reopen a change stream after an error: the
+ * resume token of the last notification and the exponential backoff of the
+ * retries.
+ *
+ * A subscriber must not be subscribed more than once, so each attempt uses a
+ * new subscriber; the subscribers of the same stream share the same
+ * ChangeStreamResumer.
+ *
+ * The errors that follow each other without notifications in between, and
+ * before the stream has been open for MAX_RETRY_DELAY, are consecutive
+ * failures; after MAX_FAILURES of them the stream is not retried, since the
+ * error is likely permanent, e.g. an invalid stage or missing privileges.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamResumer {
+
+    /**
+     * what to do after an error
+     */
+    public enum Action {
+        /**
+         * reopen the stream after the resume token, or from now if there is
+         * none
+         */
+        RESUME,
+        /**
+         * the resume token is no longer in the oplog and has been discarded;
+         * reopen the stream from now, some changes might have been missed
+         */
+        RESTART,
+        /**
+         * do not reopen the stream
+         */
+        STOP
+    }
+
+    // error codes of resume tokens no longer in the oplog
+    static final int CHANGE_STREAM_FATAL_ERROR = 280;
+    static final int CHANGE_STREAM_HISTORY_LOST = 286;
+
+    // error code of change streams on standalone servers
+    static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+    static final long MIN_RETRY_DELAY = 500;
+    static final long MAX_RETRY_DELAY = 30_000;
+
+    static final int MAX_FAILURES = 10;
+
+    private volatile BsonDocument resumeToken;
+    private volatile long retryDelay = MIN_RETRY_DELAY;
+    private volatile int failures = 0;
+    private volatile long openedAt = 0;
+
+    /**
+     * @param resumeToken the resume token to open the stream after, can be
+     * null
+     */
+    public ChangeStreamResumer(BsonDocument resumeToken) {
+        this.resumeToken = resumeToken;
+    }
+
+    /**
+     * @return the resume token of the last notification, null if the stream
+     * must be opened from now
+     */
+    public BsonDocument getResumeToken() {
+        return resumeToken;
+    }
+
+    /**
+     * @return the delay of the next retry in msecs
+     */
+    public long getRetryDelay() {
+        return retryDelay;
+    }
+
+    /**
+     * to be called when the stream is opened
+     */
+    public void opened() {
+        this.openedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * to be called on each notification, tracks its resume token and resets
+     * the backoff
+     *
+     * @param resumeToken the resume token of the notification
+     */
+    public void notified(BsonDocument resumeToken) {
+        if (resumeToken != null) {
+            this.resumeToken = resumeToken;
+        }
+
+        this.retryDelay = MIN_RETRY_DELAY;
+        this.failures = 0;
+    }
+
+    /**
+     * @param t the error of the stream
+     * @return the action to take
+     */
+    public Action failed(Throwable t) {
+        var code = t instanceof MongoException
+                ? ((MongoException) t).getCode()
+                : -1;
+
+        if (code == CHANGE_STREAM_NOT_SUPPORTED) {
+            return Action.STOP;
+        }
+
+        // the stream had been working
+        if (System.currentTimeMillis() - openedAt > MAX_RETRY_DELAY) {
+            this.retryDelay = MIN_RETRY_DELAY;
+            this.failures = 0;
+        }
+
+        if (++this.failures > MAX_FAILURES) {
+            return Action.STOP;
+        }
+
+        if (code == CHANGE_STREAM_HISTORY_LOST || code == CHANGE_STREAM_FATAL_ERROR) {
+            this.resumeToken = null;
+            return Action.RESTART;
+        } else {
+            return Action.RESUME;
+        }
+    }
+
+    /**
+     * executes reopen after the retry delay, that is doubled up to
+     * MAX_RETRY_DELAY
+     *
+     * @param reopen opens the stream with a new subscriber
+     * @param onError handles the errors thrown by reopen
+     */
+    public void retry(Runnable reopen, Consumer<Throwable> onError) {
+        var delay = this.retryDelay;
+        this.retryDelay = Math.min(delay * 2, MAX_RETRY_DELAY);
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS)
+                .execute(() -> {
+                    try {
+                        reopen.run();
+                    } catch (Throwable t) {
+                        onError.accept(t);
+                    }
+                });
+    }
+}
@@ -27,6 +27,7 @@ import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
 import static com.mongodb.client.model.Filters.eq;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import org.bson.BsonArray;
@@ -40,6 +41,7 @@ import org.bson.types.ObjectId;
 import static org.restheart.exchange.ExchangeKeys.COLL_META_DOCID_PREFIX;
 import org.restheart.exchange.ExchangeKeys.EAGER_CURSOR_ALLOCATION_POLICY;
 import org.restheart.exchange.ExchangeKeys.WRITE_MODE;
+import org.restheart.exchange.IllegalQueryParamenterException;
 
 import static org.restheart.exchange.ExchangeKeys.META_COLLNAME;
 import org.restheart.exchange.OperationResult;
@@ -191,8 +193,8 @@ class CollectionDAO {
                             coll,
                             sortBy,
                             filters,
-                            hint,
                             keys,
+                            hint,
                             toskip,
                             0),
                     eager);
@@ -249,12 +251,70 @@ class CollectionDAO {
         // the pool is populated here because, skipping with cursor.next() is heavy operation
         // and we want to minimize the chances that pool cursors are allocated in parallel
         CursorPool.getInstance().populateCache(
-                new CursorPoolEntryKey(cs, coll, sortBy, filters, hint, keys, toskip, 0),
+                new CursorPoolEntryKey(cs, coll, sortBy, filters, keys, hint, toskip, 0),
                 eager);
 
         return ret;
     }
 
+    /**
+     * returns the page of documents following the one identified by the
+     * continuation token, using a range filter on the sort keys rather than
+     * skipping documents (keyset pagination). The CursorPool is not involved.
+     *
+     * @param cs the client session
+     * @param coll
+     * @param pagesize
+     * @param sortBy
+     * @param filters
+     * @param hint
+     * @param keys
+     * @param after the continuation token, empty for the first page
+     * @return
+     * @throws JsonParseException
+     * @throws IllegalQueryParamenterException if the continuation token is
+     * invalid
+     */
+    BsonArray getCollectionDataAfter(
+            final ClientSession cs,
+            final MongoCollection<BsonDocument> coll,
+            final int pagesize,
+            final BsonDocument sortBy,
+            final BsonDocument filters,
+            final BsonDocument hint,
+            final BsonDocument keys,
+            final String after)
+            throws JsonParseException, IllegalQueryParamenterException {
+        var ret = new BsonArray();
+
+        var sort = KeysetPagination.sort(sortBy);
+
+        BsonDocument _filters = filters;
+
+        if (after != null && !after.isEmpty()) {
+            var range = KeysetPagination.rangeFilter(sort,
+                    KeysetPagination.parseToken(after, sort));
+
+            _filters = filters == null || filters.isEmpty()
+                    ? range
+                    : new BsonDocument("$and",
+                            new BsonArray(List.of(filters, range)));
+        }
+
+        var cursor = getFindIterable(cs, coll, sort, _filters, hint,
+                KeysetPagination.projection(keys, sort));
+
+        cursor.limit(pagesize);
+
+        try (var mc = cursor.iterator()) {
+            while (mc.hasNext()) {
+                ret.add(mc.next());
+            }
+        }
+
+        return ret;
+    }
+
     /**
      * Returns the collection properties document.
      *
@@ -23,16 +23,17 @@ package org.restheart.mongodb.db;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.mongodb.client.FindIterable;
 import static java.lang.Thread.MIN_PRIORITY;
+import com.mongodb.MongoNamespace;
 import java.util.Comparator;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.TreeMap;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import org.bson.BsonDocument;
 import static org.fusesource.jansi.Ansi.Color.GREEN;
@@ -110,13 +111,22 @@ public class CursorPool {
     private final Cache<CursorPoolEntryKey, FindIterable<BsonDocument>> cache;
     private final LoadingCache<CursorPoolEntryKey, Long> collSizes;
 
+    // index of the cursors in the pool by query shape, ordered by skips
+    private final ConcurrentHashMap<QueryShape, ConcurrentSkipListSet<CursorPoolEntryKey>> index
+            = new ConcurrentHashMap<>();
+
+    private static final Comparator<CursorPoolEntryKey> BY_SKIPS
+            = Comparator.comparingInt(CursorPoolEntryKey::getSkipped)
+                    .thenComparingLong(CursorPoolEntryKey::getCursorId);
+
     private CursorPool(DatabaseImpl dbsDAO) {
         this.dbsDAO = dbsDAO;
 
         cache = CacheFactory.createLocalCache(
                 POOL_SIZE,
                 Cache.EXPIRE_POLICY.AFTER_READ,
-                TTL);
+                TTL,
+                entry -> removeFromIndex(entry.getKey()));
 
         collSizes = CacheFactory.createLocalLoadingCache(100,
                 org.restheart.cache.Cache.EXPIRE_POLICY.AFTER_WRITE,
@@ -150,7 +160,7 @@ public class CursorPool {
      * @param allocationPolicy
      * @return
      */
-    public synchronized SkippedFindIterable get(
+    public SkippedFindIterable get(
             CursorPoolEntryKey key,
             EAGER_CURSOR_ALLOCATION_POLICY allocationPolicy) {
         if (key.getSkipped() < SKIP_SLICE_LINEAR_WIDTH) {
@@ -161,43 +171,77 @@ public class CursorPool {
             return null;
         }
 
-        // return the dbcursor with the closest skips to the request
-        Optional<CursorPoolEntryKey> _bestKey = cache.asMap().keySet().stream()
-                .filter(cursorsPoolFilterGte(key))
-                .sorted(Comparator.comparingInt(CursorPoolEntryKey::getSkipped).reversed())
-                .findFirst();
-
-        SkippedFindIterable ret;
-
-        if (_bestKey.isPresent()) {
-            Optional<FindIterable<BsonDocument>> _dbcur
-                    = cache.get(_bestKey.get());
-
-            if (_dbcur != null && _dbcur.isPresent()) {
-                ret = new SkippedFindIterable(
-                        _dbcur.get(),
-                        _bestKey.get().getSkipped());
-                cache.invalidate(_bestKey.get());
-
-                LOGGER.debug("{} cursor in pool. id {}, saving {} skips",
-                        ansi().fg(GREEN).bold().a("found").reset().toString(),
-                        _bestKey.get().getCursorId(),
-                        key.getSkipped(),
-                        _bestKey.get().getSkipped());
-            } else {
-                ret = null;
-
-                LOGGER.debug("{} cursor in pool.",
-                        ansi().fg(RED).bold().a("no").reset().toString());
+        var cursors = index.get(new QueryShape(key));
+
+        if (cursors != null) {
+            // the cursor with the closest skips to the request
+            var candidate = cursors.floor(probe(key.getSkipped(), Long.MAX_VALUE));
+
+            while (candidate != null
+                    && key.getSkipped() - candidate.getSkipped()
+                    <= MIN_SKIP_DISTANCE_PERCENTAGE * key.getSkipped()) {
+                // removing the cursor from the index claims it,
+                // a cursor is never reused by two requests
+                if (cursors.remove(candidate)) {
+                    var _dbcur = cache.get(candidate);
+                    cache.invalidate(candidate);
+
+                    if (_dbcur != null && _dbcur.isPresent()) {
+                        LOGGER.debug("{} cursor in pool. id {}, saving {} skips",
+                                ansi().fg(GREEN).bold().a("found").reset().toString(),
+                                candidate.getCursorId(),
+                                candidate.getSkipped());
+
+                        return new SkippedFindIterable(
+                                _dbcur.get(),
+                                candidate.getSkipped());
+                    }
+                }
+
+                candidate = cursors.lower(candidate);
             }
-        } else {
-            ret = null;
+        }
+
+        LOGGER.debug(ansi().fg(RED).bold().a("no").reset().toString()
+                + " cursor in pool.");
+
+        return null;
+    }
+
+    private void put(CursorPoolEntryKey key, FindIterable<BsonDocument> cursor) {
+        // add to the index before caching, so that the removal listener
+        // always finds the key when the entry gets evicted
+        index.compute(new QueryShape(key), (shape, cursors) -> {
+            var ret = cursors == null
+                    ? new ConcurrentSkipListSet<>(BY_SKIPS)
+                    : cursors;
+
+            ret.add(key);
+
+            return ret;
+        });
 
-            LOGGER.debug(ansi().fg(RED).bold().a("no").reset().toString()
-                    + " cursor in pool.");
+        cache.put(key, cursor);
+    }
+
+    private void removeFromIndex(CursorPoolEntryKey key) {
+        if (key == null) {
+            return;
         }
 
-        return ret;
+        index.computeIfPresent(new QueryShape(key), (shape, cursors) -> {
+            cursors.remove(key);
+            return cursors.isEmpty() ? null : cursors;
+        });
+    }
+
+    /**
+     * @return a key to look up the index, since the index is only ordered
+     * by skipped and cursorId
+     */
+    private static CursorPoolEntryKey probe(int skipped, long cursorId) {
+        return new CursorPoolEntryKey(null, null, null, null, null, null,
+                skipped, cursorId);
     }
 
     void populateCache(
@@ -262,12 +306,12 @@ public class CursorPool {
                                 key.getCollection(),
                                 key.getSort(),
                                 key.getFilter(),
-                                key.getHint(),
                                 key.getKeys(),
+                                key.getHint(),
                                 sliceSkips,
                                 System.nanoTime());
 
-                        cache.put(newkey, cursor);
+                        put(newkey, cursor);
 
                         LOGGER.debug("{} cursor in pool: {}",
                                 ansi().fg(YELLOW).bold().a("new").reset()
@@ -307,7 +351,15 @@ public class CursorPool {
                 for (int slice = 1; slice < slices; slice++) {
                     int sliceSkips = slice * sliceWidht;
 
-                    CursorPoolEntryKey sliceKey = new CursorPoolEntryKey(key);
+                    CursorPoolEntryKey sliceKey = new CursorPoolEntryKey(
+                            key.getSession(),
+                            key.getCollection(),
+                            key.getSort(),
+                            key.getFilter(),
+                            key.getKeys(),
+                            key.getHint(),
+                            sliceSkips,
+                            -1);
 
                     LOGGER.debug("{} cursor in pool: {}",
                             ansi().fg(YELLOW).bold().a("new").reset()
@@ -334,11 +386,12 @@ public class CursorPool {
                                 key.getCollection(),
                                 key.getSort(),
                                 key.getFilter(),
-                                key.getHint(),
                                 key.getKeys(),
+                                key.getHint(),
                                 sliceSkips,
                                 System.nanoTime());
-                        cache.put(newkey, cursor);
+
+                        put(newkey, cursor);
 
                         LOGGER.debug("{} cursor in pool (copied): {}",
                                 ansi().fg(YELLOW).bold().a("new").reset()
@@ -355,9 +408,14 @@ public class CursorPool {
     }
 
     private long getSliceHeight(CursorPoolEntryKey key) {
-        long ret = cache.asMap().keySet().stream()
-                .filter(cursorsPoolFilterEq(key))
-                .count();
+        var cursors = index.get(new QueryShape(key));
+
+        long ret = cursors == null
+                ? 0
+                : cursors.subSet(
+                        probe(key.getSkipped(), Long.MIN_VALUE), true,
+                        probe(key.getSkipped(), Long.MAX_VALUE), true)
+                        .size();
 
         LOGGER.trace(
                 "cursor in pool with skips {} are {}",
@@ -367,38 +425,6 @@ public class CursorPool {
         return ret;
     }
 
-    private Predicate<? super CursorPoolEntryKey> cursorsPoolFilterEq(
-            CursorPoolEntryKey requestCursor) {
-        return poolCursor
-                -> Objects.equals(poolCursor.getCollection()
-                        .getNamespace(),
-                        requestCursor.getCollection().getNamespace())
-                && Objects.equals(poolCursor.getFilter(),
-                        requestCursor.getFilter())
-                && Objects.equals(poolCursor.getSort(),
-                        requestCursor.getSort())
-                && Objects.equals(poolCursor.getKeys(),
-                        requestCursor.getKeys())
-                && poolCursor.getSkipped() == requestCursor.getSkipped();
-    }
-
-    private Predicate<? super CursorPoolEntryKey> cursorsPoolFilterGte(
-            CursorPoolEntryKey requestCursor) {
-        return poolCursor
-                -> Objects.equals(poolCursor.getCollection().getNamespace(),
-                        requestCursor.getCollection().getNamespace())
-                && Objects.equals(poolCursor.getFilter(),
-                        requestCursor.getFilter())
-                && Objects.equals(poolCursor.getSort(),
-                        requestCursor.getSort())
-                && Objects.equals(poolCursor.getKeys(),
-                        requestCursor.getKeys())
-                && poolCursor.getSkipped() <= requestCursor.getSkipped()
-                && requestCursor.getSkipped() - poolCursor.getSkipped()
-                <= MIN_SKIP_DISTANCE_PERCENTAGE
-                * requestCursor.getSkipped();
-    }
-
     private TreeMap<String, Long> getCacheSizes() {
         return new TreeMap<>(cache.asMap()
                 .keySet()
@@ -408,6 +434,51 @@ public class CursorPool {
                         Collectors.counting())));
     }
 
+    /**
+     * the shape of the query of a cursor: cursors with the same shape return
+     * the same documents and differ only in the number of skipped documents
+     */
+    private static class QueryShape {
+        private final MongoNamespace namespace;
+        private final BsonDocument filter;
+        private final BsonDocument sort;
+        private final BsonDocument keys;
+        private final BsonDocument hint;
+        private final int hash;
+
+        QueryShape(CursorPoolEntryKey key) {
+            this.namespace = key.getCollection().getNamespace();
+            this.filter = key.getFilter();
+            this.sort = key.getSort();
+            this.keys = key.getKeys();
+            this.hint = key.getHint();
+            this.hash = Objects.hash(namespace, filter, sort, keys, hint);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof QueryShape)) {
+                return false;
+            }
+
+            var other = (QueryShape) obj;
+
+            return Objects.equals(namespace, other.namespace)
+                    && Objects.equals(filter, other.filter)
+                    && Objects.equals(sort, other.sort)
+                    && Objects.equals(keys, other.keys)
+                    && Objects.equals(hint, other.hint);
+        }
+    }
+
     private static class DBCursorPoolSingletonHolder {
 
         private static final CursorPool INSTANCE
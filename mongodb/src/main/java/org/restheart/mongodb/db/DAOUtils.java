@@ -115,6 +115,30 @@ public class DAOUtils {
     public final static FindOneAndReplaceOptions FOR_AFTER_NOT_UPSERT_OPS = new FindOneAndReplaceOptions()
             .upsert(false).returnDocument(ReturnDocument.AFTER);
 
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_UPSERT_OPS = new FindOneAndUpdateOptions()
+            .upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndUpdateOptions FOU_BEFORE_NOT_UPSERT_OPS = new FindOneAndUpdateOptions()
+            .upsert(false).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_UPSERT_OPS = new FindOneAndReplaceOptions()
+            .upsert(true).returnDocument(ReturnDocument.BEFORE);
+
+    /**
+     *
+     */
+    public final static FindOneAndReplaceOptions FOR_BEFORE_NOT_UPSERT_OPS = new FindOneAndReplaceOptions()
+            .upsert(false).returnDocument(ReturnDocument.BEFORE);
+
     /**
      *
      */
@@ -222,7 +246,7 @@ public class DAOUtils {
      * @param upsert if true then we will flatten any nested BsonDocuments
      * into dot notation to ensure only the requested fields are updated.
      * @param allowUpsert whether or not to allow upsert mode
-     * @return the new or old document depending on returnNew
+     * @return the OperationResult with the old and the new document
      */
     @SuppressWarnings("rawtypes")
     public static OperationResult writeDocument(
@@ -259,94 +283,175 @@ public class DAOUtils {
             query = and(query, filter);
         }
 
-        BsonDocument oldDocument;
-
-        if (idPresent) {
-            oldDocument = cs == null
-                    ? coll.find(query).first()
-                    : coll.find(cs, query).first();
-
-            // if document not exits and not-update request => fail request with 404
-            if (writeMode == WRITE_MODE.UPDATE && oldDocument == null) {
-                return new OperationResult(HttpStatus.SC_NOT_FOUND);
-            }
-        } else {
+        if (!idPresent && writeMode == WRITE_MODE.UPDATE) {
             // if not-update, docId is mandatory
-            if (writeMode == WRITE_MODE.UPDATE) {
-                LOGGER.debug("write request with writeMode=update missing document id");
-                return new OperationResult(HttpStatus.SC_BAD_REQUEST);
-            }
-
-            oldDocument = null;
+            LOGGER.debug("write request with writeMode=update missing document id");
+            return new OperationResult(HttpStatus.SC_BAD_REQUEST);
         }
 
+        // the old document is returned by the write operation itself
+        // (ReturnDocument.BEFORE) and the new one is computed from it, so that
+        // a single round trip to the server is required in most cases
         if (writeMode == WRITE_MODE.INSERT) {
-            BsonDocument newDocument;
             try {
-                var insertedId = cs == null
-                    ? coll.insertOne(data).getInsertedId()
-                    : coll.insertOne(cs, data).getInsertedId();
-
-                var insertedQuery = eq("_id", insertedId);
-
-                if (shardKeys != null) {
-                    insertedQuery = and(insertedQuery, shardKeys);
+                // insertOne() adds the generated _id to data, if missing
+                if (cs == null) {
+                    coll.insertOne(data);
+                } else {
+                    coll.insertOne(cs, data);
                 }
-
-                newDocument = cs == null
-                    ? coll.find(insertedQuery).first()
-                    : coll.find(cs, insertedQuery).first();
             } catch (IllegalArgumentException iae) {
-                return new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, null);
+                return new OperationResult(HttpStatus.SC_BAD_REQUEST, null, null);
             }
 
-            return new OperationResult(-1, oldDocument, newDocument);
+            return new OperationResult(-1, null, data);
         } else if (replace) {
+            var replacement = getReplaceDocument(data);
+
+            BsonDocument oldDocument;
             BsonDocument newDocument;
+
             try {
-                if (filter != null && !filter.isEmpty()) {
-                    query = and(query, filter);
-                }
+                if (idPresent) {
+                    oldDocument = cs == null
+                            ? coll.findOneAndReplace(query,
+                                    replacement,
+                                    writeMode == WRITE_MODE.UPSERT
+                                        ? FOR_BEFORE_UPSERT_OPS
+                                        : FOR_BEFORE_NOT_UPSERT_OPS)
+                            : coll.findOneAndReplace(cs, query,
+                                    replacement,
+                                    writeMode == WRITE_MODE.UPSERT
+                                        ? FOR_BEFORE_UPSERT_OPS
+                                        : FOR_BEFORE_NOT_UPSERT_OPS);
+
+                    // if document not exits and not-update request => fail request with 404
+                    if (writeMode == WRITE_MODE.UPDATE && oldDocument == null) {
+                        return new OperationResult(HttpStatus.SC_NOT_FOUND);
+                    }
 
-                newDocument = cs == null
-                        ? coll.findOneAndReplace(query,
-                                getReplaceDocument(data),
-                                writeMode == WRITE_MODE.UPSERT
-                                    ? FOR_AFTER_UPSERT_OPS
-                                    : FOR_AFTER_NOT_UPSERT_OPS)
-                        : coll.findOneAndReplace(cs, query,
-                                getReplaceDocument(data),
-                                writeMode == WRITE_MODE.UPSERT
-                                    ? FOR_AFTER_UPSERT_OPS
-                                    : FOR_AFTER_NOT_UPSERT_OPS);
+                    newDocument = replaced(documentId, replacement);
+                } else {
+                    // the _id is generated by the server, get the new document
+                    oldDocument = null;
+                    newDocument = cs == null
+                            ? coll.findOneAndReplace(query,
+                                    replacement,
+                                    FOR_AFTER_UPSERT_OPS)
+                            : coll.findOneAndReplace(cs, query,
+                                    replacement,
+                                    FOR_AFTER_UPSERT_OPS);
+                }
             } catch (IllegalArgumentException iae) {
-                return new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, null);
+                return new OperationResult(HttpStatus.SC_BAD_REQUEST, null, null);
             }
 
             return new OperationResult(-1, oldDocument, newDocument);
         } else {
-            BsonDocument newDocument;
+            var update = getUpdateDocument(data, deepPatching);
+
+            BsonDocument oldDocument;
 
             try {
-                newDocument = cs == null
+                oldDocument = cs == null
                         ? coll.findOneAndUpdate(query,
-                                getUpdateDocument(data, deepPatching),
+                                update,
                                 writeMode == WRITE_MODE.UPSERT
-                                    ? FAU_UPSERT_OPS
-                                    : FAU_NOT_UPSERT_OPS)
+                                    ? FOU_BEFORE_UPSERT_OPS
+                                    : FOU_BEFORE_NOT_UPSERT_OPS)
                         : coll.findOneAndUpdate(cs, query,
-                                getUpdateDocument(data, deepPatching),
+                                update,
                                 writeMode == WRITE_MODE.UPSERT
-                                    ? FAU_UPSERT_OPS
-                                    : FAU_NOT_UPSERT_OPS);
+                                    ? FOU_BEFORE_UPSERT_OPS
+                                    : FOU_BEFORE_NOT_UPSERT_OPS);
             } catch (IllegalArgumentException iae) {
-                return new OperationResult(HttpStatus.SC_BAD_REQUEST, oldDocument, null);
+                return new OperationResult(HttpStatus.SC_BAD_REQUEST, null, null);
+            }
+
+            // if document not exits and not-update request => fail request with 404
+            if (writeMode == WRITE_MODE.UPDATE && oldDocument == null) {
+                return new OperationResult(HttpStatus.SC_NOT_FOUND);
+            }
+
+            var newDocument = oldDocument == null
+                    ? null
+                    : updated(oldDocument, update);
+
+            if (newDocument == null) {
+                // the new document cannot be computed (upserted document
+                // or update operators other than $set), read it
+                var newQuery = eq("_id", documentId);
+
+                if (shardKeys != null) {
+                    newQuery = and(newQuery, shardKeys);
+                }
+
+                newDocument = cs == null
+                        ? coll.find(newQuery).first()
+                        : coll.find(cs, newQuery).first();
             }
 
             return new OperationResult(-1, oldDocument, newDocument);
         }
     }
 
+    /**
+     * @param documentId
+     * @param replacement
+     * @return the document resulting from the replace operation
+     */
+    private static BsonDocument replaced(Object documentId, BsonDocument replacement) {
+        if (replacement.containsKey("_id") || !(documentId instanceof BsonValue)) {
+            return replacement;
+        }
+
+        var ret = new BsonDocument("_id", (BsonValue) documentId);
+        ret.putAll(replacement);
+
+        return ret;
+    }
+
+    /**
+     * applies the update to a copy of the document
+     *
+     * @param document
+     * @param update
+     * @return the updated document or null if the update cannot be applied
+     * client side, i.e. if it uses update operators other than $set or it sets
+     * elements of arrays
+     */
+    static BsonDocument updated(BsonDocument document, BsonDocument update) {
+        if (update.size() != 1
+                || !update.containsKey("$set")
+                || !update.get("$set").isDocument()) {
+            return null;
+        }
+
+        var ret = document.clone();
+
+        for (var entry : update.getDocument("$set").entrySet()) {
+            var tokens = entry.getKey().split("\\.");
+            var parent = ret;
+
+            for (int i = 0; i < tokens.length - 1; i++) {
+                var child = parent.get(tokens[i]);
+
+                if (child == null) {
+                    child = new BsonDocument();
+                    parent.put(tokens[i], child);
+                } else if (!child.isDocument()) {
+                    return null;
+                }
+
+                parent = child.asDocument();
+            }
+
+            parent.put(tokens[tokens.length - 1], entry.getValue());
+        }
+
+        return ret;
+    }
+
     /**
      *
      * @param cs the client session
@@ -126,6 +126,31 @@ public interface Database {
             final BsonDocument keys,
             final EAGER_CURSOR_ALLOCATION_POLICY cursorAllocationPolicy);
 
+    /**
+     * keyset pagination, see KeysetPagination
+     *
+     * @param cs the client session
+     * @param collection
+     * @param pagesize
+     * @param sortBy
+     * @param filter
+     * @param hint
+     * @param keys
+     * @param after the continuation token, empty for the first page
+     * @return Collection Data as ArrayList of BsonDocument
+     * @throws IllegalQueryParamenterException if the continuation token is
+     * invalid
+     */
+    BsonArray getCollectionDataAfter(
+            final ClientSession cs,
+            final MongoCollection<BsonDocument> collection,
+            final int pagesize,
+            final BsonDocument sortBy,
+            final BsonDocument filter,
+            final BsonDocument hint,
+            final BsonDocument keys,
+            final String after) throws IllegalQueryParamenterException;
+
     /**
      *
      * @param cs the client session
@@ -610,6 +610,40 @@ public class DatabaseImpl implements Database {
                 cursorAllocationPolicy);
     }
 
+    /**
+     *
+     * @param cs the client session
+     * @param coll
+     * @param pagesize
+     * @param sortBy
+     * @param filter
+     * @param hint
+     * @param keys
+     * @param after
+     * @return
+     * @throws IllegalQueryParamenterException
+     */
+    @Override
+    public BsonArray getCollectionDataAfter(
+            final ClientSession cs,
+            final MongoCollection<BsonDocument> coll,
+            final int pagesize,
+            final BsonDocument sortBy,
+            final BsonDocument filter,
+            final BsonDocument hint,
+            final BsonDocument keys,
+            final String after) throws IllegalQueryParamenterException {
+        return collectionDAO.getCollectionDataAfter(
+                cs,
+                coll,
+                pagesize,
+                sortBy,
+                filter,
+                hint,
+                keys,
+                after);
+    }
+
     /**
      *
      * @param cs the client session
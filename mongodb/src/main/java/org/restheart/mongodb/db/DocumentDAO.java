@@ -149,19 +149,16 @@ public class DocumentDAO implements DocumentRepository {
                         mcoll,
                         shardKeys,
                         oldDocument,
+                        updateResult.getNewData(),
                         newEtag,
                         requestEtag,
                         HttpStatus.SC_OK,
                         false);
             } else {
-                var query = eq("_id", documentId);
-                BsonDocument newDocument = cs == null
-                        ? mcoll.find(query).first()
-                        : mcoll.find(cs, query).first();
-
                 return new OperationResult(updateResult.getHttpCode() > 0
                         ? updateResult.getHttpCode()
-                        : HttpStatus.SC_OK, newEtag, oldDocument, newDocument);
+                        : HttpStatus.SC_OK, newEtag, oldDocument,
+                        updateResult.getNewData());
             }
         } else if (oldDocument != null && checkEtag) { // upsertDocument
             // check the old etag (in case restore the old document)
@@ -170,26 +167,23 @@ public class DocumentDAO implements DocumentRepository {
                     mcoll,
                     shardKeys,
                     oldDocument,
+                    updateResult.getNewData(),
                     newEtag,
                     requestEtag,
                     HttpStatus.SC_OK,
                     false);
         } else if (oldDocument != null) {  // insert
-            BsonDocument newDocument = mcoll.find(
-                    eq("_id", documentId)).first();
-
             return new OperationResult(
                     updateResult.getHttpCode() > 0
                     ? updateResult.getHttpCode()
-                    : HttpStatus.SC_OK, newEtag, oldDocument, newDocument);
+                    : HttpStatus.SC_OK, newEtag, oldDocument,
+                    updateResult.getNewData());
         } else {
-            BsonDocument newDocument = mcoll.find(
-                    eq("_id", documentId)).first();
-
             return new OperationResult(
                     updateResult.getHttpCode() > 0
                     ? updateResult.getHttpCode()
-                    : HttpStatus.SC_CREATED, newEtag, null, newDocument);
+                    : HttpStatus.SC_CREATED, newEtag, null,
+                    updateResult.getNewData());
         }
     }
 
@@ -270,6 +264,7 @@ public class DocumentDAO implements DocumentRepository {
                     mcoll,
                     shardKeys,
                     oldDocument,
+                    updateResult.getNewData(),
                     newEtag,
                     requestEtag,
                     HttpStatus.SC_OK,
@@ -418,6 +413,7 @@ public class DocumentDAO implements DocumentRepository {
                     null,
                     oldDocument,
                     null,
+                    null,
                     requestEtag,
                     HttpStatus.SC_NO_CONTENT, true);
         } else {
@@ -484,6 +480,7 @@ public class DocumentDAO implements DocumentRepository {
             final MongoCollection<BsonDocument> coll,
             final BsonDocument shardKeys,
             final BsonDocument oldDocument,
+            final BsonDocument newDocument,
             final Object newEtag,
             final String requestEtag,
             final int httpStatusIfOk,
@@ -531,12 +528,6 @@ public class DocumentDAO implements DocumentRepository {
         }
 
         if (Objects.equals(_requestEtag, oldEtag)) {
-            var query = eq("_id", oldDocument.get("_id"));
-
-            BsonDocument newDocument = cs == null
-                    ? coll.find(query).first()
-                    : coll.find(cs, query).first();
-
             return new OperationResult(
                     httpStatusIfOk, newEtag, oldDocument, newDocument);
         } else {
@@ -22,11 +22,13 @@ package org.restheart.mongodb.db;
 import com.mongodb.DuplicateKeyException;
 import com.mongodb.MongoClient;
 import com.mongodb.MongoGridFSException;
+import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.mongodb.client.gridfs.model.GridFSUploadOptions;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -89,6 +91,30 @@ public class GridFsDAO implements GridFsRepository {
             final BsonDocument metadata,
             final Path filePath)
             throws IOException, DuplicateKeyException {
+        try (InputStream sourceStream = new FileInputStream(filePath.toFile())) {
+            return createFile(db, dbName, bucketName, metadata, sourceStream);
+        }
+    }
+
+    /**
+     *
+     * @param db
+     * @param dbName
+     * @param bucketName
+     * @param metadata
+     * @param sourceStream the file content, read while writing it
+     * @return the OperationResult
+     * @throws IOException
+     * @throws DuplicateKeyException
+     */
+    @Override
+    public OperationResult createFile(
+            final Database db,
+            final String dbName,
+            final String bucketName,
+            final BsonDocument metadata,
+            final InputStream sourceStream)
+            throws IOException, DuplicateKeyException {
 
         final String bucket = extractBucketName(bucketName);
 
@@ -102,36 +128,33 @@ public class GridFsDAO implements GridFsRepository {
         ObjectId etag = new ObjectId();
         metadata.put("_etag", new BsonObjectId(etag));
 
-        try (InputStream sourceStream = new FileInputStream(filePath.toFile())) {
-
-            if (metadata.get("_id") == null) {
-                GridFSUploadOptions options = new GridFSUploadOptions()
-                        .metadata(Document.parse(metadata.toJson()));
+        if (metadata.get("_id") == null) {
+            GridFSUploadOptions options = new GridFSUploadOptions()
+                    .metadata(Document.parse(metadata.toJson()));
 
-                ObjectId _id = gridFSBucket.uploadFromStream(
-                        filename,
-                        sourceStream,
-                        options);
+            ObjectId _id = gridFSBucket.uploadFromStream(
+                    filename,
+                    sourceStream,
+                    options);
 
-                return new OperationResult(SC_CREATED,
-                        new BsonObjectId(etag),
-                        new BsonObjectId(_id));
-            } else {
-                BsonValue _id = metadata.remove("_id");
+            return new OperationResult(SC_CREATED,
+                    new BsonObjectId(etag),
+                    new BsonObjectId(_id));
+        } else {
+            BsonValue _id = metadata.remove("_id");
 
-                GridFSUploadOptions options = new GridFSUploadOptions()
-                        .metadata(Document.parse(metadata.toJson()));
+            GridFSUploadOptions options = new GridFSUploadOptions()
+                    .metadata(Document.parse(metadata.toJson()));
 
-                gridFSBucket.uploadFromStream(
-                        _id,
-                        filename,
-                        sourceStream,
-                        options);
+            gridFSBucket.uploadFromStream(
+                    _id,
+                    filename,
+                    sourceStream,
+                    options);
 
-                return new OperationResult(SC_CREATED,
-                        new BsonObjectId(etag),
-                        _id);
-            }
+            return new OperationResult(SC_CREATED,
+                    new BsonObjectId(etag),
+                    _id);
         }
     }
 
@@ -157,33 +180,114 @@ public class GridFsDAO implements GridFsRepository {
             final BsonValue fileId,
             final String requestEtag,
             final boolean checkEtag) throws IOException {
+        try (InputStream sourceStream = new FileInputStream(filePath.toFile())) {
+            return upsertFile(db, dbName, bucketName, metadata, sourceStream,
+                    fileId, requestEtag, checkEtag);
+        }
+    }
 
-        OperationResult deletionResult = deleteFile(db, dbName, bucketName, fileId, requestEtag, checkEtag);
+    /**
+     *
+     * @param db
+     * @param dbName
+     * @param bucketName
+     * @param metadata
+     * @param sourceStream the file content, read while writing it
+     * @param fileId
+     * @param requestEtag
+     * @param checkEtag
+     * @return
+     * @throws IOException
+     */
+    @Override
+    public OperationResult upsertFile(final Database db,
+            final String dbName,
+            final String bucketName,
+            final BsonDocument metadata,
+            final InputStream sourceStream,
+            final BsonValue fileId,
+            final String requestEtag,
+            final boolean checkEtag) throws IOException {
 
-        //https://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.7
-        final boolean deleteOperationWasSuccessful = deletionResult.getHttpCode() == SC_NO_CONTENT || deletionResult.getHttpCode() == SC_OK;
-        final boolean fileDidntExist = deletionResult.getHttpCode() == SC_NOT_FOUND;
-        final boolean fileExisted = !fileDidntExist;
+        final String bucket = extractBucketName(bucketName);
+        final MongoDatabase mdb = db.getDatabase(dbName);
 
-        if (deleteOperationWasSuccessful || fileDidntExist) {
-            OperationResult creationResult = createFile(db, dbName, bucketName, metadata, filePath);
+        GridFSBucket gridFSBucket = GridFSBuckets.create(mdb, bucket);
 
-            //https://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.5
-            final boolean creationOperationWasSuccessful = SC_CREATED == creationResult.getHttpCode() || SC_OK == creationResult.getHttpCode();
-            if (creationOperationWasSuccessful) {
+        GridFSFile existing = getFileForId(gridFSBucket, fileId);
 
-                //https://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.6
-                if (fileExisted) {
-                    return new OperationResult(SC_OK, creationResult.getEtag(), creationResult.getOldData(), creationResult.getNewData());
-                } else {
-                    return new OperationResult(SC_CREATED, creationResult.getEtag(), creationResult.getNewId());
-                }
+        if (existing == null) {
+            //https://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.6
+            OperationResult creationResult = createFile(db, dbName, bucketName, metadata, sourceStream);
+
+            if (SC_CREATED == creationResult.getHttpCode()) {
+                return new OperationResult(SC_CREATED, creationResult.getEtag(), creationResult.getNewId());
             } else {
                 return creationResult;
             }
-        } else {
-            return deletionResult;
         }
+
+        OperationResult etagCheckResult = checkEtag(existing, requestEtag, checkEtag);
+
+        if (etagCheckResult != null) {
+            return etagCheckResult;
+        }
+
+        // upload the new content with a temporary id, so that the existing
+        // file is kept if the upload fails
+        BsonDocument tmpMetadata = metadata.clone();
+        BsonValue tmpId = new BsonObjectId();
+        tmpMetadata.put("_id", tmpId);
+
+        OperationResult creationResult = createFile(db, dbName, bucketName, tmpMetadata, sourceStream);
+
+        if (SC_CREATED != creationResult.getHttpCode()) {
+            return creationResult;
+        }
+
+        deleteLock.lock();
+        try {
+            // the file might have been modified or deleted during the upload
+            GridFSFile current = getFileForId(gridFSBucket, fileId);
+
+            if (current != null) {
+                etagCheckResult = checkEtag(current, requestEtag, checkEtag);
+
+                if (etagCheckResult != null) {
+                    gridFSBucket.delete(tmpId);
+                    return etagCheckResult;
+                }
+
+                gridFSBucket.delete(fileId);
+            }
+
+            renameFile(mdb, bucket, tmpId, fileId);
+        } finally {
+            deleteLock.unlock();
+        }
+
+        //https://www.w3.org/Protocols/rfc2616/rfc2616-sec9.html#sec9.6
+        return new OperationResult(SC_OK, creationResult.getEtag(), creationResult.getOldData(), creationResult.getNewData());
+    }
+
+    /**
+     * changes the id of a GridFS file, moving its chunks to the new id before
+     * inserting the files document with the new id
+     */
+    private void renameFile(final MongoDatabase mdb,
+            final String bucket,
+            final BsonValue fromId,
+            final BsonValue toId) {
+        var files = mdb.getCollection(bucket.concat(".files"), BsonDocument.class);
+        var chunks = mdb.getCollection(bucket.concat(".chunks"), BsonDocument.class);
+
+        var file = files.find(eq("_id", fromId)).first();
+
+        chunks.updateMany(eq("files_id", fromId), set("files_id", toId));
+
+        file.put("_id", toId);
+        files.insertOne(file);
+        files.deleteOne(eq("_id", fromId));
     }
 
     private String extractFilenameFromProperties(
@@ -240,20 +344,10 @@ public class GridFsDAO implements GridFsRepository {
                 return new OperationResult(SC_NOT_FOUND);
             }
 
-            if (checkEtag) {
-                Document metadata = file.getMetadata();
-                if (metadata != null) {
-                    Object oldEtag = metadata.get("_etag");
-
-                    if (oldEtag != null) {
-                        if (requestEtag == null) {
-                            return new OperationResult(SC_CONFLICT, oldEtag);
-                        } else if (!Objects.equals(oldEtag.toString(), requestEtag)) {
-                            return new OperationResult(
-                                    SC_PRECONDITION_FAILED, oldEtag);
-                        }
-                    }
-                }
+            OperationResult etagCheckResult = checkEtag(file, requestEtag, checkEtag);
+
+            if (etagCheckResult != null) {
+                return etagCheckResult;
             }
 
             try {
@@ -271,6 +365,32 @@ public class GridFsDAO implements GridFsRepository {
         }
     }
 
+    /**
+     * @return null if the etag check passes, otherwise the OperationResult of
+     * the failed check
+     */
+    private OperationResult checkEtag(final GridFSFile file,
+            final String requestEtag,
+            final boolean checkEtag) {
+        if (checkEtag) {
+            Document metadata = file.getMetadata();
+            if (metadata != null) {
+                Object oldEtag = metadata.get("_etag");
+
+                if (oldEtag != null) {
+                    if (requestEtag == null) {
+                        return new OperationResult(SC_CONFLICT, oldEtag);
+                    } else if (!Objects.equals(oldEtag.toString(), requestEtag)) {
+                        return new OperationResult(
+                                SC_PRECONDITION_FAILED, oldEtag);
+                    }
+                }
+            }
+        }
+
+        return null;
+    }
+
     private GridFSFile getFileForId(GridFSBucket gridFSBucket, BsonValue fileId) {
         return gridFSBucket
                 .find(eq("_id", fileId))
@@ -22,6 +22,7 @@ package org.restheart.mongodb.db;
 
 import com.mongodb.DuplicateKeyException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Path;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
@@ -52,6 +53,25 @@ public interface GridFsRepository {
             Path filePath)
             throws IOException, DuplicateKeyException;
 
+    /**
+     *
+     * @param db
+     * @param dbName
+     * @param bucketName
+     * @param metadata
+     * @param fileInputStream the file content, read while writing it
+     * @return
+     * @throws IOException
+     * @throws DuplicateKeyException
+     */
+    OperationResult createFile(
+            Database db,
+            String dbName,
+            String bucketName,
+            BsonDocument metadata,
+            InputStream fileInputStream)
+            throws IOException, DuplicateKeyException;
+
     /**
      *
      * @param db
@@ -76,6 +96,30 @@ public interface GridFsRepository {
             final boolean checkEtag)
             throws IOException;
 
+    /**
+     *
+     * @param db
+     * @param dbName
+     * @param bucketName
+     * @param metadata
+     * @param fileInputStream the file content, read while writing it
+     * @param fileId
+     * @param requestEtag
+     * @param checkEtag
+     * @return
+     * @throws IOException
+     */
+    OperationResult upsertFile(
+            final Database db,
+            final String dbName,
+            final String bucketName,
+            final BsonDocument metadata,
+            final InputStream fileInputStream,
+            final BsonValue fileId,
+            final String requestEtag,
+            final boolean checkEtag)
+            throws IOException;
+
     /**
      *
      * @param db
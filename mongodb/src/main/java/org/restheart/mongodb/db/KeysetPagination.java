@@ -0,0 +1,420 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.BsonArray;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DecoderContext;
+import org.restheart.exchange.IllegalQueryParamenterException;
+
+/**
+ * Helper methods for keyset (range based) pagination.
+ *
+ * The continuation token is the Base64 (URL safe) encoding of the BSON
+ * document that holds the values of the sort keys of the last document of the
+ * page; the next page is obtained with a range filter on the sort keys, thus
+ * without skipping documents.
+ *
+ * To have a total order, _id is always used as the last sort key. Documents
+ * missing a sort key or having it null are not paginated reliably.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class KeysetPagination {
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    private KeysetPagination() {
+    }
+
+    /**
+     * @param sortBy
+     * @return the sort document with _id as last key, if missing
+     */
+    public static BsonDocument sort(BsonDocument sortBy) {
+        var ret = sortBy == null ? new BsonDocument() : sortBy.clone();
+
+        if (!ret.containsKey("_id")) {
+            // same direction of the last sort key
+            var direction = ret.isEmpty()
+                    ? new BsonInt32(-1)
+                    : ret.get(lastKey(ret));
+
+            ret.put("_id", direction);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param keys the projection
+     * @param sort
+     * @return the projection modified so that it does not hide the sort keys,
+     * whose values of the last document are needed to generate the
+     * continuation token: the sort keys are added to an inclusion projection
+     * and the exclusions of the sort keys (or of their parents or children)
+     * are removed; strip() removes them from the fetched documents
+     */
+    public static BsonDocument projection(BsonDocument keys, BsonDocument sort) {
+        if (keys == null || keys.isEmpty()) {
+            return keys;
+        }
+
+        var inclusion = isInclusion(keys);
+        var ret = keys.clone();
+
+        for (var sk : sort.keySet()) {
+            if (inclusion && isIncluded(ret, sk)) {
+                continue;
+            }
+
+            for (var k : new ArrayList<>(ret.keySet())) {
+                if (overlaps(k, sk) && (inclusion || isFalse(ret.get(k)))) {
+                    ret.remove(k);
+                }
+            }
+
+            if (inclusion) {
+                ret.put(sk, new BsonInt32(1));
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Removes from a document fetched with the projection returned by
+     * projection() the properties that the client projection keys did not
+     * request. To be called after the continuation token is computed.
+     *
+     * @param doc the document, modified in place
+     * @param keys the client projection
+     * @param sort the sort document as returned by sort()
+     */
+    public static void strip(BsonDocument doc, BsonDocument keys, BsonDocument sort) {
+        if (keys == null || keys.isEmpty()) {
+            return;
+        }
+
+        if (isInclusion(keys)) {
+            for (var sk : sort.keySet()) {
+                if (isIncluded(keys, sk)) {
+                    continue;
+                }
+
+                if ("_id".equals(sk)) {
+                    // _id is included unless explicitly excluded
+                    if (keys.containsKey("_id") && isFalse(keys.get("_id"))) {
+                        doc.remove("_id");
+                    }
+
+                    continue;
+                }
+
+                var children = keys.entrySet().stream()
+                        .filter(e -> isTrue(e.getValue()))
+                        .map(e -> e.getKey())
+                        .filter(k -> k.startsWith(sk.concat(".")))
+                        .map(k -> k.substring(sk.length() + 1))
+                        .collect(Collectors.toSet());
+
+                if (children.isEmpty()) {
+                    remove(doc, notIncludedAncestor(keys, sk));
+                } else {
+                    retain(doc, sk, children);
+                }
+            }
+        } else {
+            keys.entrySet().stream()
+                    .filter(e -> isFalse(e.getValue()))
+                    .map(e -> e.getKey())
+                    .filter(k -> sort.keySet().stream().anyMatch(sk -> overlaps(k, sk)))
+                    .forEachOrdered(k -> remove(doc, k));
+        }
+    }
+
+    /**
+     * @return the first ancestor of key (or key itself) that does not overlap
+     * any property included by the projection
+     */
+    private static String notIncludedAncestor(BsonDocument keys, String key) {
+        var path = "";
+
+        for (var token : key.split("\\.")) {
+            path = path.isEmpty() ? token : path.concat(".").concat(token);
+
+            final var _path = path;
+
+            if (keys.entrySet().stream()
+                    .filter(e -> isTrue(e.getValue()))
+                    .noneMatch(e -> overlaps(e.getKey(), _path))) {
+                return path;
+            }
+        }
+
+        return key;
+    }
+
+    /**
+     * removes the (dot notation) key from doc and from the documents of the
+     * arrays in its path
+     */
+    private static void remove(BsonValue value, String key) {
+        if (value.isArray()) {
+            value.asArray().forEach(e -> remove(e, key));
+        } else if (value.isDocument()) {
+            var doc = value.asDocument();
+            var dot = key.indexOf('.');
+
+            if (dot < 0) {
+                doc.remove(key);
+            } else if (doc.containsKey(key.substring(0, dot))) {
+                remove(doc.get(key.substring(0, dot)), key.substring(dot + 1));
+            }
+        }
+    }
+
+    /**
+     * keeps only the children (dot notation, relative to key) of the value of
+     * key
+     */
+    private static void retain(BsonDocument doc, String key, Set<String> children) {
+        var dot = key.indexOf('.');
+
+        if (dot < 0) {
+            if (doc.containsKey(key)) {
+                var value = retain(doc.get(key), children);
+
+                if (value == null) {
+                    doc.remove(key);
+                } else {
+                    doc.put(key, value);
+                }
+            }
+        } else {
+            var parent = doc.get(key.substring(0, dot));
+
+            if (parent != null && parent.isDocument()) {
+                retain(parent.asDocument(), key.substring(dot + 1), children);
+            } else if (parent != null && parent.isArray()) {
+                parent.asArray().stream()
+                        .filter(e -> e.isDocument())
+                        .forEach(e -> retain(e.asDocument(), key.substring(dot + 1), children));
+            }
+        }
+    }
+
+    /**
+     * @return the value with only the children (dot notation) paths, null if
+     * value is neither a document nor an array; as MongoDB does, the array
+     * elements that are not documents or arrays are removed
+     */
+    private static BsonValue retain(BsonValue value, Set<String> children) {
+        if (value.isArray()) {
+            var ret = new BsonArray();
+
+            value.asArray().stream()
+                    .filter(e -> e.isDocument() || e.isArray())
+                    .map(e -> retain(e, children))
+                    .forEachOrdered(ret::add);
+
+            return ret;
+        } else if (value.isDocument()) {
+            var ret = new BsonDocument();
+
+            value.asDocument().forEach((k, v) -> {
+                if (children.contains(k)) {
+                    ret.put(k, v);
+                } else {
+                    var subpaths = children.stream()
+                            .filter(c -> c.startsWith(k.concat(".")))
+                            .map(c -> c.substring(k.length() + 1))
+                            .collect(Collectors.toSet());
+
+                    if (!subpaths.isEmpty() && (v.isDocument() || v.isArray())) {
+                        var _v = retain(v, subpaths);
+
+                        if (_v != null) {
+                            ret.put(k, _v);
+                        }
+                    }
+                }
+            });
+
+            return ret;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isInclusion(BsonDocument keys) {
+        return keys.entrySet().stream()
+                .filter(e -> !"_id".equals(e.getKey()))
+                .anyMatch(e -> isTrue(e.getValue()));
+    }
+
+    /**
+     * @return true if the inclusion projection includes key or one of its
+     * parents
+     */
+    private static boolean isIncluded(BsonDocument keys, String key) {
+        return keys.entrySet().stream()
+                .filter(e -> isTrue(e.getValue()))
+                .anyMatch(e -> key.equals(e.getKey())
+                        || key.startsWith(e.getKey().concat(".")));
+    }
+
+    /**
+     * @return true if a and b are the same key or one is a parent of the other
+     */
+    private static boolean overlaps(String a, String b) {
+        return a.equals(b)
+                || a.startsWith(b.concat("."))
+                || b.startsWith(a.concat("."));
+    }
+
+    private static boolean isFalse(BsonValue v) {
+        return (v.isNumber() && v.asNumber().intValue() == 0)
+                || (v.isBoolean() && !v.asBoolean().getValue());
+    }
+
+    private static boolean isTrue(BsonValue v) {
+        return (v.isNumber() && v.asNumber().intValue() != 0)
+                || (v.isBoolean() && v.asBoolean().getValue());
+    }
+
+    /**
+     * @param sort the sort document as returned by sort()
+     * @param after the sort keys values decoded from the continuation token
+     * @return the filter that selects the documents following after
+     */
+    public static BsonDocument rangeFilter(BsonDocument sort, BsonDocument after) {
+        var or = new BsonArray();
+        var keys = new ArrayList<>(sort.keySet());
+
+        for (int i = 0; i < keys.size(); i++) {
+            var cond = new BsonDocument();
+
+            for (int j = 0; j < i; j++) {
+                cond.put(keys.get(j), after.get(keys.get(j)));
+            }
+
+            var key = keys.get(i);
+            var op = isDescending(sort.get(key)) ? "$lt" : "$gt";
+
+            cond.put(key, new BsonDocument(op, after.get(key)));
+
+            or.add(cond);
+        }
+
+        return or.size() == 1
+                ? or.get(0).asDocument()
+                : new BsonDocument("$or", or);
+    }
+
+    private static boolean isDescending(BsonValue direction) {
+        return direction.isNumber() && direction.asNumber().intValue() < 0;
+    }
+
+    /**
+     * @param sort the sort document as returned by sort()
+     * @param last the last document of the page
+     * @return the continuation token
+     */
+    public static String token(BsonDocument sort, BsonDocument last) {
+        var values = new BsonDocument();
+
+        sort.keySet().forEach(k -> values.put(k, valueOf(last, k)));
+
+        var raw = new RawBsonDocument(values, CODEC);
+        var buf = raw.getByteBuffer().asNIO();
+        var bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @param token the continuation token
+     * @param sort the sort document as returned by sort()
+     * @return the values of the sort keys encoded in the token
+     * @throws IllegalQueryParamenterException if the token is invalid or does
+     * not match the sort keys
+     */
+    public static BsonDocument parseToken(String token, BsonDocument sort)
+            throws IllegalQueryParamenterException {
+        BsonDocument ret;
+
+        try {
+            var bytes = Base64.getUrlDecoder().decode(token);
+            ret = CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)),
+                    DecoderContext.builder().build());
+        } catch (RuntimeException ex) {
+            throw new IllegalQueryParamenterException("illegal after parameter, "
+                    + "invalid continuation token", ex);
+        }
+
+        if (!new ArrayList<>(ret.keySet()).equals(new ArrayList<>(sort.keySet()))) {
+            throw new IllegalQueryParamenterException("illegal after parameter, "
+                    + "the continuation token does not match the sort keys");
+        }
+
+        return ret;
+    }
+
+    private static String lastKey(BsonDocument doc) {
+        String ret = null;
+
+        for (var k : doc.keySet()) {
+            ret = k;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the value of the (dot notation) key, BsonNull if missing
+     */
+    private static BsonValue valueOf(BsonDocument doc, String key) {
+        BsonValue ret = doc;
+
+        for (var token : key.split("\\.")) {
+            if (ret != null && ret.isDocument()) {
+                ret = ret.asDocument().get(token);
+            } else {
+                return BsonNull.VALUE;
+            }
+        }
+
+        return ret == null ? BsonNull.VALUE : ret;
+    }
+}
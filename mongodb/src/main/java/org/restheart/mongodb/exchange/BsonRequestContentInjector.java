@@ -26,8 +26,11 @@ import io.undertow.server.handlers.form.FormDataParser;
 import io.undertow.server.handlers.form.FormParserFactory;
 import io.undertow.util.HeaderValues;
 import io.undertow.util.Headers;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.Iterator;
@@ -49,6 +52,8 @@ import static org.restheart.exchange.ExchangeKeys.TRUE_KEY_ID;
 import static org.restheart.exchange.ExchangeKeys._ID;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.utils.MultipartStreamReader;
 import org.restheart.utils.ChannelReader;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.JsonUtils;
@@ -70,6 +75,10 @@ public class BsonRequestContentInjector {
 
     private static final String CONTENT_TYPE = "contentType";
 
+    // the max size of the properties field of a streamed multipart request,
+    // i.e. the max size of a BSON document
+    private static final int MAX_PROPERTIES_SIZE = 16 * 1024 * 1024;
+
     private static final String ERROR_INVALID_CONTENTTYPE = "Content-Type must be either: "
             + Exchange.JSON_MEDIA_TYPE
             + " or " + Exchange.HAL_JSON_MEDIA_TYPE;
@@ -85,6 +94,16 @@ public class BsonRequestContentInjector {
                 || ct.startsWith(Exchange.JSON_MEDIA_TYPE)));
     }
 
+    /**
+     * @param contentTypes
+     * @return true if the Content-Type is application/x-ndjson
+     */
+    public static boolean isNdjson(final HeaderValues contentTypes) {
+        return contentTypes != null
+                && !contentTypes.isEmpty()
+                && contentTypes.stream().anyMatch(ct -> ct.startsWith(Exchange.NDJSON_MEDIA_TYPE));
+    }
+
     private static boolean isFormOrMultipart(final HeaderValues contentTypes) {
         return contentTypes != null
                 && !contentTypes.isEmpty()
@@ -92,6 +111,12 @@ public class BsonRequestContentInjector {
                 || ct.startsWith(Exchange.MULTIPART_FORM_DATA_TYPE));
     }
 
+    private static boolean isMultipart(final HeaderValues contentTypes) {
+        return contentTypes != null
+                && !contentTypes.isEmpty()
+                && contentTypes.stream().anyMatch(ct -> ct.startsWith(Exchange.MULTIPART_FORM_DATA_TYPE));
+    }
+
     /**
      * Checks the _id in POST requests; it cannot be a string having a special
      * meaning e.g _null, since the URI /db/coll/_null refers to the document
@@ -217,6 +242,118 @@ public class BsonRequestContentInjector {
         return new Tika().detect(file);
     }
 
+    /**
+     * Reads the multipart content until the first file part, without spooling
+     * it to a temporary file. The metadata is taken from the form field
+     * 'metadata' (or 'properties') preceding the file part; the file part is
+     * set as the request file input stream, to be written to GridFS while it
+     * arrives.
+     *
+     * @param exchange
+     * @return the metadata or null if an error occurred (the response is set
+     * in error)
+     */
+    private static BsonDocument streamMultipart(final HttpServerExchange exchange) {
+        var request = MongoRequest.of(exchange);
+        var response = MongoResponse.of(exchange);
+
+        var boundary = MultipartStreamReader.boundary(request.getHeaders()
+                .getFirst(Headers.CONTENT_TYPE));
+
+        if (boundary == null) {
+            response.setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "Error parsing the multipart form: boundary is missing");
+            return null;
+        }
+
+        MultipartStreamReader.Part part;
+        String metadataString = null;
+
+        try {
+            var bar = ByteArrayProxyRequest.of(exchange);
+
+            InputStream in;
+
+            if (bar.isContentAvailable()) {
+                // the content has been already read by core's
+                // RequestContentInjector
+                in = new ByteArrayInputStream(bar.readContent());
+            } else {
+                if (!exchange.isBlocking()) {
+                    exchange.startBlocking();
+                }
+
+                in = exchange.getInputStream();
+            }
+
+            var reader = new MultipartStreamReader(in, boundary);
+
+            while ((part = reader.nextPart()) != null && !part.isFile()) {
+                if (FILE_METADATA.equals(part.getName())
+                        || (PROPERTIES.equals(part.getName()) && metadataString == null)) {
+                    metadataString = part.readString(MAX_PROPERTIES_SIZE);
+                }
+            }
+        } catch (MultipartStreamReader.PartTooLargeException ptle) {
+            response.setInError(
+                    HttpStatus.SC_BAD_REQUEST,
+                    "Error parsing the multipart form: "
+                    + ptle.getMessage());
+            return null;
+        } catch (IOException ioe) {
+            response.setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "Error parsing the multipart form: "
+                    + "data could not be read",
+                    ioe);
+            return null;
+        }
+
+        if (part == null) {
+            response.setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "This request does not contain any binary file");
+            return null;
+        }
+
+        BsonDocument metadata;
+
+        try {
+            metadata = metadataString == null
+                    ? new BsonDocument()
+                    : BsonDocument.parse(metadataString);
+        } catch (JsonParseException | IllegalArgumentException ex) {
+            response.setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "Invalid data: "
+                    + "'properties' field is not a valid JSON",
+                    ex);
+            return null;
+        }
+
+        // buffered, to allow detecting the content type
+        var file = new BufferedInputStream(part.getContent());
+
+        if (metadata.get(CONTENT_TYPE) == null) {
+            try {
+                var contentType = new Tika().detect(file, part.getFilename());
+
+                if (contentType != null) {
+                    metadata.append(CONTENT_TYPE, new BsonString(contentType));
+                }
+            } catch (IOException ioe) {
+                response.addWarning("error detecting content type");
+
+                LOGGER.warn("error detecting content type of file", ioe);
+            }
+        }
+
+        request.setFileInputStream(file);
+
+        return metadata;
+    }
+
     private static final FormParserFactory FORM_PARSER
             = FormParserFactory.builder().build();
 
@@ -248,6 +385,20 @@ public class BsonRequestContentInjector {
         BsonValue content;
 
         final HeaderValues contentType = request.getHeaders().get(Headers.CONTENT_TYPE);
+
+        if (isNdjson(contentType)) {
+            if (!(request.isPost() && request.isCollection())) {
+                response.setInError(
+                        HttpStatus.SC_UNSUPPORTED_MEDIA_TYPE,
+                        "Content-Type " + Exchange.NDJSON_MEDIA_TYPE
+                        + " is only allowed for POST to collection resources"
+                        + " (bulk post)");
+            }
+
+            // the content is streamed by NdjsonPostCollectionHandler
+            return;
+        }
+
         if (isFormOrMultipart(contentType)) {
             if (!((request.isPost() && request.isFilesBucket())
                     || (request.isPut() && request.isFile()))) {
@@ -256,6 +407,17 @@ public class BsonRequestContentInjector {
                         ERROR_INVALID_CONTENTTYPE_FILE);
                 return;
             }
+        }
+
+        if (isMultipart(contentType)
+                && MongoServiceConfiguration.get().isGridfsStreamingUpload()) {
+            content = streamMultipart(exchange);
+
+            if (content == null) {
+                // an error occurred
+                return;
+            }
+        } else if (isFormOrMultipart(contentType)) {
             FormDataParser parser = FORM_PARSER.createParser(exchange);
 
             if (parser == null) {
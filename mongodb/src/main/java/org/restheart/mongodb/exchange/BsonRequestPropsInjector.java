@@ -27,6 +27,7 @@ import java.util.Optional;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.bson.json.JsonParseException;
+import static org.restheart.exchange.ExchangeKeys.AFTER_QPARAM_KEY;
 import static org.restheart.exchange.ExchangeKeys.AGGREGATION_VARIABLES_QPARAM_KEY;
 import org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE;
 import static org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE_QPARAM_KEY;
@@ -208,6 +209,20 @@ public class BsonRequestPropsInjector {
             request.setPage(page);
         }
 
+        Deque<String> __after = exchange.getQueryParameters()
+                .get(AFTER_QPARAM_KEY);
+
+        if (__after != null && !(__after.isEmpty())) {
+            if (page > 1) {
+                response.setInError(
+                        HttpStatus.SC_BAD_REQUEST,
+                        "illegal after paramenter, it cannot be used with page");
+                return;
+            }
+
+            request.setAfter(__after.getFirst());
+        }
+
         Deque<String> __count = exchange.getQueryParameters().get("count");
 
         if (__count != null) {
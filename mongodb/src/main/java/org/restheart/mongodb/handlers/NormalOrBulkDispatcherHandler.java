@@ -21,18 +21,22 @@
 package org.restheart.mongodb.handlers;
 
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
 import org.bson.BsonValue;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.mongodb.exchange.BsonRequestContentInjector;
 
 /**
  * this handler dispatches request to normal or bulk post collection handlers
- * depending on the content to be an object or an array
+ * depending on the content to be an object or an array, or to the ndjson
+ * handler if the Content-Type is application/x-ndjson
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class NormalOrBulkDispatcherHandler extends PipelinedHandler {
     private final PipelinedHandler nextNormal;
     private final PipelinedHandler nextBulk;
+    private final PipelinedHandler nextNdjson;
 
     /**
      * Creates a new instance of PostCollectionHandler
@@ -42,10 +46,24 @@ public class NormalOrBulkDispatcherHandler extends PipelinedHandler {
     public NormalOrBulkDispatcherHandler(
             PipelinedHandler nextNormal, 
             PipelinedHandler nextBulk) {
+        this(nextNormal, nextBulk, null);
+    }
+
+    /**
+     * Creates a new instance of PostCollectionHandler
+     * @param nextNormal next handler for normal requests
+     * @param nextBulk next handler for bulk requests
+     * @param nextNdjson next handler for requests with ndjson content
+     */
+    public NormalOrBulkDispatcherHandler(
+            PipelinedHandler nextNormal,
+            PipelinedHandler nextBulk,
+            PipelinedHandler nextNdjson) {
         super(null);
-        
+
         this.nextNormal = nextNormal;
         this.nextBulk = nextBulk;
+        this.nextNdjson = nextNdjson;
     }
 
     /**
@@ -55,9 +73,13 @@ public class NormalOrBulkDispatcherHandler extends PipelinedHandler {
      */
     @Override
     public void handleRequest(HttpServerExchange exchange) throws Exception {
-        BsonValue content = MongoRequest.of(exchange).getContent();
+        var request = MongoRequest.of(exchange);
+        BsonValue content = request.getContent();
 
-        if (content != null 
+        if (nextNdjson != null
+                && BsonRequestContentInjector.isNdjson(request.getHeaders().get(Headers.CONTENT_TYPE))) {
+            nextNdjson.handleRequest(exchange);
+        } else if (content != null 
                 && content.isArray()) {
             nextBulk.handleRequest(exchange);
         } else {
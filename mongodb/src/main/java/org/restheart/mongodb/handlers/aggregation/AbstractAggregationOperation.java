@@ -56,6 +56,33 @@ public abstract class AbstractAggregationOperation {
      */
     public static final String TYPE_ELEMENT_NAME = "type";
 
+    /**
+     *
+     */
+    public static final String STREAM_ELEMENT_NAME = "stream";
+
+    /**
+     *
+     */
+    public static final String CACHE_ELEMENT_NAME = "cache";
+
+    /**
+     *
+     */
+    public static final String CACHE_TTL_ELEMENT_NAME = "ttl";
+
+    /**
+     *
+     */
+    public static final String CACHE_MAX_SIZE_ELEMENT_NAME = "maxSize";
+
+    /**
+     *
+     */
+    public static final String CACHE_INVALIDATE_ELEMENT_NAME = "invalidateOnChange";
+
+    private static final long DEFAULT_CACHE_MAX_SIZE = 100;
+
     /**
      *
      * @param collProps
@@ -163,6 +190,11 @@ public abstract class AbstractAggregationOperation {
 
     private final TYPE type;
     private final String uri;
+    private final boolean stream;
+    private final BsonDocument definition;
+    private final long cacheTtl;
+    private final long cacheMaxSize;
+    private final boolean cacheInvalidateOnChange;
 
     /**
      *
@@ -210,6 +242,72 @@ public abstract class AbstractAggregationOperation {
         }
 
         this.uri = _uri.asString().getValue();
+
+        BsonValue _stream = properties.get(STREAM_ELEMENT_NAME);
+
+        if (_stream != null && !_stream.isBoolean()) {
+            throw new InvalidMetadataException("query /" + this.uri
+                    + " has invalid '" + STREAM_ELEMENT_NAME
+                    + "': " + _stream
+                    + "; must be boolean");
+        }
+
+        this.stream = _stream != null && _stream.asBoolean().getValue();
+
+        this.definition = properties;
+
+        BsonValue _cache = properties.get(CACHE_ELEMENT_NAME);
+
+        if (_cache == null) {
+            this.cacheTtl = 0;
+            this.cacheMaxSize = 0;
+            this.cacheInvalidateOnChange = false;
+        } else {
+            if (!_cache.isDocument()) {
+                throw new InvalidMetadataException("query /" + this.uri
+                        + " has invalid '" + CACHE_ELEMENT_NAME
+                        + "': " + _cache
+                        + "; must be an object");
+            }
+
+            var cache = _cache.asDocument();
+
+            BsonValue _ttl = cache.get(CACHE_TTL_ELEMENT_NAME);
+
+            if (_ttl == null || !_ttl.isNumber()
+                    || _ttl.asNumber().longValue() <= 0) {
+                throw new InvalidMetadataException("query /" + this.uri
+                        + " has invalid '" + CACHE_ELEMENT_NAME + "."
+                        + CACHE_TTL_ELEMENT_NAME + "': " + _ttl
+                        + "; must be a positive number of milliseconds");
+            }
+
+            BsonValue _maxSize = cache.get(CACHE_MAX_SIZE_ELEMENT_NAME);
+
+            if (_maxSize != null && (!_maxSize.isNumber()
+                    || _maxSize.asNumber().longValue() <= 0)) {
+                throw new InvalidMetadataException("query /" + this.uri
+                        + " has invalid '" + CACHE_ELEMENT_NAME + "."
+                        + CACHE_MAX_SIZE_ELEMENT_NAME + "': " + _maxSize
+                        + "; must be a positive number");
+            }
+
+            BsonValue _invalidate = cache.get(CACHE_INVALIDATE_ELEMENT_NAME);
+
+            if (_invalidate != null && !_invalidate.isBoolean()) {
+                throw new InvalidMetadataException("query /" + this.uri
+                        + " has invalid '" + CACHE_ELEMENT_NAME + "."
+                        + CACHE_INVALIDATE_ELEMENT_NAME + "': " + _invalidate
+                        + "; must be boolean");
+            }
+
+            this.cacheTtl = _ttl.asNumber().longValue();
+            this.cacheMaxSize = _maxSize == null
+                    ? DEFAULT_CACHE_MAX_SIZE
+                    : _maxSize.asNumber().longValue();
+            this.cacheInvalidateOnChange = _invalidate != null
+                    && _invalidate.asBoolean().getValue();
+        }
     }
 
     /**
@@ -226,6 +324,54 @@ public abstract class AbstractAggregationOperation {
         return uri;
     }
 
+    /**
+     * @return true if the results are streamed to the client as they are
+     * read from the cursor, rather than collected in the response content.
+     * See MongoResponse.isContentStreamed() for the contract of the response
+     * interceptors of streamed results
+     */
+    public boolean isStream() {
+        return stream;
+    }
+
+    /**
+     * @return the properties that define the operation
+     */
+    public BsonDocument getDefinition() {
+        return definition;
+    }
+
+    /**
+     * @return true if the results are cached
+     */
+    public boolean isCached() {
+        return cacheTtl > 0;
+    }
+
+    /**
+     * @return the time to live in milliseconds of the cached results, 0 if
+     * the results are not cached
+     */
+    public long getCacheTtl() {
+        return cacheTtl;
+    }
+
+    /**
+     * @return the max number of cached results, i.e. of different
+     * combinations of avars, page and pagesize
+     */
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    /**
+     * @return true if the cached results are invalidated when the
+     * collection changes
+     */
+    public boolean isCacheInvalidateOnChange() {
+        return cacheInvalidateOnChange;
+    }
+
     /**
      * @param obj
      * @param aVars RequestContext.getAggregationVars()
@@ -50,6 +50,12 @@ public class AggregationPipeline extends AbstractAggregationOperation {
     private final BsonArray stages;
     private final BsonBoolean allowDiskUse;
 
+    // the stages with unescaped keys, compiled once
+    private final List<BsonDocument> compiledStages;
+
+    // for each compiled stage, the positions of the $var placeholders
+    private final List<List<VarSlot>> slots;
+
     /**
      * @param properties the json properties object. It must include the
      * following properties:
@@ -111,6 +117,44 @@ public class AggregationPipeline extends AbstractAggregationOperation {
         this.allowDiskUse = _allowDiskUse != null 
                 ? _allowDiskUse.asBoolean()
                 : BsonBoolean.FALSE;
+
+        this.compiledStages = new ArrayList<>();
+        this.slots = new ArrayList<>();
+
+        JsonUtils.unescapeKeys(stages).asArray().forEach(stage -> {
+            var stageSlots = new ArrayList<VarSlot>();
+            compile(stage, new ArrayList<>(), stageSlots);
+
+            this.compiledStages.add(stage.asDocument());
+            this.slots.add(stageSlots);
+        });
+    }
+
+    /**
+     * records the positions of the $var placeholders in value
+     */
+    private static void compile(BsonValue value, List<Object> path, List<VarSlot> slots) {
+        if (value.isDocument()) {
+            var doc = value.asDocument();
+
+            if (doc.size() == 1 && doc.get("$var") != null) {
+                slots.add(new VarSlot(path.toArray(), doc.get("$var")));
+            } else {
+                doc.forEach((key, v) -> {
+                    path.add(key);
+                    compile(v, path, slots);
+                    path.remove(path.size() - 1);
+                });
+            }
+        } else if (value.isArray()) {
+            var array = value.asArray();
+
+            for (int idx = 0; idx < array.size(); idx++) {
+                path.add(idx);
+                compile(array.get(idx), path, slots);
+                path.remove(path.size() - 1);
+            }
+        }
     }
 
     /**
@@ -128,20 +172,89 @@ public class AggregationPipeline extends AbstractAggregationOperation {
      */
     public List<BsonDocument> getResolvedStagesAsList(BsonDocument avars)
             throws InvalidMetadataException, QueryVariableNotBoundException {
-        BsonArray replacedStages = bindAggregationVariables(
-                JsonUtils.unescapeKeys(stages), avars)
-                .asArray();
+        List<BsonDocument> ret = new ArrayList<>(compiledStages.size());
 
-        List<BsonDocument> ret = new ArrayList<>();
+        for (int idx = 0; idx < compiledStages.size(); idx++) {
+            var stage = compiledStages.get(idx);
+            var stageSlots = slots.get(idx);
+
+            // stages without variables are not copied
+            if (stageSlots.isEmpty()) {
+                ret.add(stage);
+                continue;
+            }
+
+            BsonValue bound = stage.clone();
+
+            for (var slot : stageSlots) {
+                var value = slot.resolve(avars);
+
+                if (slot.path.length == 0) {
+                    bound = value;
+                } else {
+                    slot.set(bound, value);
+                }
+            }
+
+            if (bound.isDocument()) {
+                ret.add(bound.asDocument());
+            }
+        }
 
-        replacedStages.stream().filter((stage) -> (stage.isDocument()))
-                .forEach((stage) -> {
-                    ret.add(stage.asDocument());
-                });
-        
         return ret;
     }
 
+    /**
+     * the position of a $var placeholder: the keys and indexes from the stage
+     */
+    private static class VarSlot {
+        private final Object[] path;
+        private final BsonValue varName;
+
+        VarSlot(Object[] path, BsonValue varName) {
+            this.path = path;
+            this.varName = varName;
+        }
+
+        BsonValue resolve(BsonDocument aVars)
+                throws InvalidMetadataException, QueryVariableNotBoundException {
+            if (!(varName.isString())) {
+                throw new InvalidMetadataException("wrong variable name "
+                        + varName.toString());
+            }
+
+            if (aVars == null
+                    || aVars.get(varName.asString().getValue()) == null) {
+                throw new QueryVariableNotBoundException("variable "
+                        + varName.asString().getValue() + " not bound");
+            }
+
+            return aVars.get(varName.asString().getValue());
+        }
+
+        void set(BsonValue stage, BsonValue value) {
+            var parent = stage;
+
+            for (int idx = 0; idx < path.length - 1; idx++) {
+                parent = get(parent, path[idx]);
+            }
+
+            var last = path[path.length - 1];
+
+            if (last instanceof String) {
+                parent.asDocument().put((String) last, value);
+            } else {
+                parent.asArray().set((Integer) last, value);
+            }
+        }
+
+        private static BsonValue get(BsonValue parent, Object step) {
+            return step instanceof String
+                    ? parent.asDocument().get((String) step)
+                    : parent.asArray().get((Integer) step);
+        }
+    }
+
     /**
      * @return the allowDiskUse
      */
@@ -0,0 +1,317 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.aggregation;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.db.MongoReactiveClientSingleton;
+import org.restheart.mongodb.handlers.metrics.SharedMetricRegistryProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the results of the aggregation operations that define the cache
+ * property, e.g.
+ *
+ * <code>"cache": { "ttl": 60000, "maxSize": 100, "invalidateOnChange": true }</code>
+ *
+ * Each operation has its own cache, keyed by the bound aggregation variables
+ * (that include @page and @pagesize) and replaced when the definition of the
+ * operation changes. The documents are stored as RawBsonDocument, so that the
+ * cached results are compact and are not modified by response interceptors.
+ *
+ * With invalidateOnChange, the collection is watched via a change stream and
+ * all its cached results are invalidated on any change. This requires a
+ * replica set: if the change stream cannot be opened, the results just expire
+ * after the ttl. The reactive client is initialized on first usage.
+ *
+ * Each invalidation increments the epoch of the collection: the results are
+ * not cached if the epoch changed since the caller got it with epoch(), i.e.
+ * if they were read before the last invalidation.
+ *
+ * Hits and misses are counted in the collection metrics registry as
+ * aggrs.&lt;uri&gt;.cache-hits and aggrs.&lt;uri&gt;.cache-misses
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class AggregationResultsCache {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(AggregationResultsCache.class);
+
+    private static final BsonDocumentCodec CODEC = new BsonDocumentCodec();
+
+    // min delay before opening again a change stream that failed
+    private static final long WATCH_RETRY_DELAY = 30_000;
+
+    // by db, collection and uri of the operation
+    private static final Map<List<String>, Entry> CACHES = new ConcurrentHashMap<>();
+
+    // by db and collection, 0 if watching or the time of the last failure
+    private static final Map<List<String>, Long> WATCHERS = new ConcurrentHashMap<>();
+
+    // by db and collection, incremented on invalidation
+    private static final Map<List<String>, AtomicLong> EPOCHS = new ConcurrentHashMap<>();
+
+    private static final SharedMetricRegistryProxy METRICS = new SharedMetricRegistryProxy();
+
+    private AggregationResultsCache() {
+    }
+
+    /**
+     * @param db
+     * @param coll
+     * @return the invalidation epoch of the collection, to get before
+     * executing the aggregation whose results are put in the cache
+     */
+    static long epoch(String db, String coll) {
+        return epochOf(db, coll).get();
+    }
+
+    /**
+     * @param db
+     * @param coll
+     * @param operation
+     * @param avars the bound aggregation variables
+     * @return the cached results, or null if not cached
+     */
+    static List<BsonDocument> get(String db,
+            String coll,
+            AbstractAggregationOperation operation,
+            BsonDocument avars) {
+        var cached = entry(db, coll, operation).cache.get(avars);
+        var registry = METRICS.registry(db, coll);
+
+        if (cached != null && cached.isPresent()) {
+            registry.counter(metricName(operation, "cache-hits")).inc();
+
+            return cached.get().stream()
+                    .map(raw -> raw.decode(CODEC))
+                    .collect(Collectors.toList());
+        } else {
+            registry.counter(metricName(operation, "cache-misses")).inc();
+            return null;
+        }
+    }
+
+    /**
+     * @param db
+     * @param coll
+     * @param operation
+     * @param avars the bound aggregation variables
+     * @param results
+     * @param epoch the epoch got before executing the aggregation
+     */
+    static void put(String db,
+            String coll,
+            AbstractAggregationOperation operation,
+            BsonDocument avars,
+            List<BsonDocument> results,
+            long epoch) {
+        var current = epochOf(db, coll);
+
+        if (current.get() != epoch) {
+            // invalidated while the aggregation was executing
+            return;
+        }
+
+        var raws = results.stream()
+                .map(doc -> new RawBsonDocument(doc, CODEC))
+                .collect(Collectors.toList());
+
+        var key = avars.clone();
+        var cache = entry(db, coll, operation).cache;
+
+        cache.put(key, raws);
+
+        // an invalidation between the check and the put removes the entry
+        // before it is put
+        if (current.get() != epoch) {
+            cache.invalidate(key);
+        }
+    }
+
+    /**
+     * invalidates the cached results of all the operations of the collection
+     *
+     * @param db
+     * @param coll
+     */
+    static void invalidate(String db, String coll) {
+        epochOf(db, coll).incrementAndGet();
+
+        CACHES.keySet().removeIf(k -> k.get(0).equals(db)
+                && k.get(1).equals(coll));
+    }
+
+    private static AtomicLong epochOf(String db, String coll) {
+        return EPOCHS.computeIfAbsent(List.of(db, coll), k -> new AtomicLong());
+    }
+
+    private static String metricName(AbstractAggregationOperation operation,
+            String name) {
+        return AbstractAggregationOperation.AGGREGATIONS_ELEMENT_NAME + "."
+                + operation.getUri() + "." + name;
+    }
+
+    private static Entry entry(String db,
+            String coll,
+            AbstractAggregationOperation operation) {
+        var key = List.of(db, coll, operation.getUri());
+
+        var ret = CACHES.get(key);
+
+        if (ret == null || !ret.isFor(operation)) {
+            ret = CACHES.compute(key, (k, current) -> current != null
+                    && current.isFor(operation)
+                    ? current
+                    : new Entry(operation));
+        }
+
+        if (operation.isCacheInvalidateOnChange()) {
+            watch(db, coll);
+        }
+
+        return ret;
+    }
+
+    /**
+     * opens the change stream of the collection, unless already open or
+     * failed less than WATCH_RETRY_DELAY msecs ago
+     */
+    private static void watch(String db, String coll) {
+        if (!MongoReactiveClientSingleton.isInitialized()) {
+            initReactiveClient();
+        }
+
+        var key = List.of(db, coll);
+        var failedAt = WATCHERS.get(key);
+
+        if (failedAt == null) {
+            if (WATCHERS.putIfAbsent(key, 0L) != null) {
+                return;
+            }
+        } else if (failedAt == 0
+                || System.currentTimeMillis() - failedAt < WATCH_RETRY_DELAY
+                || !WATCHERS.replace(key, failedAt, 0L)) {
+            return;
+        }
+
+        var subscriber = new InvalidationSubscriber(db, coll);
+
+        try {
+            MongoReactiveClientSingleton.getInstance()
+                    .getClient()
+                    .getDatabase(db)
+                    .getCollection(coll)
+                    .watch()
+                    .subscribe(subscriber);
+        } catch (Throwable t) {
+            subscriber.onError(t);
+        }
+    }
+
+    /**
+     * the reactive client is initialized at startup only if used by the
+     * GridFS download or the metadata invalidation stream
+     */
+    private static synchronized void initReactiveClient() {
+        if (!MongoReactiveClientSingleton.isInitialized()) {
+            LOGGER.debug("Initializing the reactive client to watch the "
+                    + "collections of the cached aggregations");
+            MongoReactiveClientSingleton.init(MongoServiceConfiguration.get().getMongoUri());
+        }
+    }
+
+    private static class Entry {
+        private final BsonDocument definition;
+        private final Cache<BsonDocument, List<RawBsonDocument>> cache;
+
+        Entry(AbstractAggregationOperation operation) {
+            this.definition = operation.getDefinition();
+            this.cache = CacheFactory.createLocalCache(
+                    operation.getCacheMaxSize(),
+                    Cache.EXPIRE_POLICY.AFTER_WRITE,
+                    operation.getCacheTtl());
+        }
+
+        boolean isFor(AbstractAggregationOperation operation) {
+            return definition == operation.getDefinition()
+                    || definition.equals(operation.getDefinition());
+        }
+    }
+
+    /**
+     * invalidates the cached results of the collection on any change
+     */
+    private static class InvalidationSubscriber
+            implements Subscriber<ChangeStreamDocument<Document>> {
+        private final String db;
+        private final String coll;
+
+        InvalidationSubscriber(String db, String coll) {
+            this.db = db;
+            this.coll = coll;
+        }
+
+        @Override
+        public void onSubscribe(Subscription s) {
+            s.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ChangeStreamDocument<Document> notification) {
+            LOGGER.trace("Invalidating cached aggregation results of {}/{}",
+                    db, coll);
+            invalidate(db, coll);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            LOGGER.warn("Cannot watch {}/{} to invalidate the cached "
+                    + "aggregation results, they will expire after their ttl: {}",
+                    db, coll, t.getMessage());
+
+            WATCHERS.put(List.of(db, coll), System.currentTimeMillis());
+            invalidate(db, coll);
+        }
+
+        @Override
+        public void onComplete() {
+            // e.g. invalidate event on collection drop
+            WATCHERS.remove(List.of(db, coll));
+            invalidate(db, coll);
+        }
+    }
+}
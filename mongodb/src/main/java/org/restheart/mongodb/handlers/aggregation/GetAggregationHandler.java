@@ -23,7 +23,12 @@ package org.restheart.mongodb.handlers.aggregation;
 import com.mongodb.MongoCommandException;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.MapReduceIterable;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoIterable;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -31,6 +36,9 @@ import java.util.concurrent.TimeUnit;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonInt32;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.restheart.exchange.Exchange;
 import org.restheart.exchange.IllegalQueryParamenterException;
 import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
@@ -40,14 +48,65 @@ import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.DatabaseImpl;
 import org.restheart.utils.HttpStatus;
+import org.restheart.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
 
 /**
+ * Executes the aggregation operations defined in the collection properties.
+ *
+ * The results are collected in the response content, unless the aggregation
+ * has "stream": true; in this case the results are read from the cursor in
+ * cursor-batch-size increments and each batch is written to the client as
+ * soon as it is read, either as a json array or, if the request Accept header
+ * is application/x-ndjson, as newline delimited json. See
+ * MongoResponse.isContentStreamed() for the interceptors contract.
+ *
+ * The results of the aggregations that define the cache property are cached,
+ * see AggregationResultsCache; streamed results are never cached.
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
 public class GetAggregationHandler extends PipelinedHandler {
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(GetAggregationHandler.class);
+
     private final DatabaseImpl dbsDAO = new DatabaseImpl();
 
+    // the parsed and compiled aggregation operations
+    // by db, collection and etag of the collection properties
+    private static final Cache<List<Object>, List<AbstractAggregationOperation>> OPERATIONS
+            = CacheFactory.createLocalCache(1_000, Cache.EXPIRE_POLICY.NEVER, 0);
+
+    /**
+     * @return the aggregation operations defined in the collection properties,
+     * parsed only when the properties change
+     */
+    private static List<AbstractAggregationOperation> operations(MongoRequest request)
+            throws InvalidMetadataException {
+        var props = request.getCollectionProps();
+        var etag = props == null ? null : props.get("_etag");
+
+        if (etag == null) {
+            return AbstractAggregationOperation.getFromJson(props);
+        }
+
+        var key = List.<Object>of(request.getDBName(), request.getCollectionName(), etag);
+
+        var cached = OPERATIONS.get(key);
+
+        if (cached != null && cached.isPresent()) {
+            return cached.get();
+        }
+
+        var ret = AbstractAggregationOperation.getFromJson(props);
+
+        OPERATIONS.put(key, ret);
+
+        return ret;
+    }
+
     /**
      * Default ctor
      */
@@ -81,9 +140,7 @@ public class GetAggregationHandler extends PipelinedHandler {
 
         String queryUri = request.getAggregationOperation();
 
-        List<AbstractAggregationOperation> aggregations
-                = AbstractAggregationOperation
-                        .getFromJson(request.getCollectionProps());
+        List<AbstractAggregationOperation> aggregations = operations(request);
 
         Optional<AbstractAggregationOperation> _query
                 = aggregations.stream().filter(q
@@ -97,27 +154,28 @@ public class GetAggregationHandler extends PipelinedHandler {
         }
 
         ArrayList<BsonDocument> _data = new ArrayList<>();
+        MongoIterable<BsonDocument> results;
 
         AbstractAggregationOperation query = _query.get();
 
+        var avars = request.getAggreationVars() == null
+                ? new BsonDocument()
+                : request.getAggreationVars();
+
+        // add @page, @pagesize, @limit and @skip to avars to allow handling 
+        // paging in the aggragation via default page and pagesize qparams
+        avars.put("@page", new BsonInt32(request.getPage()));
+        avars.put("@pagesize", new BsonInt32(request.getPagesize()));
+        avars.put("@limit", new BsonInt32(request.getPagesize()));
+        avars.put("@skip", new BsonInt32(request.getPagesize()
+                * (request.getPage() - 1)));
+
         if (null == query.getType()) {
             response.setInError(
                     HttpStatus.SC_INTERNAL_SERVER_ERROR, "unknown query type");
             next(exchange);
             return;
         } else {
-            var avars = request.getAggreationVars() == null
-                    ? new BsonDocument()
-                    : request.getAggreationVars();
-
-            // add @page, @pagesize, @limit and @skip to avars to allow handling 
-            // paging in the aggragation via default page and pagesize qparams
-            avars.put("@page", new BsonInt32(request.getPage()));
-            avars.put("@pagesize", new BsonInt32(request.getPagesize()));
-            avars.put("@limit", new BsonInt32(request.getPagesize()));
-            avars.put("@skip", new BsonInt32(request.getPagesize()
-                    * (request.getPage() - 1)));
-
             switch (query.getType()) {
                 case MAP_REDUCE:
                     MapReduceIterable<BsonDocument> mrOutput;
@@ -147,10 +205,7 @@ public class GetAggregationHandler extends PipelinedHandler {
                         next(exchange);
                         return;
                     }
-                    // ***** get data
-                    for (BsonDocument obj : mrOutput) {
-                        _data.add(obj);
-                    }
+                    results = mrOutput;
                     break;
                 case AGGREGATION_PIPELINE:
                     AggregateIterable<BsonDocument> agrOutput;
@@ -181,10 +236,7 @@ public class GetAggregationHandler extends PipelinedHandler {
                         next(exchange);
                         return;
                     }
-                    // ***** get data
-                    for (BsonDocument obj : agrOutput) {
-                        _data.add(obj);
-                    }
+                    results = agrOutput;
                     break;
                 default:
                     response.setInError(
@@ -199,6 +251,36 @@ public class GetAggregationHandler extends PipelinedHandler {
             return;
         }
 
+        if (query.isStream()) {
+            stream(exchange, results);
+            return;
+        }
+
+        // ***** get data
+        // got before the cache lookup, see AggregationResultsCache.put()
+        var epoch = query.isCached()
+                ? AggregationResultsCache.epoch(request.getDBName(),
+                        request.getCollectionName())
+                : 0;
+
+        var cached = query.isCached()
+                ? AggregationResultsCache.get(request.getDBName(),
+                        request.getCollectionName(), query, avars)
+                : null;
+
+        if (cached != null) {
+            _data.addAll(cached);
+        } else {
+            for (BsonDocument obj : results) {
+                _data.add(obj);
+            }
+
+            if (query.isCached()) {
+                AggregationResultsCache.put(request.getDBName(),
+                        request.getCollectionName(), query, avars, _data, epoch);
+            }
+        }
+
         try {
             var data = new BsonArray();
             
@@ -218,4 +300,120 @@ public class GetAggregationHandler extends PipelinedHandler {
             next(exchange);
         }
     }
+
+    /**
+     * opens the cursor and sets the custom sender that writes the results to
+     * the client in cursor-batch-size increments
+     */
+    private void stream(HttpServerExchange exchange,
+            MongoIterable<BsonDocument> results) throws Exception {
+        var response = MongoResponse.of(exchange);
+        var batchSize = Math.max(1, MongoServiceConfiguration.get().getCursorBatchSize());
+
+        MongoCursor<BsonDocument> cursor;
+
+        try {
+            // executes the aggregation and gets the first batch, so that
+            // errors are reported with the proper status code
+            cursor = results.batchSize(batchSize).iterator();
+        } catch (MongoCommandException ex) {
+            response.setInError(
+                    HttpStatus.SC_INTERNAL_SERVER_ERROR,
+                    "error executing aggregation", ex);
+            next(exchange);
+            return;
+        }
+
+        // the cursor is closed even if the custom sender is not executed
+        exchange.addExchangeCompleteListener((ex, nextListener) -> {
+            ex.getConnection().getWorker().execute(cursor::close);
+            nextListener.proceed();
+        });
+
+        var ndjson = acceptsNdjson(exchange);
+
+        response.setContentStreamed(true);
+        response.setContentType(ndjson
+                ? Exchange.NDJSON_MEDIA_TYPE
+                : Exchange.JSON_MEDIA_TYPE);
+        response.setStatusCode(HttpStatus.SC_OK);
+        response.setCustomerSender(() -> send(exchange, cursor, ndjson, batchSize));
+
+        next(exchange);
+    }
+
+    private void send(HttpServerExchange exchange,
+            MongoCursor<BsonDocument> cursor,
+            boolean ndjson,
+            int batchSize) {
+        var response = MongoResponse.of(exchange);
+        var jsonMode = MongoRequest.of(exchange).getJsonMode();
+        // added by response interceptors, e.g. to hide properties
+        var processors = response.getStreamedContentProcessors();
+
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+
+        var out = exchange.getOutputStream();
+
+        try {
+            if (response.isInError()) {
+                // an interceptor set an error, send it in place of the results
+                response.writeContent(out);
+                return;
+            }
+
+            // holds the json of one batch of documents
+            var batch = new ByteArrayOutputStream();
+            var count = 0;
+
+            if (!ndjson) {
+                batch.write('[');
+            }
+
+            while (cursor.hasNext()) {
+                if (!ndjson && count > 0) {
+                    batch.write(',');
+                }
+
+                var doc = cursor.next();
+
+                for (var processor : processors) {
+                    doc = processor.apply(doc);
+                }
+
+                JsonUtils.toJson(doc, jsonMode, batch);
+
+                if (ndjson) {
+                    batch.write('\n');
+                }
+
+                if (++count % batchSize == 0) {
+                    batch.writeTo(out);
+                    batch.reset();
+                    out.flush();
+                }
+            }
+
+            if (!ndjson) {
+                batch.write(']');
+            }
+
+            batch.writeTo(out);
+            out.flush();
+        } catch (IOException | RuntimeException ex) {
+            // the response has been already started, the connection is
+            // closed to let the client know that the content is truncated
+            LOGGER.error("Error streaming the aggregation results", ex);
+            IoUtils.safeClose(exchange.getConnection());
+        }
+    }
+
+    private static boolean acceptsNdjson(HttpServerExchange exchange) {
+        var accept = exchange.getRequestHeaders().get(Headers.ACCEPT);
+
+        return accept != null && accept.stream()
+                .anyMatch(a -> a.contains(Exchange.NDJSON_MEDIA_TYPE));
+    }
 }
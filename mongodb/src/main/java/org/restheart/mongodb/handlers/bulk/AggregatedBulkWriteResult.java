@@ -0,0 +1,111 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.bulk;
+
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The aggregated BulkWriteResult of several bulkWrite operations.
+ *
+ * The counts are the totals of all the operations, while the lists of
+ * inserts and upserts can be capped; the number of upserted documents is
+ * therefore available with getUpsertedCount() and must not be computed from
+ * the size of getUpserts().
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class AggregatedBulkWriteResult extends BulkWriteResult {
+    private final int insertedCount;
+    private final int upsertedCount;
+    private final int matchedCount;
+    private final int deletedCount;
+    private final int modifiedCount;
+    private final List<BulkWriteUpsert> upserts;
+    private final List<BulkWriteInsert> inserts;
+
+    AggregatedBulkWriteResult(int insertedCount,
+            int upsertedCount,
+            int matchedCount,
+            int deletedCount,
+            int modifiedCount,
+            List<BulkWriteUpsert> upserts,
+            List<BulkWriteInsert> inserts) {
+        this.insertedCount = insertedCount;
+        this.upsertedCount = upsertedCount;
+        this.matchedCount = matchedCount;
+        this.deletedCount = deletedCount;
+        this.modifiedCount = modifiedCount;
+        this.upserts = Collections.unmodifiableList(upserts);
+        this.inserts = Collections.unmodifiableList(inserts);
+    }
+
+    @Override
+    public boolean wasAcknowledged() {
+        return true;
+    }
+
+    @Override
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * @return the number of upserted documents
+     */
+    public int getUpsertedCount() {
+        return upsertedCount;
+    }
+
+    @Override
+    public int getMatchedCount() {
+        return matchedCount;
+    }
+
+    @Override
+    public int getDeletedCount() {
+        return deletedCount;
+    }
+
+    @Override
+    public int getModifiedCount() {
+        return modifiedCount;
+    }
+
+    /**
+     * @return the first upserts, see NdjsonPostCollectionHandler.MAX_REPORTED_IDS
+     */
+    @Override
+    public List<BulkWriteUpsert> getUpserts() {
+        return upserts;
+    }
+
+    /**
+     * @return the first inserts, see NdjsonPostCollectionHandler.MAX_REPORTED_IDS
+     */
+    @Override
+    public List<BulkWriteInsert> getInserts() {
+        return inserts;
+    }
+}
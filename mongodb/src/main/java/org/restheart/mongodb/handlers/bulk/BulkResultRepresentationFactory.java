@@ -77,12 +77,13 @@ public class BulkResultRepresentationFactory {
     }
 
     private void addBulkResult(final BulkOperationResult result, final String requestPath, final BsonDocument rep) {
-        BulkWriteResult wr = result.getBulkResult();
+        addWriteResult(result.getBulkResult(), rep, requestPath);
+    }
 
+    private void addWriteResult(final BulkWriteResult wr, final BsonDocument rep, final String requestPath) {
         if (wr.wasAcknowledged()) {
             if (wr.getUpserts() != null || wr.getInserts() != null) {
-                rep.put("inserted", new BsonInt32((wr.getUpserts() != null ? wr.getUpserts().size() : 0)
-                        + (wr.getInserts() != null ? wr.getInserts().size() : 0)));
+                rep.put("inserted", new BsonInt32(insertedCount(wr)));
 
                 var links = new BsonArray();
 
@@ -112,37 +113,17 @@ public class BulkResultRepresentationFactory {
         }
     }
 
-    private void addWriteResult(final BulkWriteResult wr, final BsonDocument rep, final String requestPath) {
-        if (wr.wasAcknowledged()) {
-            if (wr.getUpserts() != null || wr.getInserts() != null) {
-                rep.put("inserted", new BsonInt32((wr.getUpserts() != null ? wr.getUpserts().size() : 0)
-                        + (wr.getInserts() != null ? wr.getInserts().size() : 0)));
-
-                var links = new BsonArray();
-
-                // add links to new, upserted documents
-                if (wr.getUpserts() != null) {
-                        wr.getUpserts().stream().forEach(update -> links.add(new BsonString(
-                                RepresentationUtils.getReferenceLink(requestPath, update.getId()))));
-                }
-
-                // add links to new, inserted documents
-                if (wr.getInserts() != null) {
-                        wr.getInserts().stream().forEach(update -> links.add(new BsonString(
-                                        RepresentationUtils.getReferenceLink(requestPath,update.getId()))));
-                }
-
-                rep.put("links", links);
-            }
-
-            rep.put("deleted",
-                    new BsonInt32(wr.getDeletedCount()));
-
-            rep.put("modified",
-                    new BsonInt32(wr.getModifiedCount()));
-
-            rep.put("matched",
-                    new BsonInt32(wr.getMatchedCount()));
+    /**
+     * @return the number of inserted and upserted documents; the lists of an
+     * AggregatedBulkWriteResult are capped, so its counts are used instead
+     */
+    private static int insertedCount(final BulkWriteResult wr) {
+        if (wr instanceof AggregatedBulkWriteResult) {
+            var awr = (AggregatedBulkWriteResult) wr;
+            return awr.getUpsertedCount() + awr.getInsertedCount();
+        } else {
+            return (wr.getUpserts() != null ? wr.getUpserts().size() : 0)
+                    + (wr.getInserts() != null ? wr.getInserts().size() : 0);
         }
     }
 
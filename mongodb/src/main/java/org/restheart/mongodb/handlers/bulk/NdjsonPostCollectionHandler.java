@@ -0,0 +1,363 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.bulk;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import io.undertow.server.HttpServerExchange;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.json.JsonParseException;
+import org.restheart.exchange.BadRequestException;
+import org.restheart.exchange.ByteArrayProxyRequest;
+import org.restheart.exchange.ExchangeKeys.DOC_ID_TYPE;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.MongoResponse;
+import org.restheart.handlers.PipelinedHandler;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.db.BulkOperationResult;
+import org.restheart.mongodb.db.DocumentDAO;
+import org.restheart.mongodb.utils.ResponseHelper;
+import org.restheart.utils.HttpStatus;
+import org.restheart.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Handles POST requests to collection resources with application/x-ndjson
+ * content, i.e. one json document per line.
+ *
+ * The request content is read incrementally and the documents are written with
+ * a bulkWrite every bulk-write-batch-size documents, so that the memory usage
+ * does not depend on the content size. The response has the same
+ * representation of BulkPostCollectionHandler, with the aggregated counts.
+ *
+ * Since the request interceptors cannot get the content, the processors they
+ * add with MongoRequest.addStreamedContentProcessor() are applied to each
+ * document before writing it.
+ *
+ * Note that the batches are not written atomically: if an error occurs, the
+ * documents of the previous batches are already written.
+ *
+ * To keep the response size constant, the links of the written documents
+ * are reported for the first MAX_REPORTED_IDS documents only, while the
+ * counts refer to all the written documents.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class NdjsonPostCollectionHandler extends PipelinedHandler {
+
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(NdjsonPostCollectionHandler.class);
+
+    // the max number of inserted and upserted ids included in the response
+    static final int MAX_REPORTED_IDS = 100;
+
+    private final DocumentDAO documentDAO;
+
+    /**
+     * Creates a new instance of NdjsonPostCollectionHandler
+     */
+    public NdjsonPostCollectionHandler() {
+        this(null, new DocumentDAO());
+    }
+
+    /**
+     * Creates a new instance of NdjsonPostCollectionHandler
+     *
+     * @param next
+     */
+    public NdjsonPostCollectionHandler(PipelinedHandler next) {
+        this(next, new DocumentDAO());
+    }
+
+    /**
+     * Creates a new instance of NdjsonPostCollectionHandler
+     *
+     * @param next
+     * @param documentDAO
+     */
+    public NdjsonPostCollectionHandler(PipelinedHandler next, DocumentDAO documentDAO) {
+        super(next);
+        this.documentDAO = documentDAO;
+    }
+
+    /**
+     *
+     * @param exchange
+     * @throws Exception
+     */
+    @Override
+    public void handleRequest(HttpServerExchange exchange) throws Exception {
+        var request = MongoRequest.of(exchange);
+        var response = MongoResponse.of(exchange);
+
+        if (request.isInError()) {
+            next(exchange);
+            return;
+        }
+
+        var batchSize = Math.max(1, MongoServiceConfiguration.get().getBulkWriteBatchSize());
+
+        var results = new Results();
+        var batch = new BsonArray();
+        int lineNumber = 0;
+        String line;
+
+        try (var reader = new BufferedReader(new InputStreamReader(
+                content(exchange), StandardCharsets.UTF_8))) {
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank()) {
+                    continue;
+                }
+
+                BsonDocument document;
+
+                try {
+                    document = JsonUtils.unflatten(BsonDocument.parse(line))
+                            .asDocument();
+                } catch (JsonParseException | IllegalArgumentException ex) {
+                    response.setInError(
+                            HttpStatus.SC_NOT_ACCEPTABLE,
+                            "Invalid JSON at line " + lineNumber + ", "
+                            + results.count + " documents written. "
+                            + ex.getMessage(),
+                            ex);
+                    next(exchange);
+                    return;
+                }
+
+                try {
+                    for (var processor : request.getStreamedContentProcessors()) {
+                        document = processor.apply(document);
+                    }
+                } catch (BadRequestException bre) {
+                    response.setInError(
+                            bre.getStatusCode(),
+                            "Document at line " + lineNumber + " rejected, "
+                            + results.count + " documents written. "
+                            + bre.getMessage());
+                    next(exchange);
+                    return;
+                }
+
+                if (!checkId(exchange, document, lineNumber)) {
+                    // if check fails, exchange has been closed
+                    return;
+                }
+
+                batch.add(document);
+
+                if (batch.size() == batchSize) {
+                    write(request, batch, results);
+                    batch = new BsonArray();
+                }
+            }
+        } catch (IOException ioe) {
+            LOGGER.error("Error reading request content", ioe);
+
+            response.setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "Error reading request content, "
+                    + results.count + " documents written");
+            next(exchange);
+            return;
+        }
+
+        if (!batch.isEmpty()) {
+            write(request, batch, results);
+        }
+
+        var result = new BulkOperationResult(HttpStatus.SC_OK,
+                results.etag,
+                results.toBulkWriteResult());
+
+        response.setDbOperationResult(result);
+
+        // inject the etag
+        if (result.getEtag() != null) {
+            ResponseHelper.injectEtagHeader(exchange, result.getEtag());
+        }
+
+        response.setStatusCode(result.getHttpCode());
+
+        var bprf = new BulkResultRepresentationFactory();
+
+        response.setContent(bprf.getRepresentation(request.getPath(), result));
+
+        next(exchange);
+    }
+
+    /**
+     * @return the request content; if an interceptor required the content, it
+     * has been already read by core's RequestContentInjector
+     */
+    private InputStream content(HttpServerExchange exchange) throws IOException {
+        var bar = ByteArrayProxyRequest.of(exchange);
+
+        if (bar.isContentAvailable()) {
+            return new ByteArrayInputStream(bar.readContent());
+        } else {
+            if (!exchange.isBlocking()) {
+                exchange.startBlocking();
+            }
+
+            return exchange.getInputStream();
+        }
+    }
+
+    private void write(MongoRequest request, BsonArray batch, Results results) {
+        try {
+            var result = this.documentDAO
+                    .bulkPostDocuments(
+                            request.getClientSession(),
+                            request.getDBName(),
+                            request.getCollectionName(),
+                            batch,
+                            request.getFiltersDocument(),
+                            request.getShardKey(),
+                            request.getWriteMode());
+
+            results.add(result.getBulkResult(), batch.size());
+            results.etag = result.getEtag();
+        } catch (MongoBulkWriteException mbwe) {
+            // rethrow it with the aggregated result and the errors indexes
+            // relative to the whole content; handled by ErrorHandler
+            var offset = results.count;
+
+            results.add(mbwe.getWriteResult(), batch.size());
+
+            var errors = mbwe.getWriteErrors().stream()
+                    .map(e -> new BulkWriteError(e.getCode(),
+                            e.getMessage(),
+                            e.getDetails(),
+                            e.getIndex() + offset))
+                    .collect(Collectors.toList());
+
+            throw new MongoBulkWriteException(results.toBulkWriteResult(),
+                    errors,
+                    mbwe.getWriteConcernError(),
+                    mbwe.getServerAddress());
+        }
+    }
+
+    private boolean checkId(HttpServerExchange exchange, BsonDocument document, int lineNumber) throws Exception {
+        var request = MongoRequest.of(exchange);
+
+        if (!document.containsKey("_id")) {
+            return true;
+        }
+
+        var id = document.get("_id");
+
+        if (id.isArray()) {
+            MongoResponse.of(exchange).setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "the type of _id at line " + lineNumber
+                    + " is not supported: " + id.getBsonType().name());
+            next(exchange);
+            return false;
+        }
+
+        if (id.isString() && MongoRequest.isReservedDocumentId(request.getType(), id)) {
+            MongoResponse.of(exchange).setInError(
+                    HttpStatus.SC_FORBIDDEN,
+                    "id is reserved: " + id.asString().getValue());
+            next(exchange);
+            return false;
+        }
+
+        if (!(request.getDocIdType() == DOC_ID_TYPE.OID
+                || request.getDocIdType() == DOC_ID_TYPE.STRING_OID)) {
+            MongoResponse.of(exchange).setInError(
+                    HttpStatus.SC_NOT_ACCEPTABLE,
+                    "_id in content body is mandatory for documents with id type " + request.getDocIdType().name());
+            next(exchange);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * aggregates the results of the bulkWrite of the batches, counting all the
+     * written documents but keeping only the first MAX_REPORTED_IDS inserted
+     * and upserted ids
+     */
+    static class Results {
+        private int count = 0;
+        private int inserted = 0;
+        private int upserted = 0;
+        private int matched = 0;
+        private int deleted = 0;
+        private int modified = 0;
+        private final List<BulkWriteUpsert> upserts = new ArrayList<>();
+        private final List<BulkWriteInsert> inserts = new ArrayList<>();
+        private Object etag = null;
+
+        void add(BulkWriteResult result, int batchSize) {
+            if (result.wasAcknowledged()) {
+                final var offset = count;
+
+                inserted += result.getInsertedCount();
+                upserted += result.getUpserts().size();
+                matched += result.getMatchedCount();
+                deleted += result.getDeletedCount();
+                modified += result.getModifiedCount();
+
+                result.getUpserts().stream()
+                        .limit(Math.max(0, MAX_REPORTED_IDS - upserts.size()))
+                        .forEach(u -> upserts
+                        .add(new BulkWriteUpsert(u.getIndex() + offset, u.getId())));
+                result.getInserts().stream()
+                        .limit(Math.max(0, MAX_REPORTED_IDS - inserts.size()))
+                        .forEach(i -> inserts
+                        .add(new BulkWriteInsert(i.getIndex() + offset, i.getId())));
+            }
+
+            count += batchSize;
+        }
+
+        BulkWriteResult toBulkWriteResult() {
+            return new AggregatedBulkWriteResult(inserted,
+                    upserted,
+                    matched,
+                    deleted,
+                    modified,
+                    upserts,
+                    inserts);
+        }
+    }
+}
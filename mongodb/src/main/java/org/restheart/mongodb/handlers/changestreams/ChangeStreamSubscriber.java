@@ -21,6 +21,9 @@
 package org.restheart.mongodb.handlers.changestreams;
 
 import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import java.util.List;
+import java.util.Set;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
 import org.bson.BsonNull;
@@ -32,11 +35,18 @@ import org.bson.codecs.configuration.CodecRegistries;
 import org.bson.codecs.configuration.CodecRegistry;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
+import org.restheart.mongodb.db.ChangeStreamResumer;
+import org.restheart.mongodb.db.MongoReactiveClientSingleton;
 import org.restheart.utils.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Subscribes to a change stream and tracks the resume token of the last
+ * notification; on error the stream is reopened after it, so that the clients
+ * don't miss events on transient errors, e.g. replica set elections. If the
+ * stream cannot be reopened, see ChangeStreamResumer, the clients are
+ * disconnected.
  *
  * @author omartrasatti
  */
@@ -47,11 +57,58 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument>
             = LoggerFactory.getLogger(ChangeStreamSubscriber.class);
 
     private final SessionKey sessionKey;
-    private Subscription sub;
+    private final String dbName;
+    private final String collName;
+    private final List<BsonDocument> stages;
 
-    public ChangeStreamSubscriber(SessionKey sessionKey) {
+    private volatile Subscription sub;
+    private volatile boolean stopped = false;
+    private final ChangeStreamResumer resumer;
+
+    public ChangeStreamSubscriber(SessionKey sessionKey,
+            String dbName,
+            String collName,
+            List<BsonDocument> stages) {
         super();
         this.sessionKey = sessionKey;
+        this.dbName = dbName;
+        this.collName = collName;
+        this.stages = stages;
+        this.resumer = new ChangeStreamResumer(sessionKey.getResumeAfter());
+    }
+
+    /**
+     * a subscriber must not be subscribed more than once, this creates the
+     * subscriber that resumes the stream of the given one
+     */
+    private ChangeStreamSubscriber(ChangeStreamSubscriber previous) {
+        this.sessionKey = previous.sessionKey;
+        this.dbName = previous.dbName;
+        this.collName = previous.collName;
+        this.stages = previous.stages;
+        this.resumer = previous.resumer;
+    }
+
+    /**
+     * opens the change stream, after the last received notification if any
+     */
+    public void start() {
+        var publisher = MongoReactiveClientSingleton
+                .getInstance()
+                .getClient()
+                .getDatabase(dbName)
+                .getCollection(collName)
+                .watch(stages)
+                .fullDocument(FullDocument.UPDATE_LOOKUP);
+
+        var _resumeToken = this.resumer.getResumeToken();
+
+        if (_resumeToken != null) {
+            publisher = publisher.resumeAfter(_resumeToken);
+        }
+
+        this.resumer.opened();
+        publisher.subscribe(this);
     }
 
     @Override
@@ -62,6 +119,10 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument>
 
     @Override
     public void onNext(ChangeStreamDocument notification) {
+        this.resumer.notified(notification == null
+                ? null
+                : notification.getResumeToken());
+
         if (!GuavaHashMultimapSingleton.get(sessionKey).isEmpty()) {
             LOGGER.trace("[clients watching]: "
                     + GuavaHashMultimapSingleton.get(sessionKey).size());
@@ -85,16 +146,54 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument>
 
     @Override
     public void onError(final Throwable t) {
-        LOGGER.warn("Error from stream: " + t.getMessage());
+        if (stopped || GuavaHashMultimapSingleton.get(sessionKey).isEmpty()) {
+            LOGGER.debug("Error from unwatched stream, sessionKey={}: {}",
+                    sessionKey, t.getMessage());
+            GetChangeStreamHandler.OPENED_STREAMS.remove(sessionKey);
+            return;
+        }
+
+        switch (resumer.failed(t)) {
+            case STOP:
+                LOGGER.error("Cannot reopen stream, sessionKey={}, "
+                        + "disconnecting its clients: {}",
+                        sessionKey, t.getMessage());
+
+                GetChangeStreamHandler.OPENED_STREAMS.remove(sessionKey);
+
+                // copy, closing removes the sessions
+                Set.copyOf(GuavaHashMultimapSingleton.get(sessionKey))
+                        .forEach(WebSocketNotificationSubscriber::close);
+                return;
+            case RESTART:
+                LOGGER.warn("Cannot resume stream, sessionKey={}, "
+                        + "restarting it from now, events might be missed: {}",
+                        sessionKey, t.getMessage());
+                break;
+            default:
+                LOGGER.warn("Error from stream, sessionKey={}, "
+                        + "resuming it in {} msecs: {}",
+                        sessionKey, resumer.getRetryDelay(), t.getMessage());
+        }
+
+        var next = new ChangeStreamSubscriber(this);
+
+        resumer.retry(next::start, next::onError);
     }
 
     @Override
     public void onComplete() {
         LOGGER.debug("Stream completed, sessionKey=" + sessionKey);
+        // e.g. invalidate event, the next client will open a new stream
+        GetChangeStreamHandler.OPENED_STREAMS.remove(sessionKey);
     }
 
     public void stop() {
-        this.sub.cancel();
+        this.stopped = true;
+
+        if (this.sub != null) {
+            this.sub.cancel();
+        }
     }
     
     private BsonDocument getDocument(ChangeStreamDocument notification) {
@@ -104,6 +203,11 @@ public class ChangeStreamSubscriber implements Subscriber<ChangeStreamDocument>
             return doc;
         }
         
+        // the resume token, allows clients to reconnect with ?resumeAfter=
+        if (notification.getResumeToken() != null) {
+            doc.put("_id", notification.getResumeToken());
+        }
+
         doc.put("fullDocument", toBson((Document) notification.getFullDocument()));
         
         doc.put("documentKey", notification.getDocumentKey());
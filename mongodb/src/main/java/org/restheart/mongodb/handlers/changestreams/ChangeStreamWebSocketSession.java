@@ -25,6 +25,10 @@ import io.undertow.websockets.core.AbstractReceiveListener;
 import io.undertow.websockets.core.StreamSourceFrameChannel;
 import io.undertow.websockets.core.WebSocketChannel;
 import java.io.IOException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 /**
@@ -40,6 +44,12 @@ public class ChangeStreamWebSocketSession {
     private final SessionKey sessionKey;
     private final WebSocketChannel webSocketChannel;
 
+    // the notifications to send, bounded by WebSocketNotificationSubscriber
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger(0);
+    // true if a worker is sending the queued notifications
+    private final AtomicBoolean sending = new AtomicBoolean(false);
+
     public ChangeStreamWebSocketSession(WebSocketChannel channel, SessionKey sessionKey) {
         this.sessionId = new SecureRandomSessionIdGenerator().createSessionId();
         this.webSocketChannel = channel;
@@ -66,6 +76,69 @@ public class ChangeStreamWebSocketSession {
         return this.webSocketChannel;
     }
 
+    /**
+     * @param notification
+     * @param maxSize
+     * @return false if the queue is full
+     */
+    boolean offer(String notification, int maxSize) {
+        if (queueSize.incrementAndGet() > maxSize) {
+            queueSize.decrementAndGet();
+            return false;
+        }
+
+        queue.add(notification);
+        return true;
+    }
+
+    /**
+     * @return the next notification to send or null if the queue is empty
+     */
+    String poll() {
+        var ret = queue.poll();
+
+        if (ret != null) {
+            queueSize.decrementAndGet();
+        }
+
+        return ret;
+    }
+
+    /**
+     * empties the queue
+     *
+     * @return the number of removed notifications
+     */
+    int clear() {
+        int ret = 0;
+
+        while (poll() != null) {
+            ret++;
+        }
+
+        return ret;
+    }
+
+    boolean isQueueEmpty() {
+        return queue.isEmpty();
+    }
+
+    int queueSize() {
+        return queueSize.get();
+    }
+
+    /**
+     * @return true if the caller is now in charge of sending the queued
+     * notifications
+     */
+    boolean startSending() {
+        return sending.compareAndSet(false, true);
+    }
+
+    void stopSending() {
+        sending.set(false);
+    }
+
     class ChangeStreamReceiveListener extends AbstractReceiveListener {
 
         private final ChangeStreamWebSocketSession session;
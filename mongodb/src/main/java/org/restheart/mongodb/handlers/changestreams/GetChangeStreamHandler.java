@@ -20,7 +20,6 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
-import com.mongodb.client.model.changestream.FullDocument;
 import io.undertow.Handlers;
 import io.undertow.server.HttpHandler;
 import io.undertow.server.HttpServerExchange;
@@ -32,13 +31,14 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import org.bson.BsonDocument;
 import org.bson.json.JsonMode;
+import org.bson.json.JsonParseException;
+import static org.restheart.exchange.ExchangeKeys.RESUME_AFTER_QPARAM_KEY;
 import org.restheart.exchange.InvalidMetadataException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.exchange.QueryNotFoundException;
 import org.restheart.exchange.QueryVariableNotBoundException;
 import org.restheart.handlers.PipelinedHandler;
-import org.restheart.mongodb.db.MongoReactiveClientSingleton;
 import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -62,6 +62,7 @@ public class GetChangeStreamHandler extends PipelinedHandler {
 
     public static final AttachmentKey<BsonDocument> AVARS_ATTACHMENT_KEY = AttachmentKey.create(BsonDocument.class);
     public static final AttachmentKey<JsonMode> JSON_MODE_ATTACHMENT_KEY = AttachmentKey.create(JsonMode.class);
+    public static final AttachmentKey<BsonDocument> RESUME_AFTER_ATTACHMENT_KEY = AttachmentKey.create(BsonDocument.class);
 
     @Override
     public void handleRequest(HttpServerExchange exchange)
@@ -79,6 +80,12 @@ public class GetChangeStreamHandler extends PipelinedHandler {
                 exchange.putAttachment(JSON_MODE_ATTACHMENT_KEY, request.getJsonMode());
                 exchange.putAttachment(AVARS_ATTACHMENT_KEY, request.getAggreationVars());
 
+                var resumeAfter = getResumeAfter(exchange);
+
+                if (resumeAfter != null) {
+                    exchange.putAttachment(RESUME_AFTER_ATTACHMENT_KEY, resumeAfter);
+                }
+
                 startStream(exchange);
 
                 WEBSOCKET_HANDSHAKE_HANDLER.handleRequest(exchange);
@@ -89,6 +96,12 @@ public class GetChangeStreamHandler extends PipelinedHandler {
 
                 next(exchange);
             }
+        } catch (JsonParseException ex) {
+            response.setInError(HttpStatus.SC_BAD_REQUEST,
+                    "illegal " + RESUME_AFTER_QPARAM_KEY
+                    + " parameter, it is not a valid resume token");
+
+            next(exchange);
         } catch (QueryNotFoundException ex) {
             response.setInError(HttpStatus.SC_NOT_FOUND,
                     "Stream does not exist");
@@ -135,6 +148,22 @@ public class GetChangeStreamHandler extends PipelinedHandler {
                         .equals(UPGRADE_HEADER_VALUE);
     }
 
+    /**
+     * @return the resume token passed by the client via the resumeAfter query
+     * parameter, i.e. the _id of the last received notification
+     * @throws JsonParseException
+     */
+    private BsonDocument getResumeAfter(HttpServerExchange exchange)
+            throws JsonParseException {
+        var qparam = exchange.getQueryParameters().get(RESUME_AFTER_QPARAM_KEY);
+
+        if (qparam == null || qparam.isEmpty()) {
+            return null;
+        }
+
+        return BsonDocument.parse(qparam.getFirst());
+    }
+
     private List<BsonDocument> getResolvedStagesAsList(MongoRequest request)
             throws InvalidMetadataException,
             QueryVariableNotBoundException,
@@ -172,14 +201,11 @@ public class GetChangeStreamHandler extends PipelinedHandler {
         List<BsonDocument> resolvedStages = getResolvedStagesAsList(request);
 
         if (OPENED_STREAMS.add(streamKey)) {
-            MongoReactiveClientSingleton
-                    .getInstance()
-                    .getClient()
-                    .getDatabase(request.getDBName())
-                    .getCollection(request.getCollectionName())
-                    .watch(resolvedStages)
-                    .fullDocument(FullDocument.UPDATE_LOOKUP)
-                    .subscribe(new ChangeStreamSubscriber(streamKey));
+            new ChangeStreamSubscriber(streamKey,
+                    request.getDBName(),
+                    request.getCollectionName(),
+                    resolvedStages)
+                    .start();
 
             return true;
         } else {
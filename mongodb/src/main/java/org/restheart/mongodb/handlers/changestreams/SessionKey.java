@@ -37,11 +37,17 @@ public class SessionKey {
     private final String url;
     private final BsonDocument avars;
     private final JsonMode jsonMode;
+    private final BsonDocument resumeAfter;
 
     public SessionKey(String url, BsonDocument avars, JsonMode jsonMode) {
+        this(url, avars, jsonMode, null);
+    }
+
+    public SessionKey(String url, BsonDocument avars, JsonMode jsonMode, BsonDocument resumeAfter) {
         this.url = url;
         this.avars = avars;
         this.jsonMode = jsonMode;
+        this.resumeAfter = resumeAfter;
     }
 
     public SessionKey(WebSocketHttpExchange exchange) {
@@ -57,6 +63,7 @@ public class SessionKey {
         
         this.avars = exchange.getAttachment(GetChangeStreamHandler.AVARS_ATTACHMENT_KEY);
         this.jsonMode = exchange.getAttachment(GetChangeStreamHandler.JSON_MODE_ATTACHMENT_KEY);
+        this.resumeAfter = exchange.getAttachment(GetChangeStreamHandler.RESUME_AFTER_ATTACHMENT_KEY);
     }
     
     public SessionKey(HttpServerExchange exchange) {
@@ -64,11 +71,12 @@ public class SessionKey {
         
         this.avars = exchange.getAttachment(GetChangeStreamHandler.AVARS_ATTACHMENT_KEY);
         this.jsonMode = exchange.getAttachment(GetChangeStreamHandler.JSON_MODE_ATTACHMENT_KEY);
+        this.resumeAfter = exchange.getAttachment(GetChangeStreamHandler.RESUME_AFTER_ATTACHMENT_KEY);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(getUrl(), getAvars(), getJsonMode());
+        return Objects.hash(getUrl(), getAvars(), getJsonMode(), getResumeAfter());
     }
 
     @Override
@@ -114,4 +122,14 @@ public class SessionKey {
     public JsonMode getJsonMode() {
         return jsonMode;
     }
+
+    /**
+     * clients passing a resume token get a dedicated stream that starts
+     * after it
+     *
+     * @return the resume token requested by the client, null if none
+     */
+    public BsonDocument getResumeAfter() {
+        return resumeAfter;
+    }
 }
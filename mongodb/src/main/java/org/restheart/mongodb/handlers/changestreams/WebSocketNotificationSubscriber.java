@@ -20,18 +20,36 @@
  */
 package org.restheart.mongodb.handlers.changestreams;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
 import io.undertow.websockets.core.WebSocketCallback;
 import io.undertow.websockets.core.WebSocketChannel;
 import io.undertow.websockets.core.WebSockets;
-import java.util.Collections;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Flow.Subscriber;
 import java.util.concurrent.Flow.Subscription;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.MongoServiceConfiguration.SLOW_CONSUMER_POLICY;
+import org.restheart.mongodb.handlers.metrics.SharedMetricRegistryProxy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Fans out the change stream notifications to the WebSocket sessions.
+ *
+ * Each session has a bounded queue of notifications, sent in order by a pool
+ * of workers, one at a time per session, so that a slow client does not delay
+ * the others. When the queue of a session is full, the notification is dropped
+ * or the session is disconnected, depending on the
+ * change-streams-slow-consumer-policy configuration option.
+ *
+ * The metrics changestreams.queued-notifications,
+ * changestreams.dropped-notifications and changestreams.disconnected-sessions
+ * are registered in the default metrics registry.
  *
  * @author omartrasatti
  */
@@ -40,35 +58,136 @@ public class WebSocketNotificationSubscriber implements Subscriber<ChangeStreamN
     private static final Logger LOGGER
             = LoggerFactory.getLogger(WebSocketNotificationSubscriber.class);
 
+    private static final AtomicLong QUEUED = new AtomicLong(0);
+    private static final Counter DROPPED;
+    private static final Counter DISCONNECTED;
+
+    static {
+        var registry = new SharedMetricRegistryProxy().registry();
+
+        Gauge<Long> queued = QUEUED::get;
+        registry.gauge("changestreams.queued-notifications", () -> queued);
+
+        DROPPED = registry.counter("changestreams.dropped-notifications");
+        DISCONNECTED = registry.counter("changestreams.disconnected-sessions");
+    }
+
+    private final int queueSize;
+    private final SLOW_CONSUMER_POLICY policy;
+    private final ExecutorService workers;
+
     private Subscription sub;
 
     public WebSocketNotificationSubscriber() {
+        var conf = MongoServiceConfiguration.get();
+
+        this.queueSize = Math.max(1, conf.getChangeStreamsQueueSize());
+        this.policy = conf.getChangeStreamsSlowConsumerPolicy();
 
+        var count = new AtomicInteger(0);
+
+        this.workers = Executors.newFixedThreadPool(
+                Math.max(1, conf.getChangeStreamsWorkers()),
+                r -> {
+                    var t = new Thread(r, "change-streams-worker-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
     }
 
     @Override
     public void onSubscribe(final Subscription s) {
-        s.request(Long.MAX_VALUE);
         this.sub = s;
+        // one notification at a time, the publisher buffers the others
+        s.request(1);
     }
 
     @Override
     public void onNext(ChangeStreamNotification notification) {
-        Set<ChangeStreamWebSocketSession> sessions
-                = GuavaHashMultimapSingleton.get(notification.getSessionKey());
+        try {
+            var sessions = GuavaHashMultimapSingleton.get(notification.getSessionKey())
+                    .toArray(new ChangeStreamWebSocketSession[0]);
+
+            for (var session : sessions) {
+                enqueue(session, notification);
+            }
+        } finally {
+            this.sub.request(1);
+        }
+    }
 
-        Set<ChangeStreamWebSocketSession> sessionsInError = Collections
-                .newSetFromMap(new ConcurrentHashMap<>());
+    private void enqueue(ChangeStreamWebSocketSession session, ChangeStreamNotification notification) {
+        if (session.offer(notification.getNotificationMessage(), queueSize)) {
+            QUEUED.incrementAndGet();
 
-        sessions.stream().forEach(session -> {
-            this.sendNotification(session, notification.getNotificationMessage(), sessionsInError);
-        });
+            if (session.startSending()) {
+                workers.execute(() -> send(session));
+            }
+        } else if (policy == SLOW_CONSUMER_POLICY.DISCONNECT) {
+            LOGGER.debug("Disconnecting slow stream client, sessionKey={}",
+                    session.getSessionKey());
+
+            DISCONNECTED.inc();
+            close(session);
+        } else {
+            LOGGER.trace("Dropping notification for slow stream client, sessionKey={}",
+                    session.getSessionKey());
+
+            DROPPED.inc();
+        }
+    }
+
+    /**
+     * sends the next queued notification of the session; when it is sent, the
+     * following one is sent by a worker
+     *
+     * @param session
+     */
+    private void send(ChangeStreamWebSocketSession session) {
+        var message = session.poll();
+
+        if (message == null) {
+            session.stopSending();
+
+            // a notification might have been queued meanwhile
+            if (!session.isQueueEmpty() && session.startSending()) {
+                workers.execute(() -> send(session));
+            }
+
+            return;
+        }
+
+        QUEUED.decrementAndGet();
+
+        WebSockets.sendText(message, session.getChannel(), new WebSocketCallback<Void>() {
+            @Override
+            public void complete(final WebSocketChannel channel, Void context) {
+                workers.execute(() -> send(session));
+            }
+
+            @Override
+            public void onError(final WebSocketChannel channel, Void context, Throwable throwable) {
+                LOGGER.debug("Error sending stream notification, sessionKey={}: {}",
+                        session.getSessionKey(), throwable.getMessage());
 
-        sessionsInError.parallelStream().forEach(sessionInError -> {
-            GuavaHashMultimapSingleton.remove(notification.getSessionKey(), sessionInError);
+                close(session);
+            }
         });
     }
 
+    static void close(ChangeStreamWebSocketSession session) {
+        GuavaHashMultimapSingleton.remove(session.getSessionKey(), session);
+
+        QUEUED.addAndGet(-session.clear());
+
+        try {
+            session.getChannel().close();
+        } catch (IOException ioe) {
+            LOGGER.debug("Error closing stream connection, sessionKey={}",
+                    session.getSessionKey(), ioe);
+        }
+    }
+
     @Override
     public void onError(final Throwable t) {
         LOGGER.warn("Error sending stream notification: " + t.getMessage());
@@ -81,20 +200,6 @@ public class WebSocketNotificationSubscriber implements Subscriber<ChangeStreamN
 
     public void stop() {
         this.sub.cancel();
-    }
-
-    private synchronized void sendNotification(ChangeStreamWebSocketSession session, String notificationMessage, Set<ChangeStreamWebSocketSession> sessionsInError) {
-        WebSockets.sendText(notificationMessage, session.getChannel(), new WebSocketCallback<Void>() {
-
-            @Override
-            public void complete(final WebSocketChannel channel, Void context) {
-
-            }
-
-            @Override
-            public void onError(final WebSocketChannel channel, Void context, Throwable throwable) {
-                sessionsInError.add(session);
-            }
-        });
+        this.workers.shutdown();
     }
 }
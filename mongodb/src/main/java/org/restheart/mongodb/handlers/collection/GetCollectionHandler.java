@@ -23,14 +23,17 @@ package org.restheart.mongodb.handlers.collection;
 import com.google.common.annotations.VisibleForTesting;
 import com.mongodb.MongoException;
 import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
 import org.bson.BsonArray;
 import org.bson.json.JsonParseException;
+import static org.restheart.exchange.ExchangeKeys.CONTINUATION_TOKEN_HEADER;
 import org.restheart.exchange.IllegalQueryParamenterException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
 import org.restheart.mongodb.db.Database;
 import org.restheart.mongodb.db.DatabaseImpl;
+import org.restheart.mongodb.db.KeysetPagination;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
 import org.slf4j.Logger;
@@ -104,16 +107,52 @@ public class GetCollectionHandler extends PipelinedHandler {
         if (request.getPagesize() > 0) {
 
             try {
-                data = dbsDAO.getCollectionData(
-                        request.getClientSession(),
-                        coll,
-                        request.getPage(),
-                        request.getPagesize(),
-                        request.getSortByDocument(),
-                        request.getFiltersDocument(),
-                        request.getHintDocument(),
-                        request.getProjectionDocument(),
-                        request.getCursorAllocationPolicy());
+                if (request.isKeysetPagination()) {
+                    data = dbsDAO.getCollectionDataAfter(
+                            request.getClientSession(),
+                            coll,
+                            request.getPagesize(),
+                            request.getSortByDocument(),
+                            request.getFiltersDocument(),
+                            request.getHintDocument(),
+                            request.getProjectionDocument(),
+                            request.getAfter());
+
+                    var sort = KeysetPagination.sort(request.getSortByDocument());
+
+                    // a full page might be followed by other documents
+                    if (data.size() == request.getPagesize()) {
+                        var last = data.get(data.size() - 1).asDocument();
+
+                        response.getHeaders().put(
+                                HttpString.tryFromString(CONTINUATION_TOKEN_HEADER),
+                                KeysetPagination.token(sort, last));
+                    }
+
+                    // remove the sort keys not requested by the projection
+                    var keys = request.getProjectionDocument();
+
+                    data.forEach(doc -> KeysetPagination.strip(doc.asDocument(), keys, sort));
+                } else {
+                    data = dbsDAO.getCollectionData(
+                            request.getClientSession(),
+                            coll,
+                            request.getPage(),
+                            request.getPagesize(),
+                            request.getSortByDocument(),
+                            request.getFiltersDocument(),
+                            request.getHintDocument(),
+                            request.getProjectionDocument(),
+                            request.getCursorAllocationPolicy());
+                }
+            } catch (IllegalQueryParamenterException iqpe) {
+                // the continuation token is invalid
+                MongoResponse.of(exchange).setInError(
+                        HttpStatus.SC_BAD_REQUEST,
+                        iqpe.getMessage(),
+                        iqpe);
+                next(exchange);
+                return;
             } catch (JsonParseException jpe) {
                 // the filter expression is not a valid json string
                 LOGGER.debug("invalid filter expression {}",
@@ -23,16 +23,24 @@ package org.restheart.mongodb.handlers.files;
 import com.mongodb.client.gridfs.GridFSBucket;
 import com.mongodb.client.gridfs.GridFSBuckets;
 import com.mongodb.client.gridfs.model.GridFSFile;
+import static com.mongodb.client.model.Filters.and;
 import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Filters.gte;
+import static com.mongodb.client.model.Filters.lte;
+import static com.mongodb.client.model.Sorts.ascending;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.Headers;
+import io.undertow.util.SameThreadExecutor;
 import java.io.IOException;
+import org.bson.BsonDocument;
 import org.bson.BsonObjectId;
 import org.bson.types.ObjectId;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.handlers.PipelinedHandler;
+import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.MongoClientSingleton;
+import org.restheart.mongodb.db.MongoReactiveClientSingleton;
 import org.restheart.mongodb.utils.RequestHelper;
 import org.restheart.mongodb.utils.ResponseHelper;
 import org.restheart.utils.HttpStatus;
@@ -57,9 +65,19 @@ public class GetFileBinaryHandler extends PipelinedHandler {
     public static final String CONTENT_TRANSFER_ENCODING_BINARY
             = "binary";
 
+    /**
+     *
+     */
+    public static final String BYTES_UNIT = "bytes";
+
     private static final Logger LOGGER
             = LoggerFactory.getLogger(GetFileBinaryHandler.class);
 
+    /**
+     * returned by range() if the Range header is not satisfiable
+     */
+    static final long[] UNSATISFIABLE_RANGE = new long[0];
+
     static String extractBucketName(final String collectionName) {
         return collectionName.split("\\.")[0];
     }
@@ -181,7 +199,28 @@ public class GetFileBinaryHandler extends PipelinedHandler {
                     APPLICATION_OCTET_STREAM);
         }
 
-        response.getHeaders().put(Headers.CONTENT_LENGTH, file.getLength());
+        response.getHeaders().put(Headers.ACCEPT_RANGES, BYTES_UNIT);
+
+        var range = ifRange(exchange, file)
+                ? range(exchange.getRequestHeaders().getFirst(Headers.RANGE),
+                        file.getLength())
+                : null;
+
+        if (range == UNSATISFIABLE_RANGE) {
+            response.getHeaders().put(Headers.CONTENT_RANGE,
+                    BYTES_UNIT + " */" + file.getLength());
+            response.setInError(HttpStatus.SC_REQUESTED_RANGE_NOT_SATISFIABLE,
+                    "Range not satisfiable");
+            return;
+        }
+
+        if (range == null) {
+            response.getHeaders().put(Headers.CONTENT_LENGTH, file.getLength());
+        } else {
+            response.getHeaders().put(Headers.CONTENT_LENGTH, range[1] - range[0] + 1);
+            response.getHeaders().put(Headers.CONTENT_RANGE,
+                    BYTES_UNIT + " " + range[0] + "-" + range[1] + "/" + file.getLength());
+        }
 
         response.getHeaders().put(
                 Headers.CONTENT_DISPOSITION,
@@ -194,8 +233,32 @@ public class GetFileBinaryHandler extends PipelinedHandler {
 
         ResponseHelper.injectEtagHeader(exchange, file.getMetadata());
 
+        if (range != null) {
+            response.setStatusCode(HttpStatus.SC_PARTIAL_CONTENT);
+
+            response.setCustomerSender(() -> {
+                try {
+                    sendRange(request, file, range[0], range[1], exchange);
+                } catch (IOException ioe) {
+                    LOGGER.debug("Error sending file range", ioe);
+                }
+            });
+
+            return;
+        }
+
         response.setStatusCode(HttpStatus.SC_OK);
 
+        var prefetch = MongoServiceConfiguration.get().getGridfsDownloadPrefetchChunks();
+
+        // the reactive download does not support sessions of the sync driver
+        if (prefetch > 0
+                && request.getClientSession() == null
+                && MongoReactiveClientSingleton.isInitialized()) {
+            response.setCustomerSender(() -> sendAsync(request, file, prefetch, exchange));
+            return;
+        }
+
         response.setCustomerSender(() -> {
             LOGGER.debug("*************** used a custom sender");
             if (request.getClientSession() != null) {
@@ -211,6 +274,157 @@ public class GetFileBinaryHandler extends PipelinedHandler {
         });
     }
 
+    /**
+     * sends the file via the reactive driver, prefetching chunks and writing
+     * them to the response channel without blocking; the exchange is
+     * dispatched so that it is not ended when the handlers chain returns
+     */
+    private void sendAsync(
+            final MongoRequest request,
+            final GridFSFile file,
+            final int prefetch,
+            final HttpServerExchange exchange) {
+        var gridFSBucket = com.mongodb.reactivestreams.client.gridfs.GridFSBuckets
+                .create(MongoReactiveClientSingleton.getInstance().getClient()
+                        .getDatabase(request.getDBName()),
+                        extractBucketName(request.getCollectionName()));
+
+        var publisher = gridFSBucket.downloadToPublisher(file.getId());
+
+        exchange.dispatch(SameThreadExecutor.INSTANCE, () -> publisher
+                .subscribe(new GridFSDownloadSubscriber(exchange, prefetch)));
+    }
+
+    /**
+     * sends the bytes from start to end (inclusive) of the file, reading only
+     * the chunks that contain them
+     */
+    private void sendRange(
+            final MongoRequest request,
+            final GridFSFile file,
+            final long start,
+            final long end,
+            final HttpServerExchange exchange) throws IOException {
+        final String bucket = extractBucketName(request.getCollectionName());
+
+        var chunks = MongoClientSingleton.getInstance().getClient()
+                .getDatabase(request.getDBName())
+                .getCollection(bucket.concat(".chunks"), BsonDocument.class);
+
+        var chunkSize = file.getChunkSize();
+        var firstChunk = (int) (start / chunkSize);
+        var lastChunk = (int) (end / chunkSize);
+
+        var query = and(eq("files_id", file.getId()),
+                gte("n", firstChunk),
+                lte("n", lastChunk));
+
+        var cursor = request.getClientSession() == null
+                ? chunks.find(query)
+                : chunks.find(request.getClientSession(), query);
+
+        if (!exchange.isBlocking()) {
+            exchange.startBlocking();
+        }
+
+        var os = exchange.getOutputStream();
+
+        try (var it = cursor.sort(ascending("n")).iterator()) {
+            while (it.hasNext()) {
+                var chunk = it.next();
+                var data = chunk.getBinary("data").getData();
+                long chunkStart = (long) chunk.getInt32("n").getValue() * chunkSize;
+
+                int from = (int) Math.max(0, start - chunkStart);
+                int to = (int) Math.min(data.length, end - chunkStart + 1);
+
+                if (to > from) {
+                    os.write(data, from, to - from);
+                }
+            }
+        }
+
+        os.flush();
+    }
+
+    /**
+     * @return true if the Range header must be honored, i.e. if the If-Range
+     * header is missing or matches the ETag of the file
+     */
+    private boolean ifRange(HttpServerExchange exchange, GridFSFile file) {
+        var ifRange = exchange.getRequestHeaders().getFirst(Headers.IF_RANGE);
+
+        if (ifRange == null) {
+            return true;
+        }
+
+        var etag = file.getMetadata() == null
+                ? null
+                : file.getMetadata().get("_etag");
+
+        return etag != null
+                && ifRange.replace("\"", "").equals(etag.toString());
+    }
+
+    /**
+     * parses the Range header; only single ranges are supported, requests with
+     * multiple ranges get the whole file
+     *
+     * @param header the value of the Range header
+     * @param length the file length
+     * @return the first and the last byte position (inclusive), null if the
+     * whole file must be sent, UNSATISFIABLE_RANGE if the range is not
+     * satisfiable
+     */
+    static long[] range(String header, long length) {
+        if (header == null
+                || !header.startsWith(BYTES_UNIT + "=")
+                || header.contains(",")) {
+            return null;
+        }
+
+        var spec = header.substring(BYTES_UNIT.length() + 1).trim();
+        var dash = spec.indexOf('-');
+
+        if (dash < 0) {
+            return null;
+        }
+
+        long start, end;
+
+        try {
+            if (dash == 0) {
+                // suffix range, the last n bytes
+                var suffix = Long.parseLong(spec.substring(1));
+
+                if (suffix <= 0) {
+                    return UNSATISFIABLE_RANGE;
+                }
+
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(spec.substring(0, dash));
+                end = dash == spec.length() - 1
+                        ? length - 1
+                        : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+            }
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+
+        if (start > end) {
+            // e.g. bytes=10-5, invalid range, ignored
+            return start < length ? null : UNSATISFIABLE_RANGE;
+        }
+
+        if (start >= length) {
+            return UNSATISFIABLE_RANGE;
+        }
+
+        return new long[]{start, end};
+    }
+
     private String extractFilename(final GridFSFile dbsfile) {
         return dbsfile.getFilename() != null
                 ? dbsfile.getFilename()
@@ -0,0 +1,185 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.files;
+
+import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xnio.IoUtils;
+import org.xnio.channels.StreamSinkChannel;
+
+/**
+ * Writes the chunks of a GridFS file, as emitted by the reactive driver, to the
+ * response channel without blocking.
+ *
+ * prefetch chunks are requested ahead; a further chunk is requested each time
+ * a chunk has been completely written. When the channel is not writable, the
+ * writing resumes from the write ready callback of the channel.
+ *
+ * The exchange must have been dispatched, it is ended when the last chunk has
+ * been written. On errors the connection is closed, since the response has
+ * been already started.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class GridFSDownloadSubscriber implements Subscriber<ByteBuffer> {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(GridFSDownloadSubscriber.class);
+
+    private final HttpServerExchange exchange;
+    private final int prefetch;
+    private final Queue<ByteBuffer> pending = new ConcurrentLinkedQueue<>();
+
+    private Subscription subscription;
+    private StreamSinkChannel channel;
+    private volatile boolean completed = false;
+    private boolean done = false;
+
+    /**
+     *
+     * @param exchange
+     * @param prefetch the number of chunks requested ahead
+     */
+    GridFSDownloadSubscriber(HttpServerExchange exchange, int prefetch) {
+        this.exchange = exchange;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        this.subscription = s;
+        this.channel = exchange.getResponseChannel();
+
+        if (this.channel == null) {
+            LOGGER.error("Error downloading file, response channel not available");
+            s.cancel();
+            abort();
+            return;
+        }
+
+        this.channel.getWriteSetter().set(ch -> {
+            ch.suspendWrites();
+            write();
+        });
+
+        // the client closed the connection
+        this.channel.getCloseSetter().set(ch -> subscription.cancel());
+
+        s.request(prefetch);
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        pending.add(chunk);
+        write();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        LOGGER.error("Error downloading file", t);
+
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+
+            done = true;
+        }
+
+        abort();
+    }
+
+    @Override
+    public void onComplete() {
+        completed = true;
+        write();
+    }
+
+    /**
+     * writes the pending chunks until the channel accepts them
+     */
+    private void write() {
+        int written = 0;
+
+        synchronized (this) {
+            if (done) {
+                return;
+            }
+
+            try {
+                ByteBuffer chunk;
+
+                while ((chunk = pending.peek()) != null) {
+                    channel.write(chunk);
+
+                    if (chunk.hasRemaining()) {
+                        // resumed by the write ready callback
+                        channel.resumeWrites();
+                        break;
+                    }
+
+                    pending.poll();
+                    written++;
+                }
+
+                if (completed && pending.isEmpty()) {
+                    done = true;
+                    end();
+                    return;
+                }
+            } catch (IOException ioe) {
+                LOGGER.debug("Error writing file chunk", ioe);
+                done = true;
+                subscription.cancel();
+                abort();
+                return;
+            }
+        }
+
+        // outside the lock, since the next chunk can be emitted synchronously
+        if (written > 0) {
+            subscription.request(written);
+        }
+    }
+
+    /**
+     * endExchange() closes the blocking output stream, that cannot be done in
+     * the io thread; it also flushes and shuts down the response channel
+     */
+    private void end() {
+        if (exchange.isInIoThread()) {
+            exchange.getConnection().getWorker().execute(exchange::endExchange);
+        } else {
+            exchange.endExchange();
+        }
+    }
+
+    private void abort() {
+        IoUtils.safeClose(exchange.getConnection());
+    }
+}
@@ -113,6 +113,13 @@ public class PostBucketHandler extends PipelinedHandler {
                                 request.getCollectionName(),
                                 metadata,
                                 request.getFilePath());
+            } else if (request.getFileInputStream() != null) {
+                result = gridFsDAO
+                        .createFile(dbsDAO,
+                                request.getDBName(),
+                                request.getCollectionName(),
+                                metadata,
+                                request.getFileInputStream());
             } else {
                 response.setInError(
                         HttpStatus.SC_BAD_REQUEST,
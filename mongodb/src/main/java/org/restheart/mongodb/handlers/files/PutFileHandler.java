@@ -124,6 +124,16 @@ public class PutFileHandler extends PipelinedHandler {
                                 id,
                                 request.getETag(),
                                 request.isETagCheckRequired());
+            } else if (request.getFileInputStream() != null) {
+                result = gridFsDAO
+                        .upsertFile(dbsDAO,
+                                request.getDBName(),
+                                request.getCollectionName(),
+                                metadata,
+                                request.getFileInputStream(),
+                                id,
+                                request.getETag(),
+                                request.isETagCheckRequired());
             } else {
                 // throw new RuntimeException("error. file data is null");
                 // try to pass to next handler in order to PUT new metadata on existing file.
@@ -0,0 +1,117 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Converts BsonValues to the org.json objects validated by everit json
+ * schema, walking them without the String intermediate of
+ * new JSONObject(bson.toJson()).
+ *
+ * The result is the same of parsing the relaxed extended json representation:
+ * types that are not json types (e.g. ObjectId) are converted to their
+ * extended json objects, e.g. {"$oid": "..."}.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonToJSON {
+
+    private BsonToJSON() {
+    }
+
+    /**
+     * @param document
+     * @return the JSONObject equivalent to new JSONObject(document.toJson())
+     */
+    public static JSONObject toJSONObject(BsonDocument document) {
+        var ret = new JSONObject();
+
+        document.forEach((k, v) -> ret.put(k, toJSON(v)));
+
+        return ret;
+    }
+
+    /**
+     * @param array
+     * @return the JSONArray equivalent to the relaxed extended json
+     * representation of array
+     */
+    public static JSONArray toJSONArray(BsonArray array) {
+        var ret = new JSONArray();
+
+        array.forEach(v -> ret.put(toJSON(v)));
+
+        return ret;
+    }
+
+    /**
+     * @param value
+     * @return the org.json value equivalent to the relaxed extended json
+     * representation of value
+     */
+    public static Object toJSON(BsonValue value) {
+        switch (value.getBsonType()) {
+            case DOCUMENT:
+                return toJSONObject(value.asDocument());
+            case ARRAY:
+                return toJSONArray(value.asArray());
+            case STRING:
+                return value.asString().getValue();
+            case BOOLEAN:
+                return value.asBoolean().getValue();
+            case NULL:
+                return JSONObject.NULL;
+            case INT32:
+                return value.asInt32().getValue();
+            case INT64:
+                var l = value.asInt64().getValue();
+
+                // as org.json parses integer numbers
+                return l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE
+                        ? (Object) (int) l
+                        : (Object) l;
+            case DOUBLE:
+                var d = value.asDouble().getValue();
+
+                if (!Double.isNaN(d) && !Double.isInfinite(d)) {
+                    return d;
+                } else {
+                    // {"$numberDouble": "NaN"}
+                    return viaJson(value);
+                }
+            case OBJECT_ID:
+                return new JSONObject().put("$oid", value.asObjectId().getValue().toHexString());
+            default:
+                // less common types, e.g. dates, use the extended json
+                // representation of the value
+                return viaJson(value);
+        }
+    }
+
+    private static Object viaJson(BsonValue value) {
+        return new JSONObject(new BsonDocument("v", value).toJson()).get("v");
+    }
+}
@@ -27,7 +27,6 @@ import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.loader.SchemaLoader;
-import org.json.JSONObject;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
 import static org.restheart.exchange.ExchangeKeys._SCHEMAS;
@@ -139,7 +138,7 @@ public class JsonSchemaCacheSingleton {
         BsonDocument document = loadRaw(schemaStoreDb, schemaId);
 
         return SchemaLoader.load(
-                new JSONObject(document.toJson()), new SchemaStoreClient());
+                BsonToJSON.toJSONObject(document), new SchemaStoreClient());
     }
 
     private BsonDocument loadRaw(
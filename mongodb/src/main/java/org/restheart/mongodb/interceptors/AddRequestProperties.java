@@ -71,7 +71,17 @@ public class AddRequestProperties implements MongoInterceptor {
     @Override
     public void handle(MongoRequest request, MongoResponse response) throws Exception {
         var args = request.getCollectionProps().get("addRequestProperties");
-        
+
+        if (request.isContentStreamed()) {
+            // the properties are added to the documents as they are read
+            request.addStreamedContentProcessor(doc -> {
+                addProps(doc, args, request, response);
+                return doc;
+            });
+
+            return;
+        }
+
         var content = request.getContent() != null
                 ? request.getContent()
                 : new BsonDocument();
@@ -20,18 +20,24 @@
  */
 package org.restheart.mongodb.interceptors;
 
+import io.undertow.util.Headers;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.everit.json.schema.Schema;
 import org.everit.json.schema.ValidationException;
-import org.json.JSONObject;
+import org.restheart.exchange.Exchange;
 import static org.restheart.exchange.ExchangeKeys._SCHEMAS;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.exchange.UnsupportedDocumentIdException;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.exchange.BsonRequestContentInjector;
+import org.restheart.mongodb.handlers.schema.BsonToJSON;
 import org.restheart.mongodb.handlers.schema.JsonSchemaCacheSingleton;
 import org.restheart.mongodb.handlers.schema.JsonSchemaNotFoundException;
 import org.restheart.mongodb.utils.URLUtils;
@@ -50,7 +56,8 @@ import org.slf4j.LoggerFactory;
  * This intercetor is able to check PUT and POST requests that don't use update
  * operators. PATCH requests are checked by jsonSchemaAfterWrite
  * <br><br>
- * Note that checking bulk PATCH, i.e. PATCH /coll/*, is not supported. In this
+ * Note that checking bulk PATCH, i.e. PATCH /coll/*, and POST requests with
+ * application/x-ndjson content is not supported. In this
  * case the optional metadata property 'skipNotSuppored' controls the behaviour:
  * if true, the request is not checked and executed, if false the request fails.
  *
@@ -113,6 +120,25 @@ public class JsonSchemaBeforeWriteChecker implements MongoInterceptor {
             }
         }
 
+        // the content of application/x-ndjson requests is streamed
+        if (request.isPost() && BsonRequestContentInjector.isNdjson(
+                request.getHeaders().get(Headers.CONTENT_TYPE))) {
+            BsonValue skipNotSupported = args.get(SKIP_NOT_SUPPORTED_PROPERTY);
+
+            if (skipNotSupported != null
+                    && skipNotSupported.isBoolean()
+                    && skipNotSupported.asBoolean().getValue()) {
+                LOGGER.debug("skipping jsonSchema checking since the request content is ndjson and skipNotSupported=true");
+                return;
+            } else {
+                response.setInError(HttpStatus.SC_NOT_IMPLEMENTED,
+                        "'jsonSchema' checker does not support "
+                        + Exchange.NDJSON_MEDIA_TYPE + " requests. "
+                        + "Set 'skipNotSupported:true' to allow them.");
+                return;
+            }
+        }
+
         BsonValue _schemaStoreDb = args.get(SCHEMA_STORE_DB_PROPERTY);
         String schemaStoreDb;
 
@@ -172,59 +198,81 @@ public class JsonSchemaBeforeWriteChecker implements MongoInterceptor {
             return;
         }
 
-        documentsToCheck(request, response)
-                .stream()
-                .forEachOrdered(doc -> {
+        var docs = documentsToCheck(request, response);
+
+        var threshold = MongoServiceConfiguration.get() == null
+                ? 0
+                : MongoServiceConfiguration.get().getJsonSchemaParallelThreshold();
+
+        var indexes = IntStream.range(0, docs.size());
+
+        if (threshold > 0 && docs.size() >= threshold) {
+            indexes = indexes.parallel();
+        }
+
+        // the errors are collected in the order of the documents
+        // so that the response is the same of the sequential validation
+        var errors = indexes
+                .mapToObj(idx -> validate(theschema, docs.get(idx)))
+                .collect(Collectors.toList());
+
+        errors.stream()
+                .filter(Objects::nonNull)
+                .forEachOrdered(errMsg -> response.setInError(HttpStatus.SC_BAD_REQUEST,
+                        "Request content violates schema "
+                        + JsonUtils.getIdAsString(schemaId, true)
+                        + ": "
+                        + errMsg));
+    }
 
-                    try {
-                        theschema.validate(doc);
-                    } catch (ValidationException ve) {
-                        var errors = new ArrayList<String>();
+    /**
+     * @return the error message, null if the document is valid
+     */
+    private String validate(Schema schema, BsonDocument doc) {
+        try {
+            schema.validate(BsonToJSON.toJSONObject(doc));
+            return null;
+        } catch (ValidationException ve) {
+            var errors = new ArrayList<String>();
 
-                        errors.add(ve.getMessage().replaceAll("#: ", ""));
+            errors.add(ve.getMessage().replaceAll("#: ", ""));
 
-                        ve.getCausingExceptions().stream()
-                                .map(ValidationException::getMessage)
-                                .forEach(errors::add);
+            ve.getCausingExceptions().stream()
+                    .map(ValidationException::getMessage)
+                    .forEach(errors::add);
 
-                        var errMsgBuilder = new StringBuilder();
+            var errMsgBuilder = new StringBuilder();
 
-                        errors.stream()
-                                .map(e -> e.replaceAll("#: ", ""))
-                                .forEachOrdered(e -> errMsgBuilder.append(e).append(", "));
+            errors.stream()
+                    .map(e -> e.replaceAll("#: ", ""))
+                    .forEachOrdered(e -> errMsgBuilder.append(e).append(", "));
 
-                        var errMsg = errMsgBuilder.toString();
+            var errMsg = errMsgBuilder.toString();
 
-                        if (errMsg.length() > 2
-                                && ", ".equals(errMsg.substring(errMsg.length() - 2, errMsg.length()))) {
-                            errMsg = errMsg.substring(0, errMsg.length() - 2);
+            if (errMsg.length() > 2
+                    && ", ".equals(errMsg.substring(errMsg.length() - 2, errMsg.length()))) {
+                errMsg = errMsg.substring(0, errMsg.length() - 2);
 
-                        }
+            }
 
-                        response.setInError(HttpStatus.SC_BAD_REQUEST,
-                                "Request content violates schema "
-                                + JsonUtils.getIdAsString(schemaId, true)
-                                + ": "
-                                + errMsg);
-                    }
-                });
+            return errMsg;
+        }
     }
 
-    List<JSONObject> documentsToCheck(MongoRequest request, MongoResponse response) {
-        var ret = new ArrayList<JSONObject>();
+    List<BsonDocument> documentsToCheck(MongoRequest request, MongoResponse response) {
+        var ret = new ArrayList<BsonDocument>();
 
         var content = request.getContent() == null
                 ? new BsonDocument()
                 : request.getContent();
 
         if (content.isDocument()) {
-            ret.add(new JSONObject(content.asDocument().toJson()));
+            ret.add(content.asDocument());
         } else if (content.isArray()) {
             content.asArray()
                     .stream()
                     .filter(doc -> doc.isDocument())
-                    .map(doc -> doc.asDocument().toJson())
-                    .map(doc -> new JSONObject(doc))
+                    .map(doc -> doc.asDocument())
                     .forEachOrdered(ret::add);
         }
 
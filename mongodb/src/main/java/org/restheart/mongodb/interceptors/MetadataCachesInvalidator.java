@@ -0,0 +1,193 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.interceptors;
+
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import static org.restheart.exchange.ExchangeKeys.COLL_META_DOCID_PREFIX;
+import static org.restheart.exchange.ExchangeKeys.DB_META_DOCID;
+import static org.restheart.exchange.ExchangeKeys.META_COLLNAME;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import org.restheart.mongodb.db.ChangeStreamResumer;
+import org.restheart.mongodb.db.MongoReactiveClientSingleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches the _properties collections of all the dbs via a cluster wide
+ * change stream and invalidates the entries of MetadataCachesSingleton as
+ * soon as the db or collection properties change, on any node.
+ *
+ * The resume token of the last notification is tracked, so that the stream
+ * is reopened after it on errors. If it is reopened without a resume token,
+ * i.e. it cannot be resumed or no notification has been received yet, all
+ * the cached properties are invalidated, since some changes might have been
+ * missed.
+ *
+ * Enabled by the configuration option local-cache-invalidation-stream;
+ * requires a replica set or a sharded cluster: on a standalone server the
+ * stream is not retried. The retries are managed by ChangeStreamResumer.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MetadataCachesInvalidator implements Subscriber<ChangeStreamDocument<Document>> {
+
+    private static final Logger LOGGER
+            = LoggerFactory.getLogger(MetadataCachesInvalidator.class);
+
+    private static final List<BsonDocument> STAGES = List.of(BsonDocument
+            .parse("{'$match': {'$or': ["
+                    + "{'ns.coll': '" + META_COLLNAME + "'},"
+                    + "{'operationType': 'dropDatabase'}]}}"));
+
+    private final ChangeStreamResumer resumer;
+
+    /**
+     * opens the change stream
+     */
+    public static void start() {
+        new MetadataCachesInvalidator(new ChangeStreamResumer(null)).open();
+    }
+
+    /**
+     * reopens the change stream after an error; without a resume token the
+     * changes occurred since the previous stream are lost and all the cached
+     * properties are invalidated
+     */
+    private void reopen() {
+        open();
+
+        if (resumer.getResumeToken() == null) {
+            LOGGER.debug("Metadata invalidation stream reopened without "
+                    + "resume token, invalidating all cached properties");
+            MetadataCachesSingleton.getInstance().invalidateAll();
+        }
+    }
+
+    private MetadataCachesInvalidator(ChangeStreamResumer resumer) {
+        this.resumer = resumer;
+    }
+
+    /**
+     * a subscriber must not be subscribed more than once, each attempt uses a
+     * new instance
+     */
+    private void open() {
+        var publisher = MongoReactiveClientSingleton
+                .getInstance()
+                .getClient()
+                .watch(STAGES);
+
+        var resumeToken = resumer.getResumeToken();
+
+        if (resumeToken != null) {
+            publisher = publisher.resumeAfter(resumeToken);
+        }
+
+        resumer.opened();
+        publisher.subscribe(this);
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(ChangeStreamDocument<Document> notification) {
+        resumer.notified(notification.getResumeToken());
+
+        var ns = notification.getNamespaceDocument();
+
+        if (ns == null || !ns.isString("db")) {
+            return;
+        }
+
+        var dbName = ns.getString("db").getValue();
+        var caches = MetadataCachesSingleton.getInstance();
+
+        if (notification.getOperationType() == OperationType.DROP_DATABASE
+                || notification.getOperationType() == OperationType.DROP
+                || notification.getOperationType() == OperationType.RENAME) {
+            // the _properties collection has been dropped or renamed
+            caches.invalidateDb(dbName);
+            return;
+        }
+
+        var key = notification.getDocumentKey();
+
+        if (key == null || !key.isString("_id")) {
+            return;
+        }
+
+        var id = key.getString("_id").getValue();
+
+        if (DB_META_DOCID.equals(id)) {
+            LOGGER.debug("Invalidating cached properties of db {}", dbName);
+            caches.invalidateDb(dbName);
+        } else if (id.startsWith(COLL_META_DOCID_PREFIX)) {
+            var collName = id.substring(COLL_META_DOCID_PREFIX.length());
+
+            LOGGER.debug("Invalidating cached properties of collection {}/{}",
+                    dbName, collName);
+            caches.invalidateCollection(dbName, collName);
+        }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        switch (resumer.failed(t)) {
+            case STOP:
+                LOGGER.error("Cannot reopen the metadata invalidation stream, "
+                        + "the cached properties are no longer invalidated "
+                        + "on changes: {}", t.getMessage());
+                return;
+            case RESTART:
+                // all cached properties are invalidated on reopen
+                LOGGER.warn("Cannot resume the metadata invalidation stream, "
+                        + "reopening it: {}", t.getMessage());
+                break;
+            default:
+                LOGGER.warn("Error from the metadata invalidation stream, "
+                        + "resuming it in {} msecs: {}",
+                        resumer.getRetryDelay(), t.getMessage());
+        }
+
+        restart();
+    }
+
+    @Override
+    public void onComplete() {
+        // not expected for cluster wide streams
+        LOGGER.debug("Metadata invalidation stream completed, reopening it");
+        restart();
+    }
+
+    private void restart() {
+        var next = new MetadataCachesInvalidator(resumer);
+
+        resumer.retry(next::reopen, next::onError);
+    }
+}
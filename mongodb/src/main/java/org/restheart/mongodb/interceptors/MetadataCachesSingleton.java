@@ -21,7 +21,13 @@
 package org.restheart.mongodb.interceptors;
 
 import com.mongodb.MongoException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 import org.bson.BsonDocument;
 import org.restheart.cache.Cache;
 import org.restheart.cache.CacheFactory;
@@ -37,12 +43,11 @@ import org.restheart.mongodb.db.DatabaseImpl;
  */
 public class MetadataCachesSingleton {
 
-    private static final String SEPARATOR = "_@_@_";
     private static boolean initialized = false;
 
     private static long ttl = 1_000;
+    private static long size = 1_000;
     private static boolean enabled = false;
-    private static final long MAX_CACHE_SIZE = 1_000;
 
     /**
      *
@@ -50,6 +55,7 @@ public class MetadataCachesSingleton {
      */
     public static void init(MongoServiceConfiguration conf) {
         ttl = conf.getLocalCacheTtl();
+        size = conf.getLocalCacheSize();
         enabled = conf.isLocalCacheEnabled();
         initialized = true;
     }
@@ -70,12 +76,15 @@ public class MetadataCachesSingleton {
     }
     private final Database dbsDAO;
     private LoadingCache<String, BsonDocument> dbPropsCache = null;
-    private LoadingCache<String, BsonDocument> collectionPropsCache = null;
+    private LoadingCache<CollectionKey, BsonDocument> collectionPropsCache = null;
+
+    // the keys of the cached collection properties by db name
+    private final Map<String, Set<CollectionKey>> collectionKeysByDb = new ConcurrentHashMap<>();
 
     /**
      * Default ctor
      */
-    private MetadataCachesSingleton(DatabaseImpl dbsDAO) {
+    MetadataCachesSingleton(Database dbsDAO) {
         this.dbsDAO = dbsDAO;
         setup();
     }
@@ -86,22 +95,22 @@ public class MetadataCachesSingleton {
         }
 
         if (enabled) {
-            this.dbPropsCache = CacheFactory.createLocalLoadingCache(MAX_CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
+            this.dbPropsCache = CacheFactory.createLocalLoadingCache(size, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
                     (String key) -> {
                         return this.dbsDAO.getDatabaseProperties(
                                 null, // no client session 
                                 key);
                     });
 
-            this.collectionPropsCache = CacheFactory.createLocalLoadingCache(MAX_CACHE_SIZE, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
-                    (String key) -> {
-                        String[] dbNameAndCollectionName = key.split(SEPARATOR);
+            this.collectionPropsCache = CacheFactory.createLocalLoadingCache(size, Cache.EXPIRE_POLICY.AFTER_WRITE, ttl,
+                    (CollectionKey key) -> {
                         return this.dbsDAO
                                 .getCollectionProperties(
                                         null, // no client session 
-                                        dbNameAndCollectionName[0],
-                                        dbNameAndCollectionName[1]);
-                    });
+                                        key.dbName,
+                                        key.collName);
+                    },
+                    entry -> unindex(entry.getKey()));
         }
     }
 
@@ -153,7 +162,9 @@ public class MetadataCachesSingleton {
             throw new IllegalStateException("tried to use disabled cache");
         }
 
-        Optional<BsonDocument> _collProps = collectionPropsCache.get(dbName + SEPARATOR + collName);
+        var key = new CollectionKey(dbName, collName);
+
+        Optional<BsonDocument> _collProps = collectionPropsCache.get(key);
 
         if (_collProps != null) {
             if (_collProps.isPresent()) {
@@ -163,7 +174,7 @@ public class MetadataCachesSingleton {
             }
         } else {
             try {
-                _collProps = collectionPropsCache.getLoading(dbName + SEPARATOR + collName);
+                _collProps = collectionPropsCache.getLoading(key);
             } catch (Throwable uex) {
                 if (uex.getCause() instanceof MongoException) {
                     throw new RuntimeException(uex.getCause());
@@ -172,6 +183,10 @@ public class MetadataCachesSingleton {
                 }
             }
 
+            // indexed once loaded, so that the index is not updated
+            // under the lock of the cache entry
+            index(key);
+
             if (_collProps.isPresent()) {
                 return _collProps.get();
             } else {
@@ -187,7 +202,13 @@ public class MetadataCachesSingleton {
     public void invalidateDb(String dbName) {
         if (enabled && dbPropsCache != null) {
             dbPropsCache.invalidate(dbName);
-            collectionPropsCache.asMap().keySet().stream().filter(k -> k.startsWith(dbName + SEPARATOR)).forEach(k -> collectionPropsCache.invalidate(k));
+
+            var keys = collectionKeysByDb.get(dbName);
+
+            if (keys != null) {
+                // the remover updates the index
+                List.copyOf(keys).forEach(collectionPropsCache::invalidate);
+            }
         }
     }
 
@@ -198,7 +219,92 @@ public class MetadataCachesSingleton {
      */
     public void invalidateCollection(String dbName, String collName) {
         if (enabled && collectionPropsCache != null) {
-            collectionPropsCache.invalidate(dbName + SEPARATOR + collName);
+            collectionPropsCache.invalidate(new CollectionKey(dbName, collName));
+        }
+    }
+
+    /**
+     * invalidates all the cached db and collection properties
+     */
+    public void invalidateAll() {
+        if (enabled && dbPropsCache != null) {
+            dbPropsCache.asMap().clear();
+            collectionPropsCache.asMap().clear();
+        }
+    }
+
+    private void index(CollectionKey key) {
+        collectionKeysByDb.compute(key.dbName, (k, keys) -> {
+            var ret = keys == null ? ConcurrentHashMap.<CollectionKey>newKeySet() : keys;
+            ret.add(key);
+            return ret;
+        });
+
+        // the entry might have been removed before being indexed
+        if (!collectionPropsCache.asMap().containsKey(key)) {
+            unindex(key);
+        }
+    }
+
+    private void unindex(CollectionKey key) {
+        collectionKeysByDb.computeIfPresent(key.dbName, (k, keys) -> {
+            // the entry might have been loaded again or replaced
+            // after it was removed
+            if (!collectionPropsCache.asMap().containsKey(key)) {
+                keys.remove(key);
+            }
+
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * @param dbName
+     * @return the names of the collections whose properties are indexed
+     */
+    Set<String> indexedCollections(String dbName) {
+        var keys = collectionKeysByDb.get(dbName);
+
+        return keys == null
+                ? Set.of()
+                : keys.stream().map(key -> key.collName).collect(Collectors.toSet());
+    }
+
+    /**
+     * the key of the cached collection properties
+     */
+    private static final class CollectionKey {
+        private final String dbName;
+        private final String collName;
+
+        CollectionKey(String dbName, String collName) {
+            this.dbName = dbName;
+            this.collName = collName;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof CollectionKey)) {
+                return false;
+            }
+
+            var other = (CollectionKey) o;
+
+            return dbName.equals(other.dbName) && collName.equals(other.collName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dbName, collName);
+        }
+
+        @Override
+        public String toString() {
+            return dbName + "/" + collName;
         }
     }
 
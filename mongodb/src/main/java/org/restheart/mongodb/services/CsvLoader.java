@@ -20,25 +20,39 @@
  */
 package org.restheart.mongodb.services;
 
-import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
 import io.undertow.server.HttpServerExchange;
+import java.io.IOException;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Deque;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 import org.bson.BsonArray;
 import org.bson.BsonDocument;
+import org.bson.BsonInt32;
 import org.bson.BsonString;
 import org.bson.BsonValue;
 import org.bson.json.JsonParseException;
 import org.restheart.exchange.BsonFromCsvRequest;
 import org.restheart.exchange.BsonResponse;
+import org.restheart.mongodb.MongoServiceConfiguration;
 import org.restheart.mongodb.db.MongoClientSingleton;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.plugins.Service;
 import org.restheart.utils.HttpStatus;
 import org.restheart.utils.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * service to upload a csv file in a collection
@@ -55,6 +69,12 @@ import org.restheart.utils.JsonUtils;
  * props to add to each row<br>
  * defined in conf file) of a tranformer to apply to imported data - update
  * optional (default: no).use data to update matching documents");
+ * <br>
+ * The csv content is parsed as it is read and the documents are written with a
+ * bulkWrite every bulk-write-batch-size rows. The response reports the counts
+ * of each batch and the errors of the rows that could not be written. If the
+ * content cannot be parsed, the rows before the error are written and the
+ * error response includes their report.
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
@@ -86,9 +106,17 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
 
     // private static final String ERROR_PARSING_DATA = "Error parsing CSV, see logs for more information";
 
-    private final static FindOneAndUpdateOptions FAU_NO_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(false);
+    private final static UpdateOptions NO_UPSERT_OPS = new UpdateOptions().upsert(false);
 
-    private final static FindOneAndUpdateOptions FAU_WITH_UPSERT_OPS = new FindOneAndUpdateOptions().upsert(true);
+    private final static UpdateOptions UPSERT_OPS = new UpdateOptions().upsert(true);
+
+    // rows are written even if some fail, errors are reported per row
+    private final static BulkWriteOptions UNORDERED = new BulkWriteOptions().ordered(false);
+
+    // the max number of row errors included in the response
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CsvLoader.class);
 
     /**
      *
@@ -119,60 +147,10 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
                     if (params.update && params.idIdx < 0) {
                         response.setInError(HttpStatus.SC_BAD_REQUEST, ERROR_NO_ID);
                     } else {
-                        BsonArray documents = request.getContent();
-
-                        if (documents != null && documents.size() > 0) {
-                            var mcoll = MongoClientSingleton.getInstance().getClient()
-                                    .getDatabase(params.db).getCollection(params.coll, BsonDocument.class);
-
-                            if (params.update && !params.upsert) {
-                                documents.stream()
-                                        .map(doc -> doc.asDocument())
-                                        // add props specified via keys and values qparams
-                                        .map(doc -> addProps(params, doc))
-                                        .forEach(doc -> {
-                                            BsonDocument updateQuery = new BsonDocument("_id", doc.remove("_id"));
-
-                                            // for upate import, take _filter property into account
-                                            // for instance, a filter allows to use $ positional array operator
-                                            BsonValue _filter = doc.remove(FILTER_PROPERTY);
-
-                                            if (_filter != null && _filter.isDocument()) {
-                                                updateQuery.putAll(_filter.asDocument());
-                                            }
-                                            if (params.upsert) {
-                                                mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc),
-                                                        FAU_WITH_UPSERT_OPS);
-                                            } else {
-
-                                                mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc),
-                                                        FAU_NO_UPSERT_OPS);
-                                            }
-                                        });
-                            } else if (params.update && params.upsert) {
-                                documents.stream()
-                                        .map(doc -> doc.asDocument())
-                                        // add props specified via keys and values qparams
-                                        .map(doc -> addProps(params, doc))
-                                        .forEach(doc -> {
-                                            var updateQuery = new BsonDocument("_id", doc.remove("_id"));
-
-                                            mcoll.findOneAndUpdate(updateQuery, new BsonDocument("$set", doc),
-                                                    FAU_WITH_UPSERT_OPS);
-                                        });
-                            } else {
-                                var docList = documents.stream()
-                                        .map(doc -> doc.asDocument())
-                                        // add props specified via keys and values qparams
-                                        .map(doc -> addProps(params, doc))
-                                        .collect(Collectors.toList());
-
-                                mcoll.insertMany(docList);
-                            }
-                            response.setStatusCode(HttpStatus.SC_OK);
-                        } else {
-                            response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
-                        }
+                        var mcoll = MongoClientSingleton.getInstance().getClient()
+                                .getDatabase(params.db).getCollection(params.coll, BsonDocument.class);
+
+                        load(request, response, params, mcoll);
                     }
                 } catch (IllegalArgumentException iae) {
                     response.setInError(HttpStatus.SC_BAD_REQUEST,
@@ -185,6 +163,161 @@ public class CsvLoader implements Service<BsonFromCsvRequest, BsonResponse> {
         }
     }
 
+    /**
+     * reads the documents from the csv content and writes them with a
+     * bulkWrite every bulk-write-batch-size documents
+     */
+    private void load(BsonFromCsvRequest request,
+            BsonResponse response,
+            CsvRequestParams params,
+            MongoCollection<BsonDocument> mcoll) throws Exception {
+        var batchSize = Math.max(1, MongoServiceConfiguration.get().getBulkWriteBatchSize());
+
+        var report = new Report();
+        var batch = new ArrayList<WriteModel<BsonDocument>>(batchSize);
+        int firstRow = 1;
+
+        try {
+            BsonDocument doc;
+
+            while ((doc = request.nextDocument()) != null) {
+                batch.add(writeModel(params, addProps(params, doc)));
+
+                if (batch.size() == batchSize) {
+                    write(mcoll, batch, firstRow, report);
+                    firstRow += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (IOException ioe) {
+            LOGGER.warn("error parsing CSV", ioe);
+
+            // the rows parsed before the error are written
+            if (!batch.isEmpty()) {
+                write(mcoll, batch, firstRow, report);
+                firstRow += batch.size();
+            }
+
+            response.setInError(HttpStatus.SC_BAD_REQUEST,
+                    "Error parsing CSV at row " + (request.getRow() + 1)
+                    + ", " + (firstRow - 1) + " rows processed. "
+                    + ioe.getMessage());
+
+            response.getContent().asDocument().put("report", report.toBson());
+            return;
+        }
+
+        if (!batch.isEmpty()) {
+            write(mcoll, batch, firstRow, report);
+        }
+
+        if (report.rows > 0) {
+            response.setContent(report.toBson());
+            response.setStatusCode(HttpStatus.SC_OK);
+        } else {
+            response.setStatusCode(HttpStatus.SC_NOT_MODIFIED);
+        }
+    }
+
+    private WriteModel<BsonDocument> writeModel(CsvRequestParams params, BsonDocument doc) {
+        if (params.update) {
+            var updateQuery = new BsonDocument("_id", doc.remove("_id"));
+
+            if (!params.upsert) {
+                // for upate import, take _filter property into account
+                // for instance, a filter allows to use $ positional array operator
+                BsonValue _filter = doc.remove(FILTER_PROPERTY);
+
+                if (_filter != null && _filter.isDocument()) {
+                    updateQuery.putAll(_filter.asDocument());
+                }
+            }
+
+            return new UpdateOneModel<>(updateQuery,
+                    new BsonDocument("$set", doc),
+                    params.upsert ? UPSERT_OPS : NO_UPSERT_OPS);
+        } else {
+            return new InsertOneModel<>(doc);
+        }
+    }
+
+    private void write(MongoCollection<BsonDocument> mcoll,
+            List<WriteModel<BsonDocument>> batch,
+            int firstRow,
+            Report report) {
+        BulkWriteResult result;
+        List<BulkWriteError> errors;
+
+        try {
+            result = mcoll.bulkWrite(batch, UNORDERED);
+            errors = List.of();
+        } catch (MongoBulkWriteException mbwe) {
+            result = mbwe.getWriteResult();
+            errors = mbwe.getWriteErrors();
+        }
+
+        report.add(firstRow, batch.size(), result, errors);
+
+        LOGGER.debug("csv rows {}-{} written, {} errors",
+                firstRow, firstRow + batch.size() - 1, errors.size());
+    }
+
+    /**
+     * the counts of the whole import and of each batch, with the errors of
+     * the rows
+     */
+    private static class Report {
+        private int rows = 0;
+        private int inserted = 0;
+        private int matched = 0;
+        private int modified = 0;
+        private int upserted = 0;
+        private int errors = 0;
+        private final BsonArray batches = new BsonArray();
+        private final BsonArray rowErrors = new BsonArray();
+
+        void add(int firstRow, int size, BulkWriteResult result, List<BulkWriteError> writeErrors) {
+            rows += size;
+            errors += writeErrors.size();
+
+            var batch = new BsonDocument("rows", new BsonString(firstRow + "-" + (firstRow + size - 1)));
+
+            if (result.wasAcknowledged()) {
+                inserted += result.getInsertedCount();
+                matched += result.getMatchedCount();
+                modified += result.getModifiedCount();
+                upserted += result.getUpserts().size();
+
+                batch.put("inserted", new BsonInt32(result.getInsertedCount()));
+                batch.put("matched", new BsonInt32(result.getMatchedCount()));
+                batch.put("modified", new BsonInt32(result.getModifiedCount()));
+                batch.put("upserted", new BsonInt32(result.getUpserts().size()));
+            }
+
+            batch.put("errors", new BsonInt32(writeErrors.size()));
+
+            batches.add(batch);
+
+            writeErrors.stream()
+                    .limit(Math.max(0, MAX_REPORTED_ERRORS - rowErrors.size()))
+                    .map(e -> new BsonDocument("row", new BsonInt32(firstRow + e.getIndex()))
+                    .append("code", new BsonInt32(e.getCode()))
+                    .append("message", new BsonString(e.getMessage())))
+                    .forEach(rowErrors::add);
+        }
+
+        BsonDocument toBson() {
+            return new BsonDocument("rows", new BsonInt32(rows))
+                    .append("inserted", new BsonInt32(inserted))
+                    .append("matched", new BsonInt32(matched))
+                    .append("modified", new BsonInt32(modified))
+                    .append("upserted", new BsonInt32(upserted))
+                    .append("errors", new BsonInt32(errors))
+                    .append("rowErrors", rowErrors)
+                    .append("batches", batches);
+        }
+    }
+
     private boolean doesApply(BsonFromCsvRequest request) {
         return request.isPost();
     }
@@ -0,0 +1,386 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads the parts of a multipart/form-data content as they arrive from the
+ * stream, without spooling them to temporary files.
+ *
+ * The content of a part can be read via Part.getContent() until the next part
+ * is requested; nextPart() skips the remaining content of the current part.
+ *
+ * Not thread safe.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MultipartStreamReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_HEADER_LENGTH = 8 * 1024;
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final byte[] buf;
+    private int pos = 0;
+    private int limit = 0;
+    private boolean eof = false;
+
+    private PartInputStream current;
+    private boolean finished = false;
+
+    /**
+     *
+     * @param in the multipart content
+     * @param boundary the boundary, as specified by the Content-Type header
+     */
+    public MultipartStreamReader(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(BUFFER_SIZE, this.delimiter.length * 2)];
+
+        // the first boundary is not preceded by CRLF, add it so that
+        // the preamble can be skipped as the content of a part
+        this.buf[limit++] = '\r';
+        this.buf[limit++] = '\n';
+
+        this.current = new PartInputStream();
+    }
+
+    /**
+     * @param contentType the value of the Content-Type header
+     * @return the boundary parameter, null if missing
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+
+        for (var param : contentType.split(";")) {
+            var kv = param.trim().split("=", 2);
+
+            if (kv.length == 2 && "boundary".equalsIgnoreCase(kv[0].trim())) {
+                return unquote(kv[1].trim());
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the next part, null if there are no more parts
+     * @throws IOException if the content is not valid multipart content
+     */
+    public Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+
+        // skip the remaining content of the current part
+        while (current.skip(Long.MAX_VALUE) > 0) {
+        }
+
+        // after the boundary: either -- (last boundary) or CRLF
+        if (!ensure(2)) {
+            throw new IOException("Unexpected end of multipart content");
+        }
+
+        if (buf[pos] == '-' && buf[pos + 1] == '-') {
+            finished = true;
+            return null;
+        }
+
+        // skip the optional transport padding
+        readLine();
+
+        var part = new Part();
+
+        String header;
+
+        while (!(header = readLine()).isEmpty()) {
+            var colon = header.indexOf(':');
+
+            if (colon < 0) {
+                continue;
+            }
+
+            var name = header.substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            var value = header.substring(colon + 1).trim();
+
+            if ("content-disposition".equals(name)) {
+                for (var param : value.split(";")) {
+                    var kv = param.trim().split("=", 2);
+
+                    if (kv.length == 2) {
+                        var key = kv[0].trim().toLowerCase(Locale.ROOT);
+
+                        if ("name".equals(key)) {
+                            part.name = unquote(kv[1].trim());
+                        } else if ("filename".equals(key)) {
+                            part.filename = unquote(kv[1].trim());
+                        }
+                    }
+                }
+            } else if ("content-type".equals(name)) {
+                part.contentType = value;
+            }
+        }
+
+        this.current = new PartInputStream();
+        part.content = this.current;
+
+        return part;
+    }
+
+    private String readLine() throws IOException {
+        var line = new ByteArrayOutputStream();
+
+        while (true) {
+            if (!ensure(1)) {
+                throw new IOException("Unexpected end of multipart content");
+            }
+
+            var b = buf[pos++];
+
+            if (b == '\n') {
+                break;
+            } else if (b != '\r') {
+                line.write(b);
+            }
+
+            if (line.size() > MAX_HEADER_LENGTH) {
+                throw new IOException("Multipart header too long");
+            }
+        }
+
+        return new String(line.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * reads from the stream until n bytes are available in the buffer
+     *
+     * @return false if the stream ended before
+     */
+    private boolean ensure(int n) throws IOException {
+        while (limit - pos < n && !eof) {
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, limit - pos);
+                limit -= pos;
+                pos = 0;
+            }
+
+            var read = in.read(buf, limit, buf.length - limit);
+
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        return limit - pos >= n;
+    }
+
+    /**
+     * @return the index of the delimiter in the buffer, -1 if not found
+     */
+    private int indexOfDelimiter() {
+        outer:
+        for (int i = pos; i <= limit - delimiter.length; i++) {
+            for (int j = 0; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+
+            return i;
+        }
+
+        return -1;
+    }
+
+    private static String unquote(String value) {
+        return value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")
+                ? value.substring(1, value.length() - 1)
+                : value;
+    }
+
+    /**
+     * reads the content of a part, until the delimiter
+     */
+    private class PartInputStream extends InputStream {
+        private boolean ended = false;
+
+        @Override
+        public int read() throws IOException {
+            var b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended || current != this) {
+                return -1;
+            }
+
+            if (len == 0) {
+                return 0;
+            }
+
+            ensure(delimiter.length);
+
+            var idx = indexOfDelimiter();
+
+            int available;
+
+            if (idx == pos) {
+                // consume the delimiter
+                pos += delimiter.length;
+                ended = true;
+                return -1;
+            } else if (idx > pos) {
+                available = idx - pos;
+            } else if (eof) {
+                throw new IOException("Unexpected end of multipart content");
+            } else {
+                // the last bytes might be the beginning of the delimiter
+                available = limit - pos - (delimiter.length - 1);
+            }
+
+            var n = Math.min(len, available);
+
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            var tmp = new byte[BUFFER_SIZE];
+            long skipped = 0;
+
+            while (skipped < n) {
+                var read = read(tmp, 0, (int) Math.min(tmp.length, n - skipped));
+
+                if (read < 0) {
+                    break;
+                }
+
+                skipped += read;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+
+    /**
+     * a part of the multipart content
+     */
+    public static class Part {
+        private String name;
+        private String filename;
+        private String contentType;
+        private InputStream content;
+
+        /**
+         * @return the name of the form field
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the filename, null if the part is not a file
+         */
+        public String getFilename() {
+            return filename;
+        }
+
+        /**
+         * @return the value of the Content-Type header of the part, null if
+         * missing
+         */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /**
+         * @return true if the part is a file
+         */
+        public boolean isFile() {
+            return filename != null;
+        }
+
+        /**
+         * @return the content of the part, readable until the next part is
+         * requested
+         */
+        public InputStream getContent() {
+            return content;
+        }
+
+        /**
+         * @param maxSize the max number of bytes to read
+         * @return the content of the part as a string
+         * @throws PartTooLargeException if the content is longer than maxSize
+         * bytes
+         * @throws IOException
+         */
+        public String readString(int maxSize) throws IOException {
+            var ret = new ByteArrayOutputStream();
+            var chunk = new byte[BUFFER_SIZE];
+            int read;
+
+            while ((read = content.read(chunk)) != -1) {
+                if (ret.size() + read > maxSize) {
+                    throw new PartTooLargeException("Multipart field " + name
+                            + " is longer than " + maxSize + " bytes");
+                }
+
+                ret.write(chunk, 0, read);
+            }
+
+            return new String(ret.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * thrown when the content of a part is too long to be read in memory
+     */
+    public static class PartTooLargeException extends IOException {
+        private static final long serialVersionUID = 2876402397510587164L;
+
+        public PartTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import com.mongodb.MongoException;
+import org.bson.BsonDocument;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.restheart.mongodb.db.ChangeStreamResumer.Action.*;
+import static org.restheart.mongodb.db.ChangeStreamResumer.*;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class ChangeStreamResumerTest {
+
+    @Test
+    public void testNotSupported() {
+        var resumer = new ChangeStreamResumer(null);
+        resumer.opened();
+
+        assertEquals(STOP, resumer.failed(new MongoException(CHANGE_STREAM_NOT_SUPPORTED, "not supported")));
+    }
+
+    @Test
+    public void testHistoryLost() {
+        var token = BsonDocument.parse("{'_data': 'x'}");
+        var resumer = new ChangeStreamResumer(token);
+        resumer.opened();
+
+        assertEquals(RESUME, resumer.failed(new MongoException(6, "host unreachable")));
+        assertEquals(token, resumer.getResumeToken());
+
+        assertEquals(RESTART, resumer.failed(new MongoException(CHANGE_STREAM_HISTORY_LOST, "history lost")));
+        assertNull(resumer.getResumeToken());
+    }
+
+    @Test
+    public void testNotification() {
+        var resumer = new ChangeStreamResumer(null);
+        var token = BsonDocument.parse("{'_data': 'y'}");
+
+        resumer.opened();
+        resumer.failed(new RuntimeException());
+        resumer.retry(() -> { }, t -> { });
+
+        assertEquals(2 * MIN_RETRY_DELAY, resumer.getRetryDelay());
+
+        resumer.notified(token);
+
+        assertEquals(token, resumer.getResumeToken());
+        assertEquals(MIN_RETRY_DELAY, resumer.getRetryDelay());
+
+        // no resume token
+        resumer.notified(null);
+
+        assertEquals(token, resumer.getResumeToken());
+    }
+
+    @Test
+    public void testMaxFailures() {
+        var resumer = new ChangeStreamResumer(null);
+
+        for (int i = 0; i < MAX_FAILURES; i++) {
+            resumer.opened();
+            assertEquals(RESUME, resumer.failed(new MongoException(13, "unauthorized")));
+        }
+
+        resumer.opened();
+        assertEquals(STOP, resumer.failed(new MongoException(13, "unauthorized")));
+    }
+
+    @Test
+    public void testNotificationResetsFailures() {
+        var resumer = new ChangeStreamResumer(null);
+
+        for (int i = 0; i < MAX_FAILURES; i++) {
+            resumer.opened();
+            resumer.failed(new RuntimeException());
+        }
+
+        resumer.notified(null);
+
+        resumer.opened();
+        assertEquals(RESUME, resumer.failed(new RuntimeException()));
+    }
+}
@@ -69,4 +69,24 @@ public class DAOUtilsTest {
         assertEquals(DAOUtils.validContent(dbo), dbo);
     }
 
+    /**
+     *
+     */
+    @Test
+    public void testUpdated() {
+        var old = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 1}, 'd': [1,2]}");
+
+        var set = BsonDocument.parse("{'$set': {'a': 2, 'b.e': 3, 'f.g': 4}}");
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': 2, 'b': {'c': 1, 'e': 3}, 'd': [1,2], 'f': {'g': 4}}"),
+                DAOUtils.updated(old, set));
+
+        // the old document is not modified
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 1}, 'd': [1,2]}"), old);
+
+        // cannot be computed client side
+        assertNull(DAOUtils.updated(old, BsonDocument.parse("{'$inc': {'a': 1}}")));
+        assertNull(DAOUtils.updated(old, BsonDocument.parse("{'$set': {'d.0': 3}}")));
+    }
+
 }
@@ -0,0 +1,221 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.db;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonNull;
+import org.bson.BsonString;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.restheart.exchange.IllegalQueryParamenterException;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class KeysetPaginationTest {
+
+    @Test
+    public void testSortAddsIdTiebreaker() {
+        assertEquals(BsonDocument.parse("{'_id': -1}"),
+                KeysetPagination.sort(null));
+
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1, 'b': -1}"));
+
+        assertEquals(BsonDocument.parse("{'a': 1, 'b': -1, '_id': -1}"), sort);
+        assertEquals("_id", sort.keySet().toArray()[2]);
+
+        // _id already specified
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': -1}"),
+                KeysetPagination.sort(BsonDocument.parse("{'_id': 1, 'a': -1}")));
+    }
+
+    @Test
+    public void testRangeFilterMixedDirections() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1, 'b': -1}"));
+        var after = BsonDocument.parse("{'a': 1, 'b': 'x', '_id': 10}");
+
+        var expected = BsonDocument.parse("{'$or': ["
+                + "{'a': {'$gt': 1}},"
+                + "{'a': 1, 'b': {'$lt': 'x'}},"
+                + "{'a': 1, 'b': 'x', '_id': {'$lt': 10}}"
+                + "]}");
+
+        assertEquals(expected, KeysetPagination.rangeFilter(sort, after));
+    }
+
+    @Test
+    public void testRangeFilterOnlyId() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'_id': 1}"));
+        var after = BsonDocument.parse("{'_id': 10}");
+
+        assertEquals(BsonDocument.parse("{'_id': {'$gt': 10}}"),
+                KeysetPagination.rangeFilter(sort, after));
+    }
+
+    @Test
+    public void testTokenRoundTrip() throws Exception {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a.b': 1, 'c': -1}"));
+        var last = BsonDocument.parse("{'_id': 3, 'a': {'b': 'x'}, 'd': true}");
+
+        var token = KeysetPagination.token(sort, last);
+
+        // url safe
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+
+        var after = KeysetPagination.parseToken(token, sort);
+
+        assertEquals(new BsonString("x"), after.get("a.b"));
+        assertEquals(BsonNull.VALUE, after.get("c"));
+        assertEquals(new BsonInt32(3), after.get("_id"));
+    }
+
+    @Test(expected = IllegalQueryParamenterException.class)
+    public void testInvalidToken() throws Exception {
+        KeysetPagination.parseToken("not a token!",
+                KeysetPagination.sort(null));
+    }
+
+    @Test(expected = IllegalQueryParamenterException.class)
+    public void testTruncatedToken() throws Exception {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1}"));
+        var token = KeysetPagination.token(sort, BsonDocument.parse("{'_id': 1, 'a': 'abcdef'}"));
+
+        KeysetPagination.parseToken(token.substring(0, token.length() - 4), sort);
+    }
+
+    @Test(expected = IllegalQueryParamenterException.class)
+    public void testTokenNotMatchingSort() throws Exception {
+        var token = KeysetPagination.token(
+                KeysetPagination.sort(BsonDocument.parse("{'a': 1}")),
+                BsonDocument.parse("{'_id': 1, 'a': 2}"));
+
+        KeysetPagination.parseToken(token,
+                KeysetPagination.sort(BsonDocument.parse("{'b': 1}")));
+    }
+
+    @Test
+    public void testProjectionNotHidingSortKeys() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1, 'b.c': -1}"));
+
+        // no projection
+        assertNull(KeysetPagination.projection(null, sort));
+
+        // exclusion of sort keys and of the parent of a sort key
+        assertEquals(BsonDocument.parse("{'d': 0}"),
+                KeysetPagination.projection(
+                        BsonDocument.parse("{'a': 0, 'b': 0, 'd': 0, '_id': 0}"), sort));
+
+        // inclusion, with _id excluded
+        assertEquals(BsonDocument.parse("{'d': 1, 'a': 1, 'b.c': 1, '_id': 1}"),
+                KeysetPagination.projection(
+                        BsonDocument.parse("{'d': 1, '_id': 0}"), sort));
+
+        // inclusion of the parent of a sort key
+        assertEquals(BsonDocument.parse("{'b': 1, 'a': 1, '_id': 1}"),
+                KeysetPagination.projection(
+                        BsonDocument.parse("{'b': 1}"), sort));
+
+        // inclusion of a child of a sort key
+        assertEquals(BsonDocument.parse("{'a': 1, 'b.c': 1, '_id': 1}"),
+                KeysetPagination.projection(
+                        BsonDocument.parse("{'a.x': 1}"), sort));
+    }
+
+    @Test
+    public void testStripExclusion() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1, 'b.c': -1}"));
+        var keys = BsonDocument.parse("{'a': 0, 'b': 0, 'd': 0}");
+
+        // fetched with the projection {'d': 0}
+        var doc = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 2, 'x': 3}, 'e': 4}");
+
+        KeysetPagination.strip(doc, keys, sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'e': 4}"), doc);
+
+        // exclusion of a child of a sort key
+        doc = BsonDocument.parse("{'_id': 1, 'a': {'secret': 1, 'y': 2}}");
+
+        KeysetPagination.strip(doc,
+                BsonDocument.parse("{'a.secret': 0}"),
+                KeysetPagination.sort(BsonDocument.parse("{'a': 1}")));
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': {'y': 2}}"), doc);
+    }
+
+    @Test
+    public void testStripInclusion() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1, 'b.c': -1}"));
+
+        // fetched with the projection {'d': 1, 'a': 1, 'b.c': 1, '_id': 1}
+        var doc = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 2}, 'd': 3}");
+
+        KeysetPagination.strip(doc, BsonDocument.parse("{'d': 1, '_id': 0}"), sort);
+
+        assertEquals(BsonDocument.parse("{'d': 3}"), doc);
+
+        // _id is included by default
+        doc = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 2}, 'd': 3}");
+
+        KeysetPagination.strip(doc, BsonDocument.parse("{'d': 1}"), sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'd': 3}"), doc);
+
+        // inclusion of the parent of a sort key
+        doc = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 2, 'x': 3}}");
+
+        KeysetPagination.strip(doc, BsonDocument.parse("{'b': 1}"), sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'b': {'c': 2, 'x': 3}}"), doc);
+
+        // inclusion of a sibling of a sort key
+        doc = BsonDocument.parse("{'_id': 1, 'a': 1, 'b': {'c': 2, 'x': 3}}");
+
+        KeysetPagination.strip(doc, BsonDocument.parse("{'b.x': 1}"), sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'b': {'x': 3}}"), doc);
+    }
+
+    @Test
+    public void testStripInclusionOfChild() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1}"));
+
+        // fetched with the projection {'a': 1, '_id': 1}
+        var doc = BsonDocument.parse("{'_id': 1, 'a': {'x': 1, 'y': 2, 'z': [{'x': 3, 'y': 4}, 5]}}");
+
+        KeysetPagination.strip(doc, BsonDocument.parse("{'a.x': 1, 'a.z.y': 1}"), sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': {'x': 1, 'z': [{'y': 4}]}}"), doc);
+    }
+
+    @Test
+    public void testStripNoProjection() {
+        var sort = KeysetPagination.sort(BsonDocument.parse("{'a': 1}"));
+        var doc = BsonDocument.parse("{'_id': 1, 'a': 1}");
+
+        KeysetPagination.strip(doc, null, sort);
+        KeysetPagination.strip(doc, new BsonDocument(), sort);
+
+        assertEquals(BsonDocument.parse("{'_id': 1, 'a': 1}"), doc);
+    }
+}
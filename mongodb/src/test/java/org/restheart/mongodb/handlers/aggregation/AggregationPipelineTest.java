@@ -0,0 +1,117 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.aggregation;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.Assert;
+import org.junit.Test;
+import org.restheart.exchange.InvalidMetadataException;
+import org.restheart.exchange.QueryVariableNotBoundException;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AggregationPipelineTest {
+
+    private static final String AGGREGATION = "{'type': 'pipeline', 'uri': 'test', "
+            + "'stages': ["
+            + "{'_$match': {'name': {'$var': 'n'}, 'tags': {'_$in': ['a', {'$var': 't'}]}}},"
+            + "{'_$limit': {'$var': '@limit'}},"
+            + "{'_$project': {'name': 1}}"
+            + "]}";
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testGetResolvedStagesAsList() throws Exception {
+        var pipeline = new AggregationPipeline(BsonDocument.parse(AGGREGATION));
+
+        var avars = new BsonDocument("n", new BsonString("foo"))
+                .append("t", new BsonString("b"))
+                .append("@limit", new BsonInt32(5));
+
+        var stages = pipeline.getResolvedStagesAsList(avars);
+
+        Assert.assertEquals(3, stages.size());
+        Assert.assertEquals(BsonDocument.parse("{'$match': {'name': 'foo', 'tags': {'$in': ['a', 'b']}}}"),
+                stages.get(0));
+        Assert.assertEquals(BsonDocument.parse("{'$limit': 5}"), stages.get(1));
+        Assert.assertEquals(BsonDocument.parse("{'$project': {'name': 1}}"), stages.get(2));
+
+        // binding does not modify the compiled stages
+        var other = pipeline.getResolvedStagesAsList(avars
+                .append("n", new BsonString("bar")));
+
+        Assert.assertEquals(new BsonString("bar"), other.get(0)
+                .getDocument("$match").get("name"));
+        Assert.assertEquals(new BsonString("foo"), stages.get(0)
+                .getDocument("$match").get("name"));
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test(expected = QueryVariableNotBoundException.class)
+    public void testVariableNotBound() throws Exception {
+        var pipeline = new AggregationPipeline(BsonDocument.parse(AGGREGATION));
+
+        pipeline.getResolvedStagesAsList(new BsonDocument("n", new BsonString("foo")));
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCacheOptions() throws Exception {
+        var notCached = new AggregationPipeline(BsonDocument.parse(AGGREGATION));
+
+        Assert.assertFalse(notCached.isCached());
+
+        var props = BsonDocument.parse(AGGREGATION);
+        props.put("cache", BsonDocument.parse("{'ttl': 60000, 'invalidateOnChange': true}"));
+
+        var cached = new AggregationPipeline(props);
+
+        Assert.assertTrue(cached.isCached());
+        Assert.assertEquals(60_000, cached.getCacheTtl());
+        Assert.assertEquals(100, cached.getCacheMaxSize());
+        Assert.assertTrue(cached.isCacheInvalidateOnChange());
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test(expected = InvalidMetadataException.class)
+    public void testInvalidCacheTtl() throws Exception {
+        var props = BsonDocument.parse(AGGREGATION);
+        props.put("cache", BsonDocument.parse("{'ttl': 0}"));
+
+        new AggregationPipeline(props);
+    }
+}
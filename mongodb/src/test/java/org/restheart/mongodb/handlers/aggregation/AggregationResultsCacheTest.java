@@ -0,0 +1,90 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.aggregation;
+
+import java.util.List;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AggregationResultsCacheTest {
+
+    private static final String AGGREGATION = "{'type': 'pipeline', 'uri': 'cached', "
+            + "'stages': [{'_$match': {}}], "
+            + "'cache': {'ttl': 60000}}";
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPutAndGet() throws Exception {
+        var pipeline = new AggregationPipeline(BsonDocument.parse(AGGREGATION));
+        var avars = new BsonDocument("@page", new BsonInt32(1));
+        var results = List.of(BsonDocument.parse("{'a': 1}"));
+
+        var epoch = AggregationResultsCache.epoch("db", "testPutAndGet");
+
+        Assert.assertNull(AggregationResultsCache.get("db", "testPutAndGet", pipeline, avars));
+
+        AggregationResultsCache.put("db", "testPutAndGet", pipeline, avars, results, epoch);
+
+        Assert.assertEquals(results, AggregationResultsCache.get("db", "testPutAndGet", pipeline, avars));
+
+        AggregationResultsCache.invalidate("db", "testPutAndGet");
+
+        Assert.assertNull(AggregationResultsCache.get("db", "testPutAndGet", pipeline, avars));
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testPutAfterInvalidation() throws Exception {
+        var pipeline = new AggregationPipeline(BsonDocument.parse(AGGREGATION));
+        var avars = new BsonDocument("@page", new BsonInt32(1));
+        var results = List.of(BsonDocument.parse("{'a': 1}"));
+
+        var epoch = AggregationResultsCache.epoch("db", "testPutAfterInvalidation");
+
+        Assert.assertNull(AggregationResultsCache.get("db", "testPutAfterInvalidation", pipeline, avars));
+
+        // the collection changes while the aggregation is executing
+        AggregationResultsCache.invalidate("db", "testPutAfterInvalidation");
+
+        AggregationResultsCache.put("db", "testPutAfterInvalidation", pipeline, avars, results, epoch);
+
+        Assert.assertNull(AggregationResultsCache.get("db", "testPutAfterInvalidation", pipeline, avars));
+
+        // the next execution is cached
+        epoch = AggregationResultsCache.epoch("db", "testPutAfterInvalidation");
+
+        AggregationResultsCache.put("db", "testPutAfterInvalidation", pipeline, avars, results, epoch);
+
+        Assert.assertEquals(results, AggregationResultsCache.get("db", "testPutAfterInvalidation", pipeline, avars));
+    }
+}
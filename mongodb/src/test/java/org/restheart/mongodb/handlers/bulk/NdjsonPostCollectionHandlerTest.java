@@ -0,0 +1,111 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.bulk;
+
+import com.mongodb.bulk.BulkWriteInsert;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonInt32;
+import org.bson.BsonObjectId;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import static org.restheart.mongodb.handlers.bulk.NdjsonPostCollectionHandler.MAX_REPORTED_IDS;
+import org.restheart.mongodb.db.BulkOperationResult;
+import org.restheart.utils.HttpStatus;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class NdjsonPostCollectionHandlerTest {
+    private static final int BATCH_SIZE = 100;
+
+    private static BulkWriteResult batchResult(int inserted, int upserted) {
+        List<BulkWriteInsert> inserts = new ArrayList<>();
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+
+        for (int i = 0; i < inserted; i++) {
+            inserts.add(new BulkWriteInsert(i, new BsonObjectId()));
+        }
+
+        for (int i = 0; i < upserted; i++) {
+            upserts.add(new BulkWriteUpsert(inserted + i, new BsonObjectId()));
+        }
+
+        return BulkWriteResult.acknowledged(inserted, 0, 0, 0, upserts, inserts);
+    }
+
+    @Test
+    public void testCountsAreNotCapped() {
+        var results = new NdjsonPostCollectionHandler.Results();
+
+        // 250 inserted and 250 upserted documents in 5 batches
+        for (int b = 0; b < 5; b++) {
+            results.add(batchResult(BATCH_SIZE / 2, BATCH_SIZE / 2), BATCH_SIZE);
+        }
+
+        var wr = results.toBulkWriteResult();
+
+        assertEquals(250, wr.getInsertedCount());
+        assertEquals(MAX_REPORTED_IDS, wr.getInserts().size());
+        assertEquals(MAX_REPORTED_IDS, wr.getUpserts().size());
+
+        var rep = new BulkResultRepresentationFactory().getRepresentation("/db/coll",
+                new BulkOperationResult(HttpStatus.SC_OK, null, wr));
+
+        assertEquals(new BsonInt32(500), rep.get("inserted"));
+        assertEquals(2 * MAX_REPORTED_IDS, rep.getArray("links").size());
+    }
+
+    @Test
+    public void testReportedIdsIndexes() {
+        var results = new NdjsonPostCollectionHandler.Results();
+
+        results.add(batchResult(BATCH_SIZE, 0), BATCH_SIZE);
+        results.add(batchResult(BATCH_SIZE, 0), BATCH_SIZE);
+        results.add(batchResult(BATCH_SIZE, 0), BATCH_SIZE);
+
+        var wr = results.toBulkWriteResult();
+
+        assertEquals(300, wr.getInsertedCount());
+        assertEquals(MAX_REPORTED_IDS, wr.getInserts().size());
+        assertEquals(0, wr.getInserts().get(0).getIndex());
+        assertEquals(MAX_REPORTED_IDS - 1, wr.getInserts().get(MAX_REPORTED_IDS - 1).getIndex());
+
+        var rep = new BulkResultRepresentationFactory().getRepresentation("/db/coll",
+                new BulkOperationResult(HttpStatus.SC_OK, null, wr));
+
+        assertEquals(new BsonInt32(300), rep.get("inserted"));
+    }
+
+    @Test
+    public void testBulkPostResultCount() {
+        var wr = batchResult(3, 2);
+
+        var rep = new BulkResultRepresentationFactory().getRepresentation("/db/coll",
+                new BulkOperationResult(HttpStatus.SC_OK, null, wr));
+
+        assertEquals(new BsonInt32(5), rep.get("inserted"));
+        assertEquals(5, rep.getArray("links").size());
+    }
+}
@@ -0,0 +1,53 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.files;
+
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class GetFileBinaryHandlerTest {
+
+    /**
+     *
+     */
+    @Test
+    public void testRange() {
+        assertArrayEquals(new long[]{0, 99}, GetFileBinaryHandler.range("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{500, 999}, GetFileBinaryHandler.range("bytes=500-", 1000));
+        assertArrayEquals(new long[]{900, 999}, GetFileBinaryHandler.range("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 999}, GetFileBinaryHandler.range("bytes=-2000", 1000));
+        assertArrayEquals(new long[]{990, 999}, GetFileBinaryHandler.range("bytes=990-2000", 1000));
+
+        // whole file
+        assertNull(GetFileBinaryHandler.range(null, 1000));
+        assertNull(GetFileBinaryHandler.range("items=0-99", 1000));
+        assertNull(GetFileBinaryHandler.range("bytes=0-9,20-29", 1000));
+        assertNull(GetFileBinaryHandler.range("bytes=a-b", 1000));
+        assertNull(GetFileBinaryHandler.range("bytes=99-0", 1000));
+
+        assertSame(GetFileBinaryHandler.UNSATISFIABLE_RANGE, GetFileBinaryHandler.range("bytes=1000-", 1000));
+        assertSame(GetFileBinaryHandler.UNSATISFIABLE_RANGE, GetFileBinaryHandler.range("bytes=-0", 1000));
+    }
+}
@@ -0,0 +1,56 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.handlers.schema;
+
+import org.bson.BsonDocument;
+import org.json.JSONObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonToJSONTest {
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testToJSONObject() throws Exception {
+        var doc = BsonDocument.parse("{"
+                + "'_id': {'$oid': '5d0b3f4ba9a5a6f1f6e7a2b1'},"
+                + "'s': 'string', 'i': 1, 'l': {'$numberLong': '1'},"
+                + "'bl': {'$numberLong': '10000000000'}, 'd': 1.5,"
+                + "'b': true, 'n': null,"
+                + "'date': {'$date': 1577836800000},"
+                + "'dec': {'$numberDecimal': '1.1'},"
+                + "'sub': {'a': [1, 'two', {'three': 3}, []]}"
+                + "}");
+
+        var expected = new JSONObject(doc.toJson());
+        var actual = BsonToJSON.toJSONObject(doc);
+
+        Assert.assertTrue("expected " + expected + " got " + actual,
+                expected.similar(actual));
+    }
+}
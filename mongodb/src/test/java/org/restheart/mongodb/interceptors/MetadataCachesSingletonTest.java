@@ -0,0 +1,136 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.interceptors;
+
+import java.util.Set;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.junit.AfterClass;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.restheart.mongodb.MongoServiceConfiguration;
+import org.restheart.mongodb.db.Database;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MetadataCachesSingletonTest {
+
+    private Database dbsDAO;
+    private MetadataCachesSingleton caches;
+
+    @Before
+    public void setUp() {
+        MetadataCachesSingleton.init(conf(true));
+
+        this.dbsDAO = mock(Database.class);
+
+        when(this.dbsDAO.getCollectionProperties(isNull(), anyString(), anyString()))
+                .thenAnswer(i -> new BsonDocument("_id", new BsonString("_properties." + i.getArgument(2))));
+
+        this.caches = new MetadataCachesSingleton(this.dbsDAO);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        MetadataCachesSingleton.init(conf(false));
+    }
+
+    @Test
+    public void testGetCollectionProperties() {
+        assertEquals(new BsonString("_properties.coll1"),
+                this.caches.getCollectionProperties("db", "coll1").get("_id"));
+        assertEquals(new BsonString("_properties.coll1"),
+                this.caches.getCollectionProperties("db", "coll1").get("_id"));
+
+        verify(this.dbsDAO, times(1)).getCollectionProperties(isNull(), eq("db"), eq("coll1"));
+        assertEquals(Set.of("coll1"), this.caches.indexedCollections("db"));
+    }
+
+    @Test
+    public void testInvalidateCollection() {
+        this.caches.getCollectionProperties("db", "coll1");
+        this.caches.getCollectionProperties("db", "coll2");
+
+        assertEquals(Set.of("coll1", "coll2"), this.caches.indexedCollections("db"));
+
+        this.caches.invalidateCollection("db", "coll1");
+
+        assertEquals(Set.of("coll2"), this.caches.indexedCollections("db"));
+
+        // loaded again and indexed
+        this.caches.getCollectionProperties("db", "coll1");
+
+        verify(this.dbsDAO, times(2)).getCollectionProperties(isNull(), eq("db"), eq("coll1"));
+        assertEquals(Set.of("coll1", "coll2"), this.caches.indexedCollections("db"));
+    }
+
+    @Test
+    public void testInvalidateDb() {
+        this.caches.getCollectionProperties("db", "coll1");
+        this.caches.getCollectionProperties("db", "coll2");
+        this.caches.getCollectionProperties("other", "coll1");
+
+        this.caches.invalidateDb("db");
+
+        assertEquals(Set.of(), this.caches.indexedCollections("db"));
+        assertEquals(Set.of("coll1"), this.caches.indexedCollections("other"));
+
+        this.caches.getCollectionProperties("db", "coll2");
+
+        verify(this.dbsDAO, times(2)).getCollectionProperties(isNull(), eq("db"), eq("coll2"));
+        verify(this.dbsDAO, times(1)).getCollectionProperties(isNull(), eq("other"), eq("coll1"));
+    }
+
+    @Test
+    public void testInvalidateAll() {
+        this.caches.getCollectionProperties("db", "coll1");
+        this.caches.getCollectionProperties("other", "coll1");
+
+        this.caches.invalidateAll();
+
+        assertEquals(Set.of(), this.caches.indexedCollections("db"));
+        assertEquals(Set.of(), this.caches.indexedCollections("other"));
+
+        this.caches.getCollectionProperties("db", "coll1");
+
+        verify(this.dbsDAO, times(2)).getCollectionProperties(isNull(), eq("db"), eq("coll1"));
+    }
+
+    private static MongoServiceConfiguration conf(boolean enabled) {
+        var conf = mock(MongoServiceConfiguration.class);
+
+        when(conf.isLocalCacheEnabled()).thenReturn(enabled);
+        when(conf.getLocalCacheTtl()).thenReturn(60_000l);
+        when(conf.getLocalCacheSize()).thenReturn(100l);
+
+        return conf;
+    }
+}
@@ -0,0 +1,148 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-mongodb
+ * %%
+ * Copyright (C) 2014 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.mongodb.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MultipartStreamReaderTest {
+
+    private static final String CONTENT = "preamble\r\n"
+            + "--XyZ\r\n"
+            + "Content-Disposition: form-data; name=\"properties\"\r\n"
+            + "\r\n"
+            + "{\"filename\": \"a.txt\"}\r\n"
+            + "--XyZ\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "\r\n"
+            + "line1\r\n--Xy line2\r\n"
+            + "--XyZ--\r\n";
+
+    /**
+     * a stream that returns one byte at time
+     */
+    private static InputStream slow(String content) {
+        var in = new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+
+        return new InputStream() {
+            @Override
+            public int read() {
+                return in.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                return in.read(b, off, Math.min(1, len));
+            }
+        };
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testBoundary() throws Exception {
+        Assert.assertEquals("XyZ", MultipartStreamReader
+                .boundary("multipart/form-data; boundary=XyZ"));
+        Assert.assertEquals("a b", MultipartStreamReader
+                .boundary("multipart/form-data; charset=utf-8; boundary=\"a b\""));
+        Assert.assertNull(MultipartStreamReader.boundary("multipart/form-data"));
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testNextPart() throws Exception {
+        var reader = new MultipartStreamReader(slow(CONTENT), "XyZ");
+
+        var properties = reader.nextPart();
+
+        Assert.assertEquals("properties", properties.getName());
+        Assert.assertFalse(properties.isFile());
+        Assert.assertEquals("{\"filename\": \"a.txt\"}", properties.readString(1024));
+
+        var file = reader.nextPart();
+
+        Assert.assertEquals("file", file.getName());
+        Assert.assertTrue(file.isFile());
+        Assert.assertEquals("a.txt", file.getFilename());
+        Assert.assertEquals("text/plain", file.getContentType());
+        Assert.assertEquals("line1\r\n--Xy line2", file.readString(1024));
+
+        Assert.assertNull(reader.nextPart());
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testSkipPart() throws Exception {
+        var reader = new MultipartStreamReader(
+                new ByteArrayInputStream(CONTENT.getBytes(StandardCharsets.UTF_8)),
+                "XyZ");
+
+        // the content of the first part is not read
+        reader.nextPart();
+
+        var file = reader.nextPart();
+
+        Assert.assertEquals("a.txt", file.getFilename());
+        Assert.assertEquals("line1\r\n--Xy line2", file.readString(1024));
+        Assert.assertNull(reader.nextPart());
+    }
+
+    /**
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testReadStringMaxSize() throws Exception {
+        var reader = new MultipartStreamReader(slow(CONTENT), "XyZ");
+
+        var properties = reader.nextPart();
+
+        try {
+            properties.readString(10);
+            Assert.fail("the part is longer than 10 bytes");
+        } catch (MultipartStreamReader.PartTooLargeException ptle) {
+            // expected
+        }
+
+        // the next part is still readable
+        var file = reader.nextPart();
+
+        Assert.assertEquals("a.txt", file.getFilename());
+        Assert.assertEquals("line1\r\n--Xy line2", file.readString(17));
+        Assert.assertNull(reader.nextPart());
+    }
+}
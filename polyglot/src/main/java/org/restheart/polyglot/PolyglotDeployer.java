@@ -371,7 +371,7 @@ public class PolyglotDeployer implements Initializer {
                 interceptor,
                 new HashMap<>());
 
-            registry.getInterceptors().add(record);
+            registry.addInterceptor(record);
 
             DEPLOYEES.put(pluginPath.toAbsolutePath(), interceptor);
 
@@ -404,7 +404,7 @@ public class PolyglotDeployer implements Initializer {
         var interceptorToUndeploy = DEPLOYEES.remove(pluginPath.toAbsolutePath());
 
         if (interceptorToUndeploy != null) {
-            registry.getInterceptors().removeIf(interceptor -> interceptor.getInstance() == interceptorToUndeploy);
+            registry.removeInterceptorIf(interceptor -> interceptor.getInstance() == interceptorToUndeploy);
 
             LOGGER.info(ansi().fg(GREEN).a("removed interceptor {}").reset().toString(), interceptorToUndeploy.getName());
         }
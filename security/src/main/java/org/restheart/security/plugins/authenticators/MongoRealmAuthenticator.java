@@ -20,6 +20,11 @@
  */
 package org.restheart.security.plugins.authenticators;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParseException;
@@ -35,13 +40,29 @@ import io.undertow.util.HexConverter;
 import io.undertow.util.HttpString;
 import static io.undertow.util.RedirectBuilder.UTF_8;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
 import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.mindrot.jbcrypt.BCrypt;
 import org.restheart.ConfigurationException;
 import org.restheart.cache.Cache;
@@ -73,11 +94,22 @@ public class MongoRealmAuthenticator implements Authenticator {
     public static final String X_FORWARDED_ACCOUNT_ID = "rhAuthenticator";
     public static final String X_FORWARDED_ROLE = "RESTHeart";
 
+    // the default registry of the metrics service
+    private static final String METRICS_REGISTRY = "default";
+
+    // max time a worker thread waits for a bcrypt check
+    private static final long BCRYPT_TIMEOUT = 10_000;
+
+    private static final Pattern DOTTED_PATH
+            = Pattern.compile("^\\$(\\.[A-Za-z_][A-Za-z0-9_\\-]*)+$");
+
     private String propId = "_id";
     String usersDb;
     String usersCollection;
     String propPassword = "password";
     private String jsonPathRoles = "$.roles";
+    // jsonPathRoles segments, null if it is not a simple dotted path
+    private String[] rolesPath = { "roles" };
     private Boolean bcryptHashedPassword = false;
     Integer bcryptComplexity = 12;
     private Boolean createUser = false;
@@ -88,14 +120,36 @@ public class MongoRealmAuthenticator implements Authenticator {
     private Cache.EXPIRE_POLICY cacheExpirePolicy
             = Cache.EXPIRE_POLICY.AFTER_WRITE;
 
+    private Integer bcryptPoolSize = Runtime.getRuntime().availableProcessors();
+    // lower than the default worker-threads (16)
+    private Integer bcryptQueueSize = 8;
+
     private LoadingCache<String, MongoRealmAccount> USERS_CACHE = null;
 
-    private static final transient Cache<String, String> USERS_PWDS_CACHE
+    /**
+     * the verified credentials, keyed by the HMAC-SHA256 of username, hash
+     * and password with a random key generated at startup; the passwords are
+     * not stored in memory
+     */
+    private static final transient Cache<String, Boolean> USERS_PWDS_CACHE
             = CacheFactory.createLocalCache(
                     1_000l,
                     Cache.EXPIRE_POLICY.AFTER_READ,
                     20 * 60 * 1_000l);
 
+    private static final byte[] USERS_PWDS_CACHE_KEY = new byte[32];
+
+    static {
+        new SecureRandom().nextBytes(USERS_PWDS_CACHE_KEY);
+    }
+
+    // bcrypt checks run in a bounded pool to not saturate the worker threads
+    private ThreadPoolExecutor bcryptPool = null;
+    // the worker threads waiting for a bcrypt check, at most bcryptQueueSize
+    Semaphore bcryptPending = null;
+    private Timer bcryptTimer = null;
+    private Meter bcryptRejected = null;
+
     private PluginsRegistry registry;
     private MongoClient mclient;
 
@@ -124,6 +178,18 @@ public class MongoRealmAuthenticator implements Authenticator {
 
         this.bcryptComplexity = argValue(args, "bcrypt-complexity");
 
+        if (args.containsKey("bcrypt-pool-size")) {
+            this.bcryptPoolSize = argValue(args, "bcrypt-pool-size");
+        }
+
+        if (args.containsKey("bcrypt-queue-size")) {
+            this.bcryptQueueSize = argValue(args, "bcrypt-queue-size");
+        }
+
+        if (this.bcryptHashedPassword) {
+            initBcryptPool();
+        }
+
         this.createUser = argValue(args, "create-user");
         String _createUserDocument = argValue(args, "create-user-document");
 
@@ -152,6 +218,35 @@ public class MongoRealmAuthenticator implements Authenticator {
         }
 
         this.jsonPathRoles = argValue(args, "json-path-roles");
+        this.rolesPath = compileRolesPath(this.jsonPathRoles);
+    }
+
+    private void initBcryptPool() {
+        if (this.bcryptPoolSize < 1 || this.bcryptQueueSize < 1) {
+            throw new ConfigurationException("bcrypt-pool-size and "
+                    + "bcrypt-queue-size must be greater than 0");
+        }
+
+        this.bcryptPool = new ThreadPoolExecutor(
+                this.bcryptPoolSize, this.bcryptPoolSize,
+                0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(this.bcryptQueueSize),
+                new ThreadFactoryBuilder()
+                        .setDaemon(true)
+                        .setNameFormat("mongo-realm-bcrypt-%d")
+                        .build());
+
+        this.bcryptPending = new Semaphore(this.bcryptQueueSize);
+
+        var registry = SharedMetricRegistries.getOrCreate(METRICS_REGISTRY);
+
+        this.bcryptTimer = registry.timer("mongoRealmAuthenticator.bcrypt");
+        this.bcryptRejected = registry.meter("mongoRealmAuthenticator.bcrypt-rejected");
+
+        var pool = this.bcryptPool;
+        registry.remove("mongoRealmAuthenticator.bcrypt-queue");
+        registry.register("mongoRealmAuthenticator.bcrypt-queue",
+                (Gauge<Integer>) () -> pool.getQueue().size());
     }
 
     @InjectMongoClient
@@ -312,7 +407,11 @@ public class MongoRealmAuthenticator implements Authenticator {
         return null;
     }
 
-    static boolean checkPassword(String username,
+    /**
+     * @throws RejectedExecutionException if bcrypt-queue-size checks are
+     * pending or if the check does not complete in BCRYPT_TIMEOUT
+     */
+    boolean checkPassword(String username,
             boolean hashed,
             char[] password,
             char[] expected) {
@@ -326,33 +425,82 @@ public class MongoRealmAuthenticator implements Authenticator {
 
             // speedup bcrypted pwd check if already checked.
             // bcrypt check is very CPU intensive by design.
-            var _cachedPwd = USERS_PWDS_CACHE.get(username.concat(_expected));
+            var key = credentialKey(username, _expected, _password);
+
+            var _cached = USERS_PWDS_CACHE.get(key);
 
-            if (_cachedPwd != null
-                    && _cachedPwd.isPresent()
-                    && _cachedPwd.get().equals(_password)) {
+            if (_cached != null && _cached.isPresent()) {
                 return true;
             }
 
-            try {
-                boolean check = BCrypt.checkpw(_password, _expected);
+            // a worker thread waiting for the check cannot serve other
+            // requests: the number of waiting threads is bounded
+            if (!this.bcryptPending.tryAcquire()) {
+                this.bcryptRejected.mark();
+                throw new RejectedExecutionException("too many pending bcrypt checks");
+            }
+
+            Future<Boolean> check = null;
 
-                if (check) {
-                    USERS_PWDS_CACHE.put(username.concat(_expected), _password);
+            try {
+                check = this.bcryptPool.submit(() -> {
+                    var ctx = this.bcryptTimer.time();
+
+                    try {
+                        return BCrypt.checkpw(_password, _expected);
+                    } finally {
+                        ctx.stop();
+                    }
+                });
+
+                if (check.get(BCRYPT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    USERS_PWDS_CACHE.put(key, true);
                     return true;
                 } else {
                     return false;
                 }
-            } catch (Throwable t) {
-                USERS_PWDS_CACHE.invalidate(username.concat(_expected));
-                LOGGER.warn("Error checking bcryped pwd hash", t);
+            } catch (RejectedExecutionException ree) {
+                this.bcryptRejected.mark();
+                throw new RejectedExecutionException("too many pending bcrypt checks");
+            } catch (TimeoutException te) {
+                check.cancel(true);
+                this.bcryptRejected.mark();
+                throw new RejectedExecutionException("bcrypt check timed out");
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
                 return false;
+            } catch (ExecutionException ee) {
+                LOGGER.warn("Error checking bcryped pwd hash", ee.getCause());
+                return false;
+            } finally {
+                this.bcryptPending.release();
             }
         } else {
             return Arrays.equals(password, expected);
         }
     }
 
+    /**
+     * @return the Base64 encoded HMAC-SHA256 of username, hash and password
+     */
+    private static String credentialKey(String username, String expected, String password) {
+        try {
+            var mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(USERS_PWDS_CACHE_KEY, "HmacSHA256"));
+
+            mac.update(username.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            mac.update(expected.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+
+            return Base64.getEncoder().encodeToString(
+                    mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException | InvalidKeyException ex) {
+            // HmacSHA256 is supported by every Java platform
+            throw new IllegalStateException(ex);
+        }
+    }
+
     private MongoRealmAccount getAccount(String id) {
         if (this.mclient == null) {
             LOGGER.error("Cannot find account: mongo service is not enabled.");
@@ -497,68 +645,101 @@ public class MongoRealmAuthenticator implements Authenticator {
             return null;
         }
 
-        JsonElement account;
+        var _password = _account.get(this.propPassword);
 
-        try {
-            account = JsonPath.read(_account.toJson(), "$");
-        } catch (IllegalArgumentException | PathNotFoundException pnfe) {
-            LOGGER.warn("Cannot find account {}", accountId);
-            return null;
-        }
-
-        if (!account.isJsonObject()) {
-            LOGGER.warn("Retrived document for account {} is not an object", accountId);
-            return null;
-        }
-
-        JsonElement _password;
-
-        try {
-            var ctx = JsonPath.parse(account);
-            _password = ctx.read("$.".concat(this.propPassword));
-            account = ctx.delete("$.".concat(this.propPassword)).json();
-        } catch (PathNotFoundException pnfe) {
+        if (_password == null) {
             LOGGER.warn("Cannot find pwd property '{}' for account {}", this.propPassword,
                     accountId);
             return null;
         }
 
-        if (!_password.isJsonPrimitive()
-                || !_password.getAsJsonPrimitive().isString()) {
+        if (!_password.isString()) {
             LOGGER.warn("Pwd property of account {} is not a string", accountId);
             return null;
         }
 
-        JsonElement _roles;
-
-        try {
-            _roles = JsonPath.read(account, this.jsonPathRoles);
-        } catch (PathNotFoundException pnfe) {
-            LOGGER.warn("Account with id: {} does not have roles");
-            _roles = new JsonArray();
-        }
-
-        if (!_roles.isJsonArray()) {
-            LOGGER.warn("Roles property of account {} is not an array", accountId);
-            return null;
-        }
+        // the account document is exposed, e.g. via the @user variable
+        _account.remove(this.propPassword);
 
         var roles = new LinkedHashSet<String>();
 
-        _roles.getAsJsonArray().forEach(role -> {
-            if (role != null && role.isJsonPrimitive()
-                    && role.getAsJsonPrimitive().isString()) {
-                roles.add(role.getAsJsonPrimitive().getAsString());
+        if (this.rolesPath != null) {
+            var _roles = rolesOf(_account);
+
+            if (_roles == null) {
+                LOGGER.warn("Account with id: {} does not have roles", accountId);
+            } else if (!_roles.isArray()) {
+                LOGGER.warn("Roles property of account {} is not an array", accountId);
+                return null;
             } else {
-                LOGGER.warn("A role of account {} is not a string", accountId);
+                _roles.asArray().forEach(role -> {
+                    if (role.isString()) {
+                        roles.add(role.asString().getValue());
+                    } else {
+                        LOGGER.warn("A role of account {} is not a string", accountId);
+                    }
+                });
+            }
+        } else {
+            // json-path-roles is not a simple dotted path
+            JsonElement _roles;
+
+            try {
+                _roles = JsonPath.read(_account.toJson(), this.jsonPathRoles);
+            } catch (PathNotFoundException pnfe) {
+                LOGGER.warn("Account with id: {} does not have roles", accountId);
+                _roles = new JsonArray();
+            }
+
+            if (!_roles.isJsonArray()) {
+                LOGGER.warn("Roles property of account {} is not an array", accountId);
+                return null;
             }
-        });
+
+            _roles.getAsJsonArray().forEach(role -> {
+                if (role != null && role.isJsonPrimitive()
+                        && role.getAsJsonPrimitive().isString()) {
+                    roles.add(role.getAsJsonPrimitive().getAsString());
+                } else {
+                    LOGGER.warn("A role of account {} is not a string", accountId);
+                }
+            });
+        }
 
         return new MongoRealmAccount(accountId,
-                _password.getAsJsonPrimitive().getAsString().toCharArray(),
+                _password.asString().getValue().toCharArray(),
                 roles,
-                // used this because password has been removed from account
-                BsonDocument.parse(account.toString()));
+                _account);
+    }
+
+    /**
+     * @return the value at rolesPath, null if missing
+     */
+    private BsonValue rolesOf(BsonDocument account) {
+        BsonValue ret = account;
+
+        for (var segment : this.rolesPath) {
+            if (ret.isDocument() && ret.asDocument().containsKey(segment)) {
+                ret = ret.asDocument().get(segment);
+            } else {
+                return null;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param jsonPath
+     * @return the segments of jsonPath if it is a simple dotted path, e.g.
+     * $.roles or $.auth.roles, null otherwise
+     */
+    static String[] compileRolesPath(String jsonPath) {
+        if (jsonPath == null || !DOTTED_PATH.matcher(jsonPath).matches()) {
+            return null;
+        }
+
+        return jsonPath.substring(2).split("\\.");
     }
 
     /**
@@ -57,6 +57,7 @@ public class AclPermission {
     private final BsonValue _id;
     private final Set<String> roles;
     private final Predicate predicate;
+    private final String rawPredicate;
     private final int priority;
 
     // mongo permissions
@@ -68,6 +69,7 @@ public class AclPermission {
         this._id = _id;
         this.roles = roles;
         this.predicate = predicate;
+        this.rawPredicate = null;
         this.priority = priority;
         this.mongoPermissions = mongoPermissions == null
             ? new MongoPermissions()
@@ -107,6 +109,8 @@ public class AclPermission {
             throw new ConfigurationException("Wrong permission: invalid predicate " + _predicate, t);
         }
 
+        this.rawPredicate = _predicate.asString().getValue();
+
         var _priority = doc.get("priority");
 
         if (_priority == null || _priority.isNull() || !_priority.isNumber()) {
@@ -171,6 +175,8 @@ public class AclPermission {
             throw new ConfigurationException("Wrong permission: invalid predicate: " + _predicate, t);
         }
 
+        this.rawPredicate = _predicate;
+
         if (args.containsKey("priority")) {
             this.priority = argValue(args, "priority");
         } else {
@@ -201,6 +207,14 @@ public class AclPermission {
         return predicate;
     }
 
+    /**
+     * @return the predicate as defined in the permission, null if the
+     * permission was created from a parsed Predicate
+     */
+    public String getRawPredicate() {
+        return rawPredicate;
+    }
+
     /**
      * lesser is higher priority
      *
@@ -248,7 +262,9 @@ public class AclPermission {
      * @param exchange
      * @param filter
      * @return the filter with interpolated variables
+     * @deprecated the filters are resolved by BsonTemplate
      */
+    @Deprecated
     public static JsonObject interpolateFilterVars(final HttpServerExchange exchange, final BsonDocument filter) {
         if (Objects.isNull(filter) || filter.isNull()) {
             return null;
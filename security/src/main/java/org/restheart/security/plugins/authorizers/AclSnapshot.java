@@ -0,0 +1,424 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.authorizers;
+
+import com.mongodb.client.MongoCollection;
+import io.undertow.server.HttpServerExchange;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.restheart.cache.Cache;
+import org.restheart.cache.CacheFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable snapshot of the ACL stored in MongoDB, loaded with a single
+ * query and indexed for MongoAclAuthorizer.
+ *
+ * Each permission is parsed once, even if it applies to many roles. The
+ * permissions of each role are indexed by the first path segment of the
+ * literal prefix extracted from their path-prefix or path predicate, so that
+ * only the permissions that can match the request path are evaluated. The
+ * prefix is only extracted from predicates that are conjunctions (i.e. they
+ * don't use or, not) of literal paths; other permissions are always evaluated.
+ *
+ * The decision (the matching permission or none) is cached per roles, method
+ * and path if all the evaluated predicates only depend on the method and the
+ * path. Predicates using other exchange attributes, e.g. headers, query
+ * parameters or path templates, are evaluated on every request.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class AclSnapshot {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AclSnapshot.class);
+
+    private static final BsonDocument PROJECTION = BsonDocument.parse("{\"_id\":1,\"roles\":1,\"predicate\":1,\"writeFilter\":1,\"readFilter\":1,\"priority\":1,\"mongo\":1}");
+    private static final BsonDocument SORT = BsonDocument.parse("{\"priority\":-1,\"_id\":-1}");
+
+    private static final Pattern QUOTED = Pattern.compile("'[^']*'|\"[^\"]*\"");
+    private static final Pattern LITERAL_REF = Pattern.compile("\"(\\d+)\"");
+    private static final Pattern OR_NOT = Pattern.compile("\\b(or|not)\\b|!");
+    private static final Pattern PATH_TERM = Pattern.compile("(?<![\\w-])(path-prefix|path)\\s*[\\[(]([^\\])]*)[\\])]");
+    private static final Pattern PREDICATE_NAME = Pattern.compile("([a-zA-Z][\\w-]*)\\s*[\\[(]");
+    private static final Pattern UNQUOTED_PATH = Pattern.compile("/[\\w/.~-]*");
+
+    private static final Set<String> PATH_ONLY_PREDICATES = Set.of("path",
+            "path-prefix", "path-suffix", "method", "and", "or", "not");
+
+    private final Map<String, RoleIndex> roles = new HashMap<>();
+
+    // the matching permission by roles, method and path
+    private final Cache<List<Object>, AclPermission> decisions;
+
+    private AclSnapshot(long decisionsCacheSize) {
+        this.decisions = decisionsCacheSize > 0
+                ? CacheFactory.createLocalCache(decisionsCacheSize, Cache.EXPIRE_POLICY.NEVER, 0)
+                : null;
+    }
+
+    /**
+     * @param acl the acl collection
+     * @param filter the query to select the permissions to load
+     * @param decisionsCacheSize the max number of cached decisions, 0 to
+     * disable decision caching
+     * @return the snapshot
+     */
+    static AclSnapshot load(MongoCollection<BsonDocument> acl, Bson filter, long decisionsCacheSize) {
+        return of(acl.find(filter).projection(PROJECTION).sort(SORT), decisionsCacheSize);
+    }
+
+    /**
+     * @param permissions the permission documents, in evaluation order
+     * @param decisionsCacheSize the max number of cached decisions, 0 to
+     * disable decision caching
+     * @return the snapshot
+     */
+    static AclSnapshot of(Iterable<BsonDocument> permissions, long decisionsCacheSize) {
+        var ret = new AclSnapshot(decisionsCacheSize);
+        var ordinal = 0;
+
+        for (var doc : permissions) {
+            AclPermission permission;
+
+            try {
+                permission = new AclPermission(doc);
+            } catch (IllegalArgumentException iae) {
+                LOGGER.warn("invalid permission _id={}", doc.get("_id"));
+                continue;
+            }
+
+            var indexed = new IndexedPermission(ordinal++, permission);
+
+            permission.getRoles().forEach(role -> ret.roles
+                    .computeIfAbsent(role, r -> new RoleIndex())
+                    .add(indexed));
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param role
+     * @return the permissions of the role, in evaluation order
+     */
+    LinkedHashSet<AclPermission> permissions(String role) {
+        var ret = new LinkedHashSet<AclPermission>();
+        var index = roles.get(role);
+
+        if (index != null) {
+            index.all.forEach(p -> ret.add(p.permission));
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param exchange
+     * @param roles
+     * @return the first permission, in roles order, that resolves the
+     * exchange; null if none
+     */
+    AclPermission resolve(HttpServerExchange exchange, Collection<String> roles) {
+        var path = exchange.getRequestPath();
+        List<Object> key = null;
+
+        if (this.decisions != null) {
+            // roles are evaluated in order, the order is part of the key
+            key = List.of(List.copyOf(roles), exchange.getRequestMethod().toString(), path);
+
+            var cached = this.decisions.get(key);
+
+            if (cached != null) {
+                return cached.orElse(null);
+            }
+        }
+
+        AclPermission ret = null;
+        var cacheable = true;
+
+        for (var role : roles) {
+            var index = this.roles.get(role);
+
+            if (index == null) {
+                continue;
+            }
+
+            for (var candidate : index.candidates(path)) {
+                if (!candidate.mayMatch(path)) {
+                    continue;
+                }
+
+                var resolved = candidate.permission.resolve(exchange);
+                cacheable &= candidate.pathOnly;
+
+                LOGGER.debug("role {}, permission id {}, resolve {} {}",
+                        role,
+                        candidate.permission.getId(),
+                        resolved,
+                        resolved ? "<--" : "");
+
+                if (resolved) {
+                    ret = candidate.permission;
+                    break;
+                }
+            }
+
+            if (ret != null) {
+                break;
+            }
+        }
+
+        if (key != null && cacheable) {
+            this.decisions.put(key, ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @param path
+     * @return the first segment of the path, e.g. /db for /db/coll
+     */
+    private static String segment(String path) {
+        var end = path.indexOf('/', 1);
+
+        return end < 0 ? path : path.substring(0, end);
+    }
+
+    /**
+     * @param predicate
+     * @return the literal path prefixes one of which the request path must
+     * start with for the predicate to resolve, null if unknown
+     */
+    static List<String> prefixes(String predicate) {
+        if (predicate == null) {
+            return null;
+        }
+
+        var literals = new ArrayList<String>();
+        var stripped = strip(predicate, literals);
+
+        if (OR_NOT.matcher(stripped).find()) {
+            return null;
+        }
+
+        var term = PATH_TERM.matcher(stripped);
+
+        while (term.find()) {
+            var prefixes = paths(term.group(2), literals);
+
+            if (prefixes != null) {
+                return prefixes;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @param predicate
+     * @return true if the predicate only depends on the request method and
+     * path
+     */
+    static boolean isPathOnly(String predicate) {
+        if (predicate == null) {
+            return false;
+        }
+
+        var literals = new ArrayList<String>();
+        var stripped = strip(predicate, literals);
+
+        if (stripped.contains("%") || stripped.contains("$")
+                || literals.stream().anyMatch(l -> l.contains("%") || l.contains("$"))) {
+            return false;
+        }
+
+        var name = PREDICATE_NAME.matcher(stripped);
+
+        while (name.find()) {
+            if (!PATH_ONLY_PREDICATES.contains(name.group(1))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * @return the predicate with the quoted strings replaced by "n", where n
+     * is the index of the string in literals
+     */
+    private static String strip(String predicate, List<String> literals) {
+        var m = QUOTED.matcher(predicate);
+        var sb = new StringBuilder();
+
+        while (m.find()) {
+            var quoted = m.group();
+            literals.add(quoted.substring(1, quoted.length() - 1));
+            m.appendReplacement(sb, "\"" + (literals.size() - 1) + "\"");
+        }
+
+        m.appendTail(sb);
+
+        return sb.toString();
+    }
+
+    /**
+     * @param args the arguments of path-prefix or path
+     * @return the normalized literal paths, null if any is not literal
+     */
+    private static List<String> paths(String args, List<String> literals) {
+        var _args = args.trim().replaceFirst("^path\\s*=", "").trim();
+
+        if (_args.startsWith("{") && _args.endsWith("}")) {
+            _args = _args.substring(1, _args.length() - 1);
+        }
+
+        var ret = new ArrayList<String>();
+
+        for (var arg : _args.split(",")) {
+            var _arg = arg.trim();
+            String path;
+
+            var ref = LITERAL_REF.matcher(_arg);
+
+            if (ref.matches()) {
+                path = literals.get(Integer.parseInt(ref.group(1)));
+            } else if (UNQUOTED_PATH.matcher(_arg).matches()) {
+                path = _arg;
+            } else {
+                return null;
+            }
+
+            if (!UNQUOTED_PATH.matcher(path).matches()) {
+                // e.g. path templates or exchange attributes
+                return null;
+            }
+
+            // undertow ignores the trailing slash
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+
+            ret.add(path);
+        }
+
+        return ret.isEmpty() ? null : ret;
+    }
+
+    private static class IndexedPermission {
+        private final int ordinal;
+        private final AclPermission permission;
+        private final List<String> prefixes;
+        private final boolean pathOnly;
+
+        IndexedPermission(int ordinal, AclPermission permission) {
+            this.ordinal = ordinal;
+            this.permission = permission;
+            this.prefixes = prefixes(permission.getRawPredicate());
+            this.pathOnly = isPathOnly(permission.getRawPredicate());
+        }
+
+        boolean mayMatch(String path) {
+            return prefixes == null
+                    || prefixes.stream().anyMatch(p -> startsWith(path, p));
+        }
+
+        /**
+         * @return true if path starts with prefix at a segment boundary, as
+         * undertow matches path prefixes, e.g. /db does not match /dbx
+         */
+        private static boolean startsWith(String path, String prefix) {
+            return path.startsWith(prefix)
+                    && (prefix.endsWith("/")
+                    || path.length() == prefix.length()
+                    || path.charAt(prefix.length()) == '/');
+        }
+    }
+
+    /**
+     * the permissions of a role, in evaluation order
+     */
+    private static class RoleIndex {
+        private final List<IndexedPermission> all = new ArrayList<>();
+
+        // by the first segment of their path prefixes
+        private final Map<String, List<IndexedPermission>> bySegment = new HashMap<>();
+
+        // permissions without path prefixes or with the root prefix
+        private final List<IndexedPermission> unindexed = new ArrayList<>();
+
+        void add(IndexedPermission p) {
+            all.add(p);
+
+            if (p.prefixes == null || p.prefixes.contains("/")) {
+                unindexed.add(p);
+            } else {
+                p.prefixes.stream()
+                        .map(AclSnapshot::segment)
+                        .distinct()
+                        .forEach(s -> bySegment
+                        .computeIfAbsent(s, k -> new ArrayList<>())
+                        .add(p));
+            }
+        }
+
+        /**
+         * @return the permissions that can match the path, in evaluation
+         * order
+         */
+        List<IndexedPermission> candidates(String path) {
+            var indexed = bySegment.getOrDefault(segment(path), Collections.emptyList());
+
+            if (indexed.isEmpty()) {
+                return unindexed;
+            } else if (unindexed.isEmpty()) {
+                return indexed;
+            }
+
+            // merge the two lists, both sorted by ordinal
+            var ret = new ArrayList<IndexedPermission>(indexed.size() + unindexed.size());
+            int i = 0, j = 0;
+
+            while (i < indexed.size() && j < unindexed.size()) {
+                if (indexed.get(i).ordinal < unindexed.get(j).ordinal) {
+                    ret.add(indexed.get(i++));
+                } else {
+                    ret.add(unindexed.get(j++));
+                }
+            }
+
+            ret.addAll(indexed.subList(i, indexed.size()));
+            ret.addAll(unindexed.subList(j, unindexed.size()));
+
+            return ret;
+        }
+    }
+}
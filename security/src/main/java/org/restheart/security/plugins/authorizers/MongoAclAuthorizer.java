@@ -20,29 +20,27 @@
  */
 package org.restheart.security.plugins.authorizers;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
 import static com.google.common.collect.Sets.newHashSet;
 import com.mongodb.MongoClient;
-import static com.mongodb.client.model.Filters.eq;
+import com.mongodb.MongoCommandException;
+import static com.mongodb.client.model.Filters.in;
+import com.mongodb.client.MongoCollection;
 import static io.undertow.predicate.Predicate.PREDICATE_CONTEXT;
 import io.undertow.security.idm.Account;
 import io.undertow.server.HttpServerExchange;
 import io.undertow.util.AttachmentKey;
 import java.security.Principal;
-import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import org.bson.BsonDocument;
 import org.restheart.ConfigurationException;
 import org.restheart.cache.Cache;
-import org.restheart.cache.CacheFactory;
-import org.restheart.cache.LoadingCache;
 import org.restheart.exchange.Request;
 import static org.restheart.plugins.ConfigurablePlugin.argValue;
 import org.restheart.plugins.InjectConfiguration;
@@ -54,6 +52,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
+ * Authorizes requests against the acl stored in mongodb.
+ *
+ * The whole acl is loaded with a single query into an AclSnapshot, that
+ * indexes the permissions by role and path prefix and caches the decisions.
+ * With cache-enabled, the snapshot is reloaded after cache-ttl and, if the
+ * acl collection can be watched via a change stream (i.e. with a replica set),
+ * as soon as the acl changes; cache-size is the max number of cached
+ * decisions. While a thread reloads the snapshot, the other requests are
+ * authorized against the current one. Without cache, the permissions of the request roles are loaded
+ * on every request.
  *
  * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
  */
@@ -71,6 +79,11 @@ public class MongoAclAuthorizer implements Authorizer {
 
     public static final String $UNAUTHENTICATED = "$unauthenticated";
 
+    // error code of change streams on standalone servers
+    private static final int CHANGE_STREAM_NOT_SUPPORTED = 40573;
+
+    private static final long WATCH_RETRY_DELAY = 30_000;
+
     String aclDb;
     String aclCollection;
     private String rootRole = null;
@@ -79,7 +92,13 @@ public class MongoAclAuthorizer implements Authorizer {
     private Integer cacheTTL = 60 * 1_000; // 1 minute
     private Cache.EXPIRE_POLICY cacheExpirePolicy = Cache.EXPIRE_POLICY.AFTER_WRITE;
 
-    private LoadingCache<String, LinkedHashSet<AclPermission>> acl = null;
+    private volatile AclSnapshot snapshot = null;
+    private volatile long snapshotLoadedAt = 0;
+    private volatile long snapshotReadAt = 0;
+    private volatile long invalidatedAt = 0;
+
+    // held by the thread that loads the snapshot
+    private final ReentrantLock reloadLock = new ReentrantLock();
 
     private MongoClient mclient;
 
@@ -109,13 +128,6 @@ public class MongoAclAuthorizer implements Authorizer {
                                 + Arrays.toString(Cache.EXPIRE_POLICY.values()));
                     }
                 }
-
-                this.acl = CacheFactory.createLocalLoadingCache(
-                        this.cacheSize,
-                        this.cacheExpirePolicy,
-                        this.cacheTTL, (String role) -> {
-                            return this.findRolePermissions(role);
-                        });
             }
         }
     }
@@ -126,6 +138,8 @@ public class MongoAclAuthorizer implements Authorizer {
 
         if (!checkAclCollection()) {
             LOGGER.error("ACL collection does not exist and could not be created");
+        } else if (this.cacheEnabled) {
+            watchAclCollection();
         }
     }
 
@@ -167,58 +181,17 @@ public class MongoAclAuthorizer implements Authorizer {
         // see https://issues.jboss.org/browse/UNDERTOW-1317
         exchange.setRelativePath(exchange.getRequestPath());
 
-        final ArrayList<AclPermission> permissions = new ArrayList<>();
-
-        // debug roles and predicates evaluation order
-        if (LOGGER.isDebugEnabled()) {
-            roles(exchange).forEachOrdered(role
-                    -> {
-                ArrayList<AclPermission> matched = Lists.newArrayListWithCapacity(1);
-
-                rolePermissions(role)
-                        .stream().anyMatch(permission -> {
-                            var resolved = permission.resolve(exchange);
-
-                            String marker;
-
-                            // to highlight the effective permission
-                            if (resolved && matched.isEmpty()) {
-                                matched.add(permission);
-                                marker = "<--";
-                            } else {
-                                marker = "";
-                            }
-
-                            LOGGER.debug("role {}, permission id {}, resolve {} {}",
-                                    role,
-                                    permission.getId(),
-                                    resolved,
-                                    marker);
-
-                            return false;
-                        });
-            });
-        }
+        var roles = account(exchange).getRoles();
+        var acl = snapshot(roles);
 
-        // the applicable permission is the ones that
-        // resolves the exchange
-        roles(exchange)
-                .forEachOrdered(role
-                        -> rolePermissions(role)
-                        .stream()
-                        .anyMatch(r -> {
-                            if (r.resolve(exchange)) {
-                                permissions.add(r);
-                                return true;
-                            } else {
-                                return false;
-                            }
-                        }));
-
-        if (permissions.isEmpty()) {
+        var permission = acl == null
+                ? null
+                : acl.resolve(exchange, roles);
+
+        if (permission == null) {
             return false;
         } else {
-            exchange.putAttachment(MATCHING_ACL_PERMISSION, permissions.get(0));
+            exchange.putAttachment(MATCHING_ACL_PERMISSION, permission);
             return true;
         }
     }
@@ -233,9 +206,10 @@ public class MongoAclAuthorizer implements Authorizer {
 
         var exchange = request.getExchange();
 
-        var ps = rolePermissions($UNAUTHENTICATED);
+        var roles = List.of($UNAUTHENTICATED);
+        var acl = snapshot(roles);
 
-        if (ps != null) {
+        if (acl != null) {
             // this fixes undertow bug 377
             // https://issues.jboss.org/browse/UNDERTOW-377
             if (exchange.getAttachment(PREDICATE_CONTEXT) == null) {
@@ -247,16 +221,12 @@ public class MongoAclAuthorizer implements Authorizer {
             // see https://issues.jboss.org/browse/UNDERTOW-1317
             exchange.setRelativePath(request.getPath());
 
-            return !ps.stream().anyMatch(r -> r.resolve(exchange));
+            return acl.resolve(exchange, roles) == null;
         } else {
             return true;
         }
     }
 
-    private Stream<String> roles(HttpServerExchange exchange) {
-        return account(exchange).getRoles().stream();
-    }
-
     private Account account(HttpServerExchange exchange) {
         final Account account = exchange.getSecurityContext().getAuthenticatedAccount();
         return isAuthenticated(account) ? account : new NotAuthenticatedAccount();
@@ -271,19 +241,125 @@ public class MongoAclAuthorizer implements Authorizer {
      * @return the acl
      */
     public LinkedHashSet<AclPermission> rolePermissions(String role) {
-        if (this.cacheEnabled) {
-            var _rolePermissions = this.acl.getLoading(role);
+        var acl = snapshot(List.of(role));
+
+        return acl == null ? null : acl.permissions(role);
+    }
 
-            if (_rolePermissions != null && _rolePermissions.isPresent()) {
-                return _rolePermissions.get();
-            } else {
-                return null;
+    /**
+     * @param roles the roles of the request
+     * @return the acl snapshot, null if the mongo service is not enabled
+     */
+    private AclSnapshot snapshot(Collection<String> roles) {
+        if (this.mclient == null) {
+            LOGGER.error("Cannot find acl: mongo service is not enabled.");
+            return null;
+        }
+
+        if (!this.cacheEnabled) {
+            return AclSnapshot.load(aclCollection(), in("roles", roles), 0);
+        }
+
+        var now = System.currentTimeMillis();
+        var ret = this.snapshot;
+
+        if (ret == null) {
+            // no snapshot to serve yet, wait for the first load
+            this.reloadLock.lock();
+        } else if (!isExpired(now) || !this.reloadLock.tryLock()) {
+            // up to date or another thread is reloading it
+            this.snapshotReadAt = now;
+            return ret;
+        }
+
+        try {
+            ret = this.snapshot;
+
+            if (ret == null || isExpired(now)) {
+                ret = AclSnapshot.load(aclCollection(), new BsonDocument(), this.cacheSize);
+                this.snapshot = ret;
+                this.snapshotLoadedAt = now;
             }
-        } else {
-            return findRolePermissions(role);
+        } finally {
+            this.reloadLock.unlock();
+        }
+
+        this.snapshotReadAt = now;
+
+        return ret;
+    }
+
+    private boolean isExpired(long now) {
+        if (this.snapshotLoadedAt <= this.invalidatedAt) {
+            return true;
+        } else if (this.cacheTTL == null || this.cacheTTL <= 0) {
+            return false;
+        }
+
+        switch (this.cacheExpirePolicy) {
+            case AFTER_WRITE:
+                return now - this.snapshotLoadedAt > this.cacheTTL;
+            case AFTER_READ:
+                return now - this.snapshotReadAt > this.cacheTTL;
+            default:
+                return false;
         }
     }
 
+    /**
+     * the acl is reloaded on next request
+     */
+    private void invalidate() {
+        this.invalidatedAt = System.currentTimeMillis();
+    }
+
+    private MongoCollection<BsonDocument> aclCollection() {
+        return this.mclient.getDatabase(this.aclDb)
+                .getCollection(this.aclCollection, BsonDocument.class);
+    }
+
+    /**
+     * watches the acl collection in a daemon thread to reload the acl as soon
+     * as it changes; if change streams are not supported, the acl is only
+     * reloaded after cache-ttl
+     */
+    private void watchAclCollection() {
+        var watcher = new Thread(() -> {
+            while (true) {
+                try {
+                    aclCollection().watch().forEach(event -> {
+                        LOGGER.debug("acl changed, reloading it");
+                        invalidate();
+                    });
+                } catch (MongoCommandException mce) {
+                    if (mce.getErrorCode() == CHANGE_STREAM_NOT_SUPPORTED) {
+                        LOGGER.info("Cannot watch the acl collection, "
+                                + "changes will be effective after cache-ttl: {}",
+                                mce.getErrorMessage());
+                        return;
+                    }
+
+                    LOGGER.warn("Error watching the acl collection", mce);
+                } catch (Throwable t) {
+                    LOGGER.warn("Error watching the acl collection", t);
+                }
+
+                // changes might have been missed
+                invalidate();
+
+                try {
+                    Thread.sleep(WATCH_RETRY_DELAY);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }, "mongo-acl-watcher");
+
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
     private static class NotAuthenticatedAccount implements Account {
 
         /**
@@ -302,46 +378,6 @@ public class MongoAclAuthorizer implements Authorizer {
         }
     }
 
-    private static final BsonDocument PROJECTION = BsonDocument.parse("{\"_id\":1,\"roles\":1,\"predicate\":1,\"writeFilter\":1,\"readFilter\":1,\"priority\":1,\"mongo\":1}");
-    private static final BsonDocument SORT = BsonDocument.parse("{\"priority\":-1,\"_id\":-1}");
-
-    private LinkedHashSet<AclPermission> findRolePermissions(final String role) {
-        if (this.mclient == null) {
-            LOGGER.error("Cannot find acl: mongo service is not enabled.");
-            return null;
-        } else {
-            var permissions = this.mclient.getDatabase(this.aclDb)
-                    .getCollection(this.aclCollection, BsonDocument.class)
-                    .find(eq("roles", role))
-                    .projection(PROJECTION)
-                    .sort(SORT);
-
-            if (permissions == null) {
-                return new LinkedHashSet<>();
-            } else {
-                LinkedHashSet<AclPermission> ret = Sets.newLinkedHashSet();
-
-                StreamSupport.stream(permissions.spliterator(), true)
-                        .filter(permissionElem -> permissionElem.isDocument())
-                        .map(permissionElem -> permissionElem.asDocument())
-                        .filter(permissionDocument -> {
-                            // filter out illegal permissions
-                            try {
-                                new AclPermission(permissionDocument);
-                                return true;
-                            } catch (IllegalArgumentException iae) {
-                                LOGGER.warn("invalid permission _id={}", permissionDocument.get("_id"));
-                                return false;
-                            }
-                        })
-                        .map(permissionDocument -> new AclPermission(permissionDocument))
-                        .forEachOrdered(p -> ret.add(p));
-
-                return ret;
-            }
-        }
-    }
-
     public boolean checkAclCollection() {
         if (this.mclient == null) {
             LOGGER.error("Cannot check acl collection: mongo service is not enabled.");
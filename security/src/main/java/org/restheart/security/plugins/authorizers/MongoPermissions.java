@@ -35,6 +35,7 @@ import com.google.gson.JsonParseException;
 import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.restheart.ConfigurationException;
+import org.restheart.security.plugins.interceptors.mongo.BsonTemplate;
 import org.restheart.utils.JsonUtils;
 import org.restheart.utils.LambdaUtils;
 
@@ -48,6 +49,8 @@ public class MongoPermissions {
     final boolean allowAllWriteModes;
     private final BsonDocument readFilter;
     private final BsonDocument writeFilter;
+    private final BsonTemplate readFilterTemplate;
+    private final BsonTemplate writeFilterTemplate;
 
     final Set<String> hiddenProps = Sets.newHashSet();
     final Set<String> protectedProps = Sets.newHashSet();
@@ -60,6 +63,8 @@ public class MongoPermissions {
         this.allowAllWriteModes = false;
         this.readFilter = null;
         this.writeFilter = null;
+        this.readFilterTemplate = null;
+        this.writeFilterTemplate = null;
     }
 
     MongoPermissions(BsonDocument readFilter, BsonDocument writeFilter, boolean whitelistManagementRequests,
@@ -71,6 +76,9 @@ public class MongoPermissions {
         this.writeFilter = writeFilter == null ? null
                 : writeFilter.isNull() ? null : JsonUtils.escapeKeys(writeFilter.asDocument(), true).asDocument();
 
+        this.readFilterTemplate = BsonTemplate.compile(getReadFilter());
+        this.writeFilterTemplate = BsonTemplate.compile(getWriteFilter());
+
         this.whitelistManagementRequests = whitelistManagementRequests;
         this.whitelistBulkPatch = whitelistBulkPatch;
         this.whitelistBulkDelete = whitelistBulkDelete;
@@ -339,6 +347,22 @@ public class MongoPermissions {
                 : JsonUtils.unescapeKeys(writeFilter).asDocument();
     }
 
+    /**
+     * @return the readFilter compiled with its variables as slots, null if
+     * there is no readFilter
+     */
+    public BsonTemplate getReadFilterTemplate() {
+        return readFilterTemplate;
+    }
+
+    /**
+     * @return the writeFilter compiled with its variables as slots, null if
+     * there is no writeFilter
+     */
+    public BsonTemplate getWriteFilterTemplate() {
+        return writeFilterTemplate;
+    }
+
     public boolean getWhitelistManagementRequests() {
         return this.whitelistManagementRequests;
     }
@@ -0,0 +1,173 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.interceptors.mongo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.restheart.exchange.MongoRequest;
+
+/**
+ * A BSON document with typed placeholder slots for the variables of the ACL
+ * filters: %USER, %ROLES, %NOW or @now, @user and @user.property
+ *
+ * The document is compiled once, recording the position of each variable;
+ * resolve() copies it and sets the variable values at their positions,
+ * without converting the document to and from a String.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonTemplate {
+    enum SLOT_TYPE {
+        USER, ROLES, NOW, ACCOUNT
+    }
+
+    private final BsonDocument template;
+    private final List<Slot> slots = new ArrayList<>();
+
+    private BsonTemplate(BsonDocument template) {
+        this.template = template;
+        compile(template, new ArrayList<>());
+    }
+
+    /**
+     * @param doc the document with the variables
+     * @return the compiled template, null if doc is null
+     */
+    public static BsonTemplate compile(BsonDocument doc) {
+        return doc == null ? null : new BsonTemplate(doc.clone());
+    }
+
+    /**
+     * @param request
+     * @return a new document with the variables bound to the values of the
+     * request
+     */
+    public BsonDocument resolve(MongoRequest request) {
+        var ret = template.clone();
+
+        BsonValue now = null;
+
+        for (var slot : slots) {
+            BsonValue value;
+
+            if (slot.type == SLOT_TYPE.NOW) {
+                // same value for all the occurrences
+                if (now == null) {
+                    now = new BsonDateTime(Instant.now().getEpochSecond() * 1000);
+                }
+
+                value = now;
+            } else {
+                value = MongoPermissionsUtils.interpolatePropValue(request, null, slot.variable);
+            }
+
+            set(ret, slot.path, value);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return true if the template has variables
+     */
+    public boolean hasVariables() {
+        return !slots.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return template.toJson();
+    }
+
+    private void compile(BsonValue value, List<Object> path) {
+        if (value.isDocument()) {
+            value.asDocument().forEach((k, v) -> {
+                path.add(k);
+                compile(v, path);
+                path.remove(path.size() - 1);
+            });
+        } else if (value.isArray()) {
+            var array = value.asArray();
+
+            for (int i = 0; i < array.size(); i++) {
+                path.add(i);
+                compile(array.get(i), path);
+                path.remove(path.size() - 1);
+            }
+        } else if (value.isString()) {
+            var type = slotType(value.asString().getValue());
+
+            if (type != null) {
+                slots.add(new Slot(path.toArray(), type, value.asString().getValue()));
+            }
+        }
+    }
+
+    private static SLOT_TYPE slotType(String value) {
+        switch (value) {
+            case "%USER":
+                return SLOT_TYPE.USER;
+            case "%ROLES":
+                return SLOT_TYPE.ROLES;
+            case "%NOW":
+            case "@now":
+                return SLOT_TYPE.NOW;
+            case "@user":
+                return SLOT_TYPE.ACCOUNT;
+            default:
+                return value.startsWith("@user.") ? SLOT_TYPE.ACCOUNT : null;
+        }
+    }
+
+    private static void set(BsonDocument doc, Object[] path, BsonValue value) {
+        BsonValue parent = doc;
+
+        for (int i = 0; i < path.length - 1; i++) {
+            parent = path[i] instanceof Integer
+                    ? parent.asArray().get((Integer) path[i])
+                    : parent.asDocument().get((String) path[i]);
+        }
+
+        var last = path[path.length - 1];
+
+        if (last instanceof Integer) {
+            parent.asArray().set((Integer) last, value);
+        } else {
+            parent.asDocument().put((String) last, value);
+        }
+    }
+
+    private static class Slot {
+        private final Object[] path;
+        private final SLOT_TYPE type;
+        private final String variable;
+
+        Slot(Object[] path, SLOT_TYPE type, String variable) {
+            this.path = path;
+            this.type = type;
+            this.variable = variable;
+        }
+    }
+}
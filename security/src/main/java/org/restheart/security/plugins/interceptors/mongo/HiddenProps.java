@@ -39,9 +39,17 @@ public class HiddenProps implements MongoInterceptor {
 
     @Override
     public void handle(MongoRequest request, MongoResponse response) throws Exception {
-        var hiddendProps = AclPermission.from(request.getExchange()).getMongoPermissions().getHiddenProps();
+        handle(response, AclPermission.from(request.getExchange()).getMongoPermissions().getHiddenProps());
+    }
 
-        if (response.getContent().isDocument()) {
+    void handle(MongoResponse response, Set<String> hiddendProps) {
+        if (response.isContentStreamed()) {
+            // the properties are hidden as the documents are sent
+            response.addStreamedContentProcessor(doc -> {
+                hide(doc, hiddendProps);
+                return doc;
+            });
+        } else if (response.getContent().isDocument()) {
             hide(response.getContent().asDocument(), hiddendProps);
         } else if (response.getContent().isArray()) {
             response.getContent().asArray().forEach(doc -> hide(doc.asDocument(), hiddendProps));
@@ -65,7 +73,8 @@ public class HiddenProps implements MongoInterceptor {
 
     @Override
     public boolean resolve(MongoRequest request, MongoResponse response) {
-        if (!request.isHandledBy("mongo") || response.getContent() == null) {
+        if (!request.isHandledBy("mongo")
+                || (response.getContent() == null && !response.isContentStreamed())) {
             return false;
         }
 
@@ -0,0 +1,116 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.interceptors.mongo;
+
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.bson.json.JsonParseException;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.MongoResponse;
+import org.restheart.plugins.InterceptPoint;
+import org.restheart.plugins.MongoInterceptor;
+import org.restheart.plugins.RegisterPlugin;
+import org.restheart.security.plugins.authorizers.AclPermission;
+import org.restheart.utils.HttpStatus;
+
+/**
+ * The continuation token of keyset pagination encodes the values of the sort
+ * keys of the last document of the page, that are computed before the
+ * response interceptors hide the properties. This interceptor forbids keyset
+ * pagination when a sort key, or its parent or child, is hidden by the
+ * mongo.hiddenProps ACL permission, otherwise its values would leak in the
+ * Continuation-Token header.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+@RegisterPlugin(name = "mongoHiddenPropsKeysetPagination",
+    description = "Forbids keyset pagination sorting by properties hidden by the mongo.hiddenProps ACL permission",
+    interceptPoint = InterceptPoint.REQUEST_AFTER_AUTH,
+    enabledByDefault = true)
+public class HiddenPropsKeysetPagination implements MongoInterceptor {
+
+    @Override
+    public void handle(MongoRequest request, MongoResponse response) throws Exception {
+        var hiddenProps = AclPermission.from(request.getExchange()).getMongoPermissions().getHiddenProps();
+
+        response.setInError(HttpStatus.SC_FORBIDDEN,
+                "Keyset pagination cannot sort by the hidden property "
+                + hiddenSortKey(request.getSortByDocument(), hiddenProps).orElse(""));
+    }
+
+    @Override
+    public boolean resolve(MongoRequest request, MongoResponse response) {
+        if (!request.isHandledBy("mongo")
+                || !request.isGet()
+                || !request.isKeysetPagination()) {
+            return false;
+        }
+
+        var permission = AclPermission.from(request.getExchange());
+
+        if (permission == null
+                || permission.getMongoPermissions() == null
+                || permission.getMongoPermissions().getHiddenProps().isEmpty()) {
+            return false;
+        }
+
+        try {
+            return hiddenSortKey(request.getSortByDocument(),
+                    permission.getMongoPermissions().getHiddenProps()).isPresent();
+        } catch (JsonParseException jpe) {
+            // invalid sort_by, the request fails with 400
+            return false;
+        }
+    }
+
+    /**
+     * @param sortBy the sort document of the request
+     * @param hiddenProps
+     * @return the first sort key that overlaps a hidden property; _id is
+     * always a sort key of keyset pagination
+     */
+    static Optional<String> hiddenSortKey(BsonDocument sortBy, Set<String> hiddenProps) {
+        var keys = new LinkedHashSet<String>();
+
+        if (sortBy != null) {
+            keys.addAll(sortBy.keySet());
+        }
+
+        keys.add("_id");
+
+        return keys.stream()
+                .filter(key -> hiddenProps.stream().anyMatch(hiddenProp -> overlaps(key, hiddenProp)))
+                .findFirst();
+    }
+
+    /**
+     * @return true if a and b are the same property or one is a parent of the
+     * other
+     */
+    private static boolean overlaps(String a, String b) {
+        return a.equals(b)
+                || a.startsWith(b.concat("."))
+                || b.startsWith(a.concat("."));
+    }
+}
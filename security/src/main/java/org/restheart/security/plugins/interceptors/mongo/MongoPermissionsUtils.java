@@ -69,10 +69,8 @@ public class MongoPermissionsUtils {
 
                 if (value.isString()) {
                     ret.put(k, interpolatePropValue(request, k, doc.get(k).asString().getValue()));
-                } else if (value.isDocument()) {
+                } else if (value.isDocument() || value.isArray()) {
                     ret.put(k, interpolateBson(request, value));
-                } else if (value.isArray()) {
-                    value.asArray().stream().forEachOrdered(e -> ret.put(k, interpolateBson(request, e)));
                 } else {
                     ret.put(k, value);
                 }
@@ -22,6 +22,7 @@ package org.restheart.security.plugins.interceptors.mongo;
 
 import java.util.Map;
 
+import org.bson.BsonDocument;
 import org.bson.BsonValue;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
@@ -29,6 +30,7 @@ import org.restheart.plugins.InterceptPoint;
 import org.restheart.plugins.MongoInterceptor;
 import org.restheart.plugins.RegisterPlugin;
 import org.restheart.security.plugins.authorizers.AclPermission;
+import org.restheart.security.plugins.authorizers.MongoPermissions;
 import org.restheart.utils.JsonUtils;
 
 @RegisterPlugin(name = "mongoOverriddenProps",
@@ -40,13 +42,25 @@ import org.restheart.utils.JsonUtils;
 public class OverriddenProps implements MongoInterceptor {
     @Override
     public void handle(MongoRequest request, MongoResponse response) throws Exception {
-        var overriddenProps = AclPermission.from(request.getExchange()).getMongoPermissions().getOverriddenProps();
+        handle(request, response, AclPermission.from(request.getExchange()).getMongoPermissions().getOverriddenProps());
+    }
+
+    void handle(MongoRequest request, MongoResponse response, Map<String, BsonValue> overriddenProps) {
+        if (request.isContentStreamed()) {
+            // the documents are overridden as they are read
+            request.addStreamedContentProcessor(doc -> {
+                override(request, doc, overriddenProps);
+                return JsonUtils.unflatten(doc).asDocument();
+            });
+
+            return;
+        }
 
         if (request.getContent().isDocument()) {
-            override(request, overriddenProps);
+            override(request, request.getContent().asDocument(), overriddenProps);
         } else if (request.getContent().isArray()) {
             request.getContent().asArray().stream().map(doc -> doc.asDocument())
-                    .forEachOrdered(doc -> override(request, overriddenProps));
+                    .forEachOrdered(doc -> override(request, doc, overriddenProps));
         }
 
         if (request.isPost()) {
@@ -54,28 +68,26 @@ public class OverriddenProps implements MongoInterceptor {
         }
     }
 
-    private void override(MongoRequest request, Map<String, BsonValue> overriddenProps) {
+    private void override(MongoRequest request, BsonDocument doc, Map<String, BsonValue> overriddenProps) {
         overriddenProps.entrySet().stream()
                 .filter(e -> e.getValue() != null && e.getValue().isString())
-                .forEachOrdered(e -> override(request, e.getKey(), e.getValue().asString().getValue()));
-    }
-
-    private void override(MongoRequest request, String key, String value) {
-        request.getContent().asDocument().put(key, MongoPermissionsUtils.interpolatePropValue(request, key, value));
+                .forEachOrdered(e -> doc.put(e.getKey(),
+                        MongoPermissionsUtils.interpolatePropValue(request, e.getKey(), e.getValue().asString().getValue())));
     }
 
     @Override
     public boolean resolve(MongoRequest request, MongoResponse response) {
-        if (!request.isHandledBy("mongo") || request.getContent() == null) {
+        if (!request.isHandledBy("mongo")
+                || (request.getContent() == null && !request.isContentStreamed())) {
             return false;
         }
 
         var permission = AclPermission.from(request.getExchange());
 
-        if (permission != null && permission.getMongoPermissions() != null) {
-            return !permission.getMongoPermissions().getProtectedProps().isEmpty();
-        } else {
-            return false;
-        }
+        return permission != null && resolve(permission.getMongoPermissions());
+    }
+
+    static boolean resolve(MongoPermissions permissions) {
+        return permissions != null && !permissions.getOverriddenProps().isEmpty();
     }
 }
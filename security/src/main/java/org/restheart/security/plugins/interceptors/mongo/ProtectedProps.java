@@ -30,6 +30,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.bson.BsonDocument;
+import org.restheart.exchange.BadRequestException;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.plugins.InterceptPoint;
@@ -43,7 +44,22 @@ public class ProtectedProps implements MongoInterceptor {
 
     @Override
     public void handle(MongoRequest request, MongoResponse response) throws Exception {
-        var protectedProps = AclPermission.from(request.getExchange()).getMongoPermissions().getProtectedProps();
+        handle(request, response, AclPermission.from(request.getExchange()).getMongoPermissions().getProtectedProps());
+    }
+
+    void handle(MongoRequest request, MongoResponse response, Set<String> protectedProps) {
+        if (request.isContentStreamed()) {
+            // the documents are checked as they are read
+            request.addStreamedContentProcessor(doc -> {
+                if (contains(doc, protectedProps)) {
+                    throw new BadRequestException("protected property", HttpStatus.SC_FORBIDDEN);
+                }
+
+                return doc;
+            });
+
+            return;
+        }
 
         boolean contains;
 
@@ -95,7 +111,8 @@ public class ProtectedProps implements MongoInterceptor {
 
     @Override
     public boolean resolve(MongoRequest request, MongoResponse response) {
-        if (!request.isHandledBy("mongo") || request.getContent() == null) {
+        if (!request.isHandledBy("mongo")
+                || (request.getContent() == null && !request.isContentStreamed())) {
             return false;
         }
 
@@ -20,8 +20,6 @@
  */
 package org.restheart.security.plugins.interceptors.mongo;
 
-import java.util.ArrayDeque;
-import org.bson.BsonDocument;
 import org.restheart.exchange.MongoRequest;
 import org.restheart.exchange.MongoResponse;
 import org.restheart.plugins.InjectPluginsRegistry;
@@ -64,16 +62,16 @@ public class RequestFilters implements MongoInterceptor {
         var predicate = AclPermission.from(exchange);
 
         if (request.isGet()
-                && predicate.getMongoPermissions().getReadFilter() != null) {
-            LOGGER.debug("read filter: {}", predicate.getMongoPermissions().getReadFilter());
-            addFilter(request, predicate.getMongoPermissions().getReadFilter());
+                && predicate.getMongoPermissions().getReadFilterTemplate() != null) {
+            LOGGER.debug("read filter: {}", predicate.getMongoPermissions().getReadFilterTemplate());
+            addFilter(request, predicate.getMongoPermissions().getReadFilterTemplate());
         } else if ((request.isPatch()
                 || request.isPut()
                 || request.isPost()
                 || request.isDelete())
-                && predicate.getMongoPermissions().getWriteFilter() != null) {
-            LOGGER.debug("write filter to add: {}", predicate.getMongoPermissions().getWriteFilter());
-            addFilter(request, predicate.getMongoPermissions().getWriteFilter());
+                && predicate.getMongoPermissions().getWriteFilterTemplate() != null) {
+            LOGGER.debug("write filter to add: {}", predicate.getMongoPermissions().getWriteFilterTemplate());
+            addFilter(request, predicate.getMongoPermissions().getWriteFilterTemplate());
         } else {
             LOGGER.trace("predicate specifies no filter");
         }
@@ -88,17 +86,11 @@ public class RequestFilters implements MongoInterceptor {
                 && permission.getMongoPermissions() != null;
     }
 
-    private void addFilter(final MongoRequest request, final BsonDocument filter) {
+    private void addFilter(final MongoRequest request, final BsonTemplate filter) {
         if (filter == null) {
             return;
         }
 
-        var resolvedFilter = MongoPermissionsUtils.interpolateBson(request, filter);
-
-        if (request.getFilter() == null) {
-            request.setFilter(new ArrayDeque<>());
-        }
-
-        request.getFilter().add(resolvedFilter.toString());
+        request.addFilterDocument(filter.resolve(request));
     }
 }
@@ -0,0 +1,342 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.mechanisms;
+
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import org.restheart.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The signing keys of a JSON Web Key Set, loaded from a file or an http url
+ * and refreshed in background every ttl milliseconds. If a refresh fails, the
+ * keys previously loaded are kept.
+ *
+ * RSA and EC (P-256, P-384, P-521) keys with a kid are supported. The
+ * JWTVerifiers are cached per kid and algorithm; a token with an unknown kid
+ * triggers an asynchronous refresh, at most once every 30 seconds.
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+class JwksKeySet {
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwksKeySet.class);
+
+    private static final long MIN_REFRESH_INTERVAL = 30 * 1_000;
+    private static final int TIMEOUT = 10 * 1_000;
+
+    private static final ScheduledExecutorService REFRESHER
+            = Executors.newSingleThreadScheduledExecutor(
+                    new ThreadFactoryBuilder()
+                            .setDaemon(true)
+                            .setNameFormat("jwks-refresher-%d")
+                            .build());
+
+    private final URL url;
+    private final Function<Algorithm, JWTVerifier> verifierFactory;
+
+    private volatile Keys keys = new Keys(Map.of());
+    private volatile long refreshedAt = 0;
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+
+    /**
+     * @param uri the http url or the file path of the JWKS
+     * @param ttl the refresh interval in milliseconds
+     * @param verifierFactory builds the verifier for an algorithm, applying
+     * the other checks, e.g. issuer and audience
+     * @throws ConfigurationException if uri is invalid
+     */
+    JwksKeySet(String uri, long ttl, Function<Algorithm, JWTVerifier> verifierFactory)
+            throws ConfigurationException {
+        if (ttl <= 0) {
+            throw new ConfigurationException("wrong JWT configuration, "
+                    + "jwksTtl must be greater than 0");
+        }
+
+        this.url = url(uri);
+        this.verifierFactory = verifierFactory;
+
+        refresh();
+
+        REFRESHER.scheduleWithFixedDelay(this::refresh, ttl, ttl, TimeUnit.MILLISECONDS);
+    }
+
+    private static URL url(String uri) throws ConfigurationException {
+        try {
+            return uri.startsWith("http://") || uri.startsWith("https://") || uri.startsWith("file:")
+                    ? new URL(uri)
+                    : Path.of(uri).toAbsolutePath().toUri().toURL();
+        } catch (MalformedURLException | IllegalArgumentException ex) {
+            throw new ConfigurationException("wrong JWT configuration, "
+                    + "invalid jwksUri " + uri, ex);
+        }
+    }
+
+    /**
+     * @param kid the key id of the token
+     * @param alg the algorithm of the token
+     * @return the verifier for kid and alg, null if the kid is unknown or alg
+     * is not allowed for the key
+     */
+    JWTVerifier verifier(String kid, String alg) {
+        if (kid == null || alg == null) {
+            return null;
+        }
+
+        var _keys = this.keys;
+        var jwk = _keys.keys.get(kid);
+
+        if (jwk == null) {
+            LOGGER.debug("Jwt with unknown kid {}", kid);
+            refreshAsync();
+            return null;
+        }
+
+        return _keys.verifiers.computeIfAbsent(kid.concat(":").concat(alg), k -> {
+            var algorithm = jwk.algorithm(alg);
+            return algorithm == null ? null : verifierFactory.apply(algorithm);
+        });
+    }
+
+    private void refreshAsync() {
+        if (System.currentTimeMillis() - refreshedAt > MIN_REFRESH_INTERVAL) {
+            REFRESHER.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+
+        try {
+            var loaded = load();
+
+            this.keys = new Keys(loaded);
+
+            LOGGER.debug("Loaded {} keys from JWKS {}", loaded.size(), url);
+        } catch (IOException | JsonParseException | IllegalStateException ex) {
+            LOGGER.error("Error loading JWKS {}, keeping the previous keys", url, ex);
+        } finally {
+            this.refreshedAt = System.currentTimeMillis();
+            refreshing.set(false);
+        }
+    }
+
+    private Map<String, Jwk> load() throws IOException {
+        var conn = url.openConnection();
+        conn.setConnectTimeout(TIMEOUT);
+        conn.setReadTimeout(TIMEOUT);
+
+        String content;
+
+        try (var is = conn.getInputStream()) {
+            content = new String(is.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        var _keys = JsonParser.parseString(content).getAsJsonObject().get("keys");
+
+        if (_keys == null || !_keys.isJsonArray()) {
+            throw new IllegalStateException("the JWKS does not have the keys array");
+        }
+
+        var ret = new HashMap<String, Jwk>();
+
+        for (var _key : _keys.getAsJsonArray()) {
+            if (!_key.isJsonObject()) {
+                continue;
+            }
+
+            var key = _key.getAsJsonObject();
+            var kid = string(key, "kid");
+            var use = string(key, "use");
+
+            if (kid == null || (use != null && !"sig".equals(use))) {
+                LOGGER.debug("Skipping key without kid or not for signature in JWKS {}", url);
+                continue;
+            }
+
+            try {
+                var publicKey = publicKey(key);
+
+                if (publicKey != null) {
+                    ret.put(kid, new Jwk(publicKey, string(key, "alg")));
+                } else {
+                    LOGGER.debug("Skipping key {} with unsupported type in JWKS {}", kid, url);
+                }
+            } catch (GeneralSecurityException | IllegalArgumentException ex) {
+                LOGGER.warn("Skipping invalid key {} in JWKS {}: {}", kid, url, ex.getMessage());
+            }
+        }
+
+        return ret;
+    }
+
+    private static PublicKey publicKey(JsonObject key) throws GeneralSecurityException {
+        var kty = string(key, "kty");
+
+        if ("RSA".equals(kty)) {
+            var spec = new RSAPublicKeySpec(integer(key, "n"), integer(key, "e"));
+
+            return KeyFactory.getInstance("RSA").generatePublic(spec);
+        } else if ("EC".equals(kty)) {
+            var params = AlgorithmParameters.getInstance("EC");
+            params.init(new ECGenParameterSpec(curve(string(key, "crv"))));
+
+            var spec = new ECPublicKeySpec(
+                    new ECPoint(integer(key, "x"), integer(key, "y")),
+                    params.getParameterSpec(ECParameterSpec.class));
+
+            return KeyFactory.getInstance("EC").generatePublic(spec);
+        } else {
+            return null;
+        }
+    }
+
+    private static String curve(String crv) {
+        if (crv == null) {
+            throw new IllegalArgumentException("missing crv");
+        }
+
+        switch (crv) {
+            case "P-256":
+                return "secp256r1";
+            case "P-384":
+                return "secp384r1";
+            case "P-521":
+                return "secp521r1";
+            default:
+                throw new IllegalArgumentException("unsupported crv " + crv);
+        }
+    }
+
+    private static String string(JsonObject obj, String name) {
+        JsonElement value = obj.get(name);
+
+        return value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()
+                ? value.getAsString()
+                : null;
+    }
+
+    private static BigInteger integer(JsonObject obj, String name) {
+        var value = string(obj, name);
+
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+
+        return new BigInteger(1, Base64.getUrlDecoder().decode(value));
+    }
+
+    /**
+     * the keys loaded by a refresh and the verifiers built for them
+     */
+    private static class Keys {
+        private final Map<String, Jwk> keys;
+        private final Map<String, JWTVerifier> verifiers = new ConcurrentHashMap<>();
+
+        Keys(Map<String, Jwk> keys) {
+            this.keys = keys;
+        }
+    }
+
+    private static class Jwk {
+        private final PublicKey key;
+        // the alg of the JWK, null if not specified
+        private final String alg;
+
+        Jwk(PublicKey key, String alg) {
+            this.key = key;
+            this.alg = alg;
+        }
+
+        /**
+         * @return the Algorithm to verify tokens signed with alg, null if alg
+         * is not allowed for this key
+         */
+        Algorithm algorithm(String alg) {
+            if (this.alg != null && !this.alg.equals(alg)) {
+                return null;
+            }
+
+            if (key instanceof RSAPublicKey) {
+                var rsaKey = (RSAPublicKey) key;
+
+                switch (alg) {
+                    case "RS256":
+                        return Algorithm.RSA256(rsaKey, null);
+                    case "RS384":
+                        return Algorithm.RSA384(rsaKey, null);
+                    case "RS512":
+                        return Algorithm.RSA512(rsaKey, null);
+                    default:
+                        return null;
+                }
+            } else if (key instanceof ECPublicKey) {
+                var ecKey = (ECPublicKey) key;
+
+                switch (alg) {
+                    case "ES256":
+                        return Algorithm.ECDSA256(ecKey, null);
+                    case "ES384":
+                        return Algorithm.ECDSA384(ecKey, null);
+                    case "ES512":
+                        return Algorithm.ECDSA512(ecKey, null);
+                    default:
+                        return null;
+                }
+            } else {
+                return null;
+            }
+        }
+    }
+}
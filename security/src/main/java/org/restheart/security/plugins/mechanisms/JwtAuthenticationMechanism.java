@@ -72,6 +72,8 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
 
     public static final String JWT_AUTH_HEADER_PREFIX = "Bearer ";
     private JWTVerifier jwtVerifier;
+    // the keys resolved by kid, when jwksUri is specified
+    private JwksKeySet jwks = null;
     private Consumer<DecodedJWT> extraJwtVerifier = null;
 
     private boolean base64Encoded;
@@ -82,29 +84,59 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
     private List<String> fixedRoles;
     private String issuer;
     private String audience;
+    private String jwksUri;
+    private long jwksTtl = 10 * 60 * 1_000; // 10 minutes
 
     @InjectConfiguration
     public void init(Map<String, Object> args) throws ConfigurationException {
         // get configuration arguments
         base64Encoded = argValue(args, "base64Encoded");
-        algorithm = argValue(args, "algorithm");
-        key = argValue(args, "key");
+        jwksUri = args.containsKey("jwksUri") ? argValue(args, "jwksUri") : null;
+
+        if (jwksUri == null) {
+            algorithm = argValue(args, "algorithm");
+            key = argValue(args, "key");
+        }
+
+        if (args.containsKey("jwksTtl")) {
+            Number _jwksTtl = argValue(args, "jwksTtl");
+            jwksTtl = _jwksTtl.longValue();
+        }
+
         usernameClaim = argValue(args, "usernameClaim");
         rolesClaim = argValue(args, "rolesClaim");
         fixedRoles = argValue(args, "fixedRoles");
         issuer = argValue(args, "issuer");
         audience = argValue(args, "audience");
 
-        Algorithm _algorithm;
+        if (rolesClaim != null && fixedRoles != null) {
+            throw new ConfigurationException("wrong JWT configuration, "
+                    + "cannot set both 'rolesClaim' and 'fixedRoles'");
+        }
 
-        try {
-            _algorithm = getAlgorithm(algorithm, key);
-        } catch (CertificateException | UnsupportedEncodingException ex) {
+        if (rolesClaim == null && fixedRoles == null) {
             throw new ConfigurationException("wrong JWT configuration, "
-                    + "cannot setup algorithm", ex);
+                    + "need to set either 'rolesClaim' or 'fixedRoles'");
+        }
+
+        if (jwksUri != null) {
+            this.jwks = new JwksKeySet(jwksUri, jwksTtl, this::verifier);
+        } else {
+            Algorithm _algorithm;
+
+            try {
+                _algorithm = getAlgorithm(algorithm, key);
+            } catch (CertificateException | UnsupportedEncodingException ex) {
+                throw new ConfigurationException("wrong JWT configuration, "
+                        + "cannot setup algorithm", ex);
+            }
+
+            this.jwtVerifier = verifier(_algorithm);
         }
+    }
 
-        Verification v = JWT.require(_algorithm);
+    private JWTVerifier verifier(Algorithm algorithm) {
+        Verification v = JWT.require(algorithm);
 
         if (audience != null) {
             v.withAudience(audience);
@@ -114,17 +146,23 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
             v.withIssuer(issuer);
         }
 
-        if (rolesClaim != null && fixedRoles != null) {
-            throw new ConfigurationException("wrong JWT configuration, "
-                    + "cannot set both 'rolesClaim' and 'fixedRoles'");
+        return v.build();
+    }
+
+    private DecodedJWT verify(String token) throws JWTVerificationException {
+        if (jwks == null) {
+            return jwtVerifier.verify(token);
         }
 
-        if (rolesClaim == null && fixedRoles == null) {
-            throw new ConfigurationException("wrong JWT configuration, "
-                    + "need to set either 'rolesClaim' or 'fixedRoles'");
+        var jwt = JWT.decode(token);
+        var verifier = jwks.verifier(jwt.getKeyId(), jwt.getAlgorithm());
+
+        if (verifier == null) {
+            throw new JWTVerificationException("no key in JWKS for kid "
+                    + jwt.getKeyId() + " and algorithm " + jwt.getAlgorithm());
         }
 
-        this.jwtVerifier = v.build();
+        return verifier.verify(jwt);
     }
 
     @Override
@@ -139,7 +177,7 @@ public class JwtAuthenticationMechanism implements AuthMechanism, ConsumingPlugi
                             Base64.getUrlDecoder().decode(token));
                 }
 
-                DecodedJWT verifiedJwt = jwtVerifier.verify(token);
+                DecodedJWT verifiedJwt = verify(token);
 
                 String subject = verifiedJwt.getClaim(usernameClaim).asString();
 
@@ -47,6 +47,9 @@ public class HttpServerExchange extends AbstractAttachable {
     private String relativePath;
     private HttpString requestMethod;
     private Map<String, Deque<String>> queryParameters;
+    private final HeaderMap requestHeaders = new HeaderMap();
+    private final HeaderMap responseHeaders = new HeaderMap();
+    private SecurityContext securityContext = null;
 
     public HttpServerExchange() {
     }
@@ -151,11 +154,19 @@ public class HttpServerExchange extends AbstractAttachable {
     }
 
     public HeaderMap getRequestHeaders() {
-        return null;
+        return requestHeaders;
+    }
+
+    public HeaderMap getResponseHeaders() {
+        return responseHeaders;
     }
 
     public SecurityContext getSecurityContext() {
-        return null;
+        return securityContext;
+    }
+
+    public void setSecurityContext(SecurityContext securityContext) {
+        this.securityContext = securityContext;
     }
 
     /**
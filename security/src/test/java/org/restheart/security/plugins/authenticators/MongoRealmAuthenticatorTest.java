@@ -0,0 +1,124 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.authenticators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import static org.junit.Assert.*;
+import org.junit.Before;
+import org.junit.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class MongoRealmAuthenticatorTest {
+    private static final String HASH = BCrypt.hashpw("secret", BCrypt.gensalt(4));
+
+    private MongoRealmAuthenticator authenticator;
+
+    @Before
+    public void setUp() {
+        this.authenticator = new MongoRealmAuthenticator();
+        this.authenticator.setConf(conf());
+    }
+
+    @Test
+    public void testCheckPassword() {
+        assertTrue(check("testCheckPassword", "secret"));
+        assertFalse(check("testCheckPassword", "wrong"));
+    }
+
+    @Test
+    public void testRejectWhenTooManyPending() {
+        // all the bcrypt-queue-size permits are taken by pending checks
+        var permits = this.authenticator.bcryptPending.drainPermits();
+
+        assertEquals(2, permits);
+
+        try {
+            check("testRejectWhenTooManyPending", "secret");
+            fail("check must be rejected");
+        } catch (RejectedExecutionException ree) {
+            // expected
+        } finally {
+            this.authenticator.bcryptPending.release(permits);
+        }
+
+        assertTrue(check("testRejectWhenTooManyPending", "secret"));
+    }
+
+    @Test
+    public void testVerifiedCredentialsCacheHit() {
+        assertTrue(check("testVerifiedCredentialsCacheHit", "secret"));
+
+        // without permits, only the cached credentials can be verified
+        var permits = this.authenticator.bcryptPending.drainPermits();
+
+        try {
+            assertTrue(check("testVerifiedCredentialsCacheHit", "secret"));
+
+            assertRejected("testVerifiedCredentialsCacheHit", "wrong");
+            // the key includes the username
+            assertRejected("testVerifiedCredentialsCacheHitOther", "secret");
+        } finally {
+            this.authenticator.bcryptPending.release(permits);
+        }
+    }
+
+    private boolean check(String username, String password) {
+        return this.authenticator.checkPassword(username, true,
+                password.toCharArray(), HASH.toCharArray());
+    }
+
+    private void assertRejected(String username, String password) {
+        try {
+            check(username, password);
+            fail("check of " + username + " must not hit the cache");
+        } catch (RejectedExecutionException ree) {
+            // expected
+        }
+    }
+
+    private static Map<String, Object> conf() {
+        var conf = new HashMap<String, Object>();
+
+        conf.put("users-db", "restheart");
+        conf.put("users-collection", "users");
+        conf.put("prop-id", "_id");
+        conf.put("prop-password", "password");
+        conf.put("json-path-roles", "$.roles");
+        conf.put("bcrypt-hashed-password", true);
+        conf.put("bcrypt-complexity", 4);
+        conf.put("bcrypt-pool-size", 1);
+        conf.put("bcrypt-queue-size", 2);
+        conf.put("create-user", false);
+        conf.put("create-user-document", "{}");
+        conf.put("cache-enabled", false);
+        conf.put("cache-size", 1000);
+        conf.put("cache-ttl", 60000);
+        conf.put("cache-expire-policy", "AFTER_WRITE");
+
+        return conf;
+    }
+}
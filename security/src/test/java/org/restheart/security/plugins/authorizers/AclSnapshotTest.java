@@ -0,0 +1,196 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.authorizers;
+
+import static io.undertow.predicate.Predicate.PREDICATE_CONTEXT;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.HttpString;
+import io.undertow.util.Methods;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonArray;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class AclSnapshotTest {
+
+    @Test
+    public void testPrefixesPathPrefix() {
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("path-prefix('/db')"));
+        assertEquals(List.of("/db/coll"), AclSnapshot.prefixes("path-prefix(\"/db/coll\")"));
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("path-prefix(/db)"));
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("path-prefix[path='/db']"));
+        assertEquals(List.of("/a", "/b"), AclSnapshot.prefixes("path-prefix('/a', '/b')"));
+    }
+
+    @Test
+    public void testPrefixesPath() {
+        assertEquals(List.of("/db/coll"), AclSnapshot.prefixes("path('/db/coll')"));
+        assertEquals(List.of("/db/coll"), AclSnapshot.prefixes("path(/db/coll)"));
+    }
+
+    @Test
+    public void testPrefixesTrailingSlash() {
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("path-prefix('/db/')"));
+        assertEquals(List.of("/db/coll"), AclSnapshot.prefixes("path(/db/coll/)"));
+        assertEquals(List.of("/"), AclSnapshot.prefixes("path-prefix('/')"));
+    }
+
+    @Test
+    public void testPrefixesAndOrNot() {
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("path-prefix('/db') and method(GET)"));
+        assertEquals(List.of("/db"), AclSnapshot.prefixes("method(GET) and path('/db')"));
+
+        assertNull(AclSnapshot.prefixes("path-prefix('/a') or path-prefix('/b')"));
+        assertNull(AclSnapshot.prefixes("not path-prefix('/a')"));
+        assertNull(AclSnapshot.prefixes("path-prefix('/a') and !method(GET)"));
+
+        // or, not in quoted strings are not operators
+        assertEquals(List.of("/orders/not"), AclSnapshot.prefixes("path-prefix('/orders/not')"));
+    }
+
+    @Test
+    public void testPrefixesNotLiteral() {
+        assertNull(AclSnapshot.prefixes(null));
+        assertNull(AclSnapshot.prefixes("method(GET)"));
+        assertNull(AclSnapshot.prefixes("path-template('/{db}/coll')"));
+        assertNull(AclSnapshot.prefixes("path-suffix('/coll')"));
+        assertNull(AclSnapshot.prefixes("path-prefix('/%u')"));
+        assertNull(AclSnapshot.prefixes("path-prefix('/${db}')"));
+    }
+
+    @Test
+    public void testIsPathOnly() {
+        assertTrue(AclSnapshot.isPathOnly("path-prefix('/db') and method(GET)"));
+        assertTrue(AclSnapshot.isPathOnly("path('/db') or not path-suffix('/coll')"));
+
+        assertFalse(AclSnapshot.isPathOnly(null));
+        assertFalse(AclSnapshot.isPathOnly("path-template('/{db}/coll')"));
+        assertFalse(AclSnapshot.isPathOnly("path-prefix('/db') and equals('%{i,X-Foo}', 'bar')"));
+        assertFalse(AclSnapshot.isPathOnly("path-prefix('/%u')"));
+        assertFalse(AclSnapshot.isPathOnly("equals(${db}, 'db')"));
+    }
+
+    @Test
+    public void testMergeOrder() {
+        var acl = AclSnapshot.of(List.of(
+                permission(1, "path-prefix('/db/coll')", "user"),
+                permission(2, "method(GET)", "user"),
+                permission(3, "path-prefix('/db')", "user")), 0);
+
+        assertEquals(1, id(acl.resolve(exchange(Methods.GET, "/db/coll"), List.of("user"))));
+        // the unindexed permission 2 precedes the indexed permission 3
+        assertEquals(2, id(acl.resolve(exchange(Methods.GET, "/db/other"), List.of("user"))));
+        assertEquals(3, id(acl.resolve(exchange(Methods.POST, "/db/other"), List.of("user"))));
+        assertEquals(3, id(acl.resolve(exchange(Methods.POST, "/db"), List.of("user"))));
+        assertEquals(3, id(acl.resolve(exchange(Methods.POST, "/db/"), List.of("user"))));
+
+        assertNull(acl.resolve(exchange(Methods.GET, "/db/coll"), List.of("other")));
+
+        var permissions = new ArrayList<>(acl.permissions("user"));
+        assertEquals(3, permissions.size());
+        assertEquals(1, id(permissions.get(0)));
+        assertEquals(2, id(permissions.get(1)));
+        assertEquals(3, id(permissions.get(2)));
+    }
+
+    @Test
+    public void testPrefixSegmentBoundary() {
+        var acl = AclSnapshot.of(List.of(
+                permission(1, "path-prefix('/db')", "user"),
+                permission(2, "path-prefix('/db/coll')", "user")), 100);
+
+        assertEquals(1, id(acl.resolve(exchange(Methods.GET, "/db/collx"), List.of("user"))));
+        assertNull(acl.resolve(exchange(Methods.GET, "/dbx"), List.of("user")));
+        assertNull(acl.resolve(exchange(Methods.GET, "/dbx/coll"), List.of("user")));
+    }
+
+    @Test
+    public void testRolesOrder() {
+        var acl = AclSnapshot.of(List.of(
+                permission(1, "path-prefix('/db')", "a"),
+                permission(2, "path-prefix('/db')", "b")), 100);
+
+        assertEquals(1, id(acl.resolve(exchange(Methods.GET, "/db"), List.of("a", "b"))));
+        // the cached decision of roles [a, b] does not apply to [b, a]
+        assertEquals(2, id(acl.resolve(exchange(Methods.GET, "/db"), List.of("b", "a"))));
+        assertEquals(1, id(acl.resolve(exchange(Methods.GET, "/db"), List.of("a", "b"))));
+    }
+
+    @Test
+    public void testPathTemplateAndPredicateContext() {
+        var acl = AclSnapshot.of(List.of(
+                permission(1, "path-template('/{db}/coll') and equals('${db}', 'mydb')", "user"),
+                permission(2, "path-suffix('/other')", "user")), 100);
+
+        assertEquals(1, id(acl.resolve(exchange(Methods.GET, "/mydb/coll"), List.of("user"))));
+        assertNull(acl.resolve(exchange(Methods.GET, "/yourdb/coll"), List.of("user")));
+        assertEquals(2, id(acl.resolve(exchange(Methods.GET, "/yourdb/other"), List.of("user"))));
+    }
+
+    @Test
+    public void testExchangeAttributesAreNotCached() {
+        var acl = AclSnapshot.of(List.of(
+                permission(1, "path-prefix('/db') and equals('%{i,X-Foo}', 'bar')", "user")), 100);
+
+        var withHeader = exchange(Methods.GET, "/db");
+        withHeader.getRequestHeaders().put(HttpString.tryFromString("X-Foo"), "bar");
+
+        assertEquals(1, id(acl.resolve(withHeader, List.of("user"))));
+        assertNull(acl.resolve(exchange(Methods.GET, "/db"), List.of("user")));
+    }
+
+    private static BsonDocument permission(int id, String predicate, String... roles) {
+        var _roles = new BsonArray();
+
+        for (var role : roles) {
+            _roles.add(new BsonString(role));
+        }
+
+        return new BsonDocument("_id", new BsonInt32(id))
+                .append("roles", _roles)
+                .append("predicate", new BsonString(predicate))
+                .append("priority", new BsonInt32(id));
+    }
+
+    private static int id(AclPermission permission) {
+        assertNotNull(permission);
+        return permission.getId().asInt32().getValue();
+    }
+
+    private static HttpServerExchange exchange(HttpString method, String path) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestMethod(method);
+        exchange.setRequestPath(path);
+        // as MongoAclAuthorizer does
+        exchange.setRelativePath(path);
+        exchange.putAttachment(PREDICATE_CONTEXT, new TreeMap<>());
+        return exchange;
+    }
+}
@@ -0,0 +1,219 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.interceptors.mongo;
+
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.GsonJsonProvider;
+import com.jayway.jsonpath.spi.json.JsonProvider;
+import com.jayway.jsonpath.spi.mapper.GsonMappingProvider;
+import com.jayway.jsonpath.spi.mapper.MappingProvider;
+import io.undertow.security.api.SecurityContext;
+import io.undertow.security.idm.Account;
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Methods;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import static org.junit.Assert.*;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.idm.MongoRealmAccount;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class BsonTemplateTest {
+
+    private static final String FILTER = "{"
+            + "'owner': '%USER',"
+            + "'roles': {'$in': '%ROLES'},"
+            + "'tenant': '@user.tenant',"
+            + "'city': '@user.address.city',"
+            + "'created': '@now',"
+            + "'nested': {'a': [1, '%USER', {'b': '%NOW', 'c': ['@user.tenant']}]},"
+            + "'status': 'active'"
+            + "}";
+
+    /**
+     * @user.prop with dotted names uses JsonPath, configured as Bootstrapper does
+     */
+    @BeforeClass
+    public static void setJsonpathDefaults() {
+        Configuration.setDefaults(new Configuration.Defaults() {
+            private final JsonProvider jsonProvider = new GsonJsonProvider();
+            private final MappingProvider mappingProvider = new GsonMappingProvider();
+
+            @Override
+            public JsonProvider jsonProvider() {
+                return jsonProvider;
+            }
+
+            @Override
+            public MappingProvider mappingProvider() {
+                return mappingProvider;
+            }
+
+            @Override
+            public Set<Option> options() {
+                return EnumSet.noneOf(Option.class);
+            }
+        });
+    }
+
+    @Test
+    public void testResolve() {
+        var template = BsonTemplate.compile(BsonDocument.parse(FILTER));
+
+        assertTrue(template.hasVariables());
+
+        var resolved = template.resolve(request("alice", "acme", "admin", "user"));
+
+        assertEquals(new BsonString("alice"), resolved.get("owner"));
+        assertEquals(new BsonString("acme"), resolved.get("tenant"));
+        assertEquals(new BsonString("Rome"), resolved.get("city"));
+        assertEquals(new BsonString("active"), resolved.get("status"));
+
+        var nested = resolved.getDocument("nested").getArray("a");
+
+        assertEquals(new BsonInt32(1), nested.get(0));
+        assertEquals(new BsonString("alice"), nested.get(1));
+        assertEquals(new BsonArray(List.of(new BsonString("acme"))),
+                nested.get(2).asDocument().get("c"));
+    }
+
+    @Test
+    public void testRolesAsArray() {
+        var template = BsonTemplate.compile(BsonDocument.parse(FILTER));
+
+        var roles = template.resolve(request("alice", "acme", "admin", "user"))
+                .getDocument("roles").get("$in");
+
+        assertTrue(roles.isArray());
+        assertEquals(2, roles.asArray().size());
+        assertTrue(roles.asArray().contains(new BsonString("admin")));
+        assertTrue(roles.asArray().contains(new BsonString("user")));
+    }
+
+    @Test
+    public void testOneNowPerResolve() {
+        var template = BsonTemplate.compile(BsonDocument.parse(FILTER));
+
+        var resolved = template.resolve(request("alice", "acme", "admin"));
+
+        var now = resolved.get("created");
+
+        assertTrue(now.isDateTime());
+        // %NOW and @now have the same value
+        assertEquals(now, resolved.getDocument("nested").getArray("a").get(2)
+                .asDocument().get("b"));
+    }
+
+    @Test
+    public void testTemplateUnchanged() {
+        var template = BsonTemplate.compile(BsonDocument.parse(FILTER));
+        var before = template.toString();
+
+        var alice = template.resolve(request("alice", "acme", "admin"));
+        var bob = template.resolve(request("bob", "globex", "user"));
+
+        assertEquals(before, template.toString());
+        assertEquals(BsonDocument.parse(FILTER).toJson(), template.toString());
+
+        assertEquals(new BsonString("alice"), alice.get("owner"));
+        assertEquals(new BsonString("acme"), alice.get("tenant"));
+        assertEquals(new BsonString("bob"), bob.get("owner"));
+        assertEquals(new BsonString("globex"), bob.get("tenant"));
+    }
+
+    @Test
+    public void testNoVariables() {
+        assertNull(BsonTemplate.compile(null));
+
+        var doc = BsonDocument.parse("{'status': 'active', 'a': ['b', {'c': 1}]}");
+        var template = BsonTemplate.compile(doc);
+
+        assertFalse(template.hasVariables());
+        assertEquals(doc, template.resolve(request("alice", "acme", "admin")));
+    }
+
+    @Test
+    public void testFiltersDocument() {
+        var template = BsonTemplate.compile(BsonDocument.parse("{'owner': '%USER'}"));
+
+        var request = request("alice", "acme", "admin");
+        var filter = new ArrayDeque<String>();
+        filter.add("{'a': 1}");
+        request.setFilter(filter);
+
+        request.addFilterDocument(template.resolve(request));
+        request.addFilterDocument(null);
+
+        assertEquals(BsonDocument.parse("{'$and': [{'a': 1}, {'owner': 'alice'}]}"),
+                request.getFiltersDocument());
+
+        // without the filter qparam
+        var other = request("bob", "acme", "admin");
+        other.addFilterDocument(template.resolve(other));
+
+        assertEquals(BsonDocument.parse("{'owner': 'bob'}"), other.getFiltersDocument());
+    }
+
+    private static MongoRequest request(String user, String tenant, String... roles) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath("/db/coll");
+        exchange.setRequestMethod(Methods.GET);
+
+        var accountDocument = new BsonDocument("_id", new BsonString(user))
+                .append("tenant", new BsonString(tenant))
+                .append("address", new BsonDocument("city", new BsonString("Rome")));
+
+        var account = new MongoRealmAccount(user, "secret".toCharArray(), Set.of(roles), accountDocument);
+
+        exchange.setSecurityContext(securityContext(account));
+
+        return MongoRequest.init(exchange, "/", "*");
+    }
+
+    private static SecurityContext securityContext(Account account) {
+        return (SecurityContext) Proxy.newProxyInstance(
+                BsonTemplateTest.class.getClassLoader(),
+                new Class<?>[] { SecurityContext.class },
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "isAuthenticated":
+                            return true;
+                        case "getAuthenticatedAccount":
+                            return account;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
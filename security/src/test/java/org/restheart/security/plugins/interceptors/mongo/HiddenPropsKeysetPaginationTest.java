@@ -0,0 +1,67 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.interceptors.mongo;
+
+import java.util.Optional;
+import java.util.Set;
+import org.bson.BsonDocument;
+import static org.junit.Assert.*;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class HiddenPropsKeysetPaginationTest {
+
+    @Test
+    public void testHiddenSortKey() {
+        var sort = BsonDocument.parse("{'a': 1, 'b.c': -1}");
+
+        assertEquals(Optional.empty(),
+                HiddenPropsKeysetPagination.hiddenSortKey(sort, Set.of("d", "b.d")));
+
+        assertEquals(Optional.of("a"),
+                HiddenPropsKeysetPagination.hiddenSortKey(sort, Set.of("a")));
+
+        // sorting by a parent of a hidden property
+        assertEquals(Optional.of("b.c"),
+                HiddenPropsKeysetPagination.hiddenSortKey(sort, Set.of("b.c.secret")));
+
+        // sorting by a child of a hidden property
+        assertEquals(Optional.of("b.c"),
+                HiddenPropsKeysetPagination.hiddenSortKey(sort, Set.of("b")));
+
+        // prefixes that are not parents
+        assertEquals(Optional.empty(),
+                HiddenPropsKeysetPagination.hiddenSortKey(sort, Set.of("ab", "b.cd")));
+    }
+
+    @Test
+    public void testHiddenId() {
+        // _id is always the last sort key
+        assertEquals(Optional.of("_id"),
+                HiddenPropsKeysetPagination.hiddenSortKey(BsonDocument.parse("{'a': 1}"), Set.of("_id")));
+
+        assertEquals(Optional.of("_id"),
+                HiddenPropsKeysetPagination.hiddenSortKey(null, Set.of("_id")));
+    }
+}
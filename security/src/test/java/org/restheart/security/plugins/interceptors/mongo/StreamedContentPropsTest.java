@@ -0,0 +1,161 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.interceptors.mongo;
+
+import io.undertow.server.HttpServerExchange;
+import io.undertow.util.Headers;
+import io.undertow.util.Methods;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import static org.junit.Assert.*;
+import org.junit.Test;
+import org.restheart.exchange.BadRequestException;
+import org.restheart.exchange.Exchange;
+import org.restheart.exchange.MongoRequest;
+import org.restheart.exchange.MongoResponse;
+import org.restheart.security.plugins.authorizers.MongoPermissions;
+import org.restheart.utils.HttpStatus;
+
+/**
+ * checks that the mongo.protectedProps and mongo.overriddenProps permissions
+ * are enforced on the documents of an application/x-ndjson bulk POST and
+ * that mongo.hiddenProps is enforced on the documents of a streamed
+ * aggregation; streamed contents are not available to the interceptors.
+ * Also checks that mongo.overriddenProps is applied to each document of an
+ * array POST and only when the permission has overriddenProps
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class StreamedContentPropsTest {
+
+    private static MongoRequest request(String contentType) {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath("/db/coll");
+        exchange.setRequestMethod(Methods.POST);
+        exchange.getRequestHeaders().put(Headers.CONTENT_TYPE, contentType);
+        return MongoRequest.init(exchange, "/", "*");
+    }
+
+    @Test
+    public void testIsContentStreamed() {
+        assertTrue(request(Exchange.NDJSON_MEDIA_TYPE).isContentStreamed());
+        assertFalse(request(Exchange.JSON_MEDIA_TYPE).isContentStreamed());
+    }
+
+    @Test
+    public void testProtectedProps() {
+        var request = request(Exchange.NDJSON_MEDIA_TYPE);
+
+        new ProtectedProps().handle(request, null, Set.of("secret", "a.b"));
+
+        assertEquals(1, request.getStreamedContentProcessors().size());
+
+        var processor = request.getStreamedContentProcessors().get(0);
+
+        var allowed = BsonDocument.parse("{'a': {'c': 1}, 'd': 1}");
+        assertEquals(allowed, processor.apply(allowed));
+
+        assertForbidden(processor, BsonDocument.parse("{'secret': 1}"));
+        assertForbidden(processor, BsonDocument.parse("{'a': {'b': 1}}"));
+        assertForbidden(processor, BsonDocument.parse("{'a.b': 1}"));
+    }
+
+    @Test
+    public void testOverriddenProps() {
+        var request = request(Exchange.NDJSON_MEDIA_TYPE);
+
+        new OverriddenProps().handle(request, null, Map.<String, BsonValue>of(
+                "status", new BsonString("pending"),
+                "a.b", new BsonString("x")));
+
+        assertEquals(1, request.getStreamedContentProcessors().size());
+
+        var processor = request.getStreamedContentProcessors().get(0);
+
+        var processed = processor.apply(BsonDocument.parse("{'status': 'approved', 'c': 1}"));
+
+        assertEquals(BsonDocument.parse("{'status': 'pending', 'c': 1, 'a': {'b': 'x'}}"), processed);
+    }
+
+    @Test
+    public void testOverriddenPropsArray() {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath("/db/coll");
+        exchange.setRequestMethod(Methods.POST);
+        exchange.getRequestHeaders().put(Headers.CONTENT_TYPE, Exchange.JSON_MEDIA_TYPE);
+        var request = MongoRequest.init(exchange, "/", "*");
+        request.setContent(BsonDocument.parse("{'docs': [{'status': 'approved', 'c': 1}, {'c': 2}]}").getArray("docs"));
+
+        new OverriddenProps().handle(request, null, Map.<String, BsonValue>of(
+                "status", new BsonString("pending")));
+
+        // each document is overridden, not the array
+        assertTrue(request.getContent().isArray());
+        assertEquals(BsonDocument.parse("{'docs': [{'status': 'pending', 'c': 1}, {'c': 2, 'status': 'pending'}]}").getArray("docs"),
+                request.getContent());
+    }
+
+    @Test
+    public void testOverriddenPropsResolve() throws Exception {
+        assertTrue(OverriddenProps.resolve(MongoPermissions.from(
+                BsonDocument.parse("{'overriddenProps': {'status': 'pending'}}"))));
+
+        // protectedProps alone does not require the interceptor
+        assertFalse(OverriddenProps.resolve(MongoPermissions.from(
+                BsonDocument.parse("{'protectedProps': ['status']}"))));
+
+        assertFalse(OverriddenProps.resolve(MongoPermissions.from(
+                BsonDocument.parse("{'protectedProps': ['status'], 'overriddenProps': {}}"))));
+    }
+
+    @Test
+    public void testHiddenProps() {
+        var exchange = new HttpServerExchange();
+        exchange.setRequestPath("/db/coll/_aggrs/test");
+        exchange.setRequestMethod(Methods.GET);
+        MongoRequest.init(exchange, "/", "*");
+        var response = MongoResponse.init(exchange);
+        response.setContentStreamed(true);
+
+        new HiddenProps().handle(response, Set.of("secret", "a.b"));
+
+        assertEquals(1, response.getStreamedContentProcessors().size());
+
+        var processor = response.getStreamedContentProcessors().get(0);
+
+        var processed = processor.apply(BsonDocument.parse("{'secret': 1, 'a': {'b': 1, 'c': 1}, 'd': 1}"));
+
+        assertEquals(BsonDocument.parse("{'a': {'c': 1}, 'd': 1}"), processed);
+    }
+
+    private static void assertForbidden(UnaryOperator<BsonDocument> processor, BsonDocument doc) {
+        try {
+            processor.apply(doc);
+            fail("document " + doc.toJson() + " must be rejected");
+        } catch (BadRequestException bre) {
+            assertEquals(HttpStatus.SC_FORBIDDEN, bre.getStatusCode());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*-
+ * ========================LICENSE_START=================================
+ * restheart-security
+ * %%
+ * Copyright (C) 2018 - 2020 SoftInstigate
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ * =========================LICENSE_END==================================
+ */
+package org.restheart.security.plugins.mechanisms;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.util.Arrays;
+import java.util.Base64;
+import static org.junit.Assert.*;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ *
+ * @author Andrea Di Cesare {@literal <andrea@softinstigate.com>}
+ */
+public class JwksKeySetTest {
+    private static KeyPair rsa;
+    private static KeyPair ec;
+    private static Path jwks;
+    private static JwksKeySet keySet;
+
+    @BeforeClass
+    public static void setUp() throws Exception {
+        var rsaGenerator = KeyPairGenerator.getInstance("RSA");
+        rsaGenerator.initialize(2048);
+        rsa = rsaGenerator.generateKeyPair();
+
+        var ecGenerator = KeyPairGenerator.getInstance("EC");
+        ecGenerator.initialize(new ECGenParameterSpec("secp256r1"));
+        ec = ecGenerator.generateKeyPair();
+
+        var rsaPublic = (RSAPublicKey) rsa.getPublic();
+        var ecPublic = (ECPublicKey) ec.getPublic();
+
+        // the EC key does not specify the alg
+        var content = "{\"keys\": ["
+                + "{\"kty\": \"RSA\", \"kid\": \"rsa\", \"use\": \"sig\", \"alg\": \"RS256\", "
+                + "\"n\": \"" + base64(rsaPublic.getModulus()) + "\", "
+                + "\"e\": \"" + base64(rsaPublic.getPublicExponent()) + "\"},"
+                + "{\"kty\": \"EC\", \"kid\": \"ec\", \"crv\": \"P-256\", "
+                + "\"x\": \"" + base64(ecPublic.getW().getAffineX()) + "\", "
+                + "\"y\": \"" + base64(ecPublic.getW().getAffineY()) + "\"},"
+                + "{\"kty\": \"oct\", \"kid\": \"hmac\", \"k\": \"c2VjcmV0\"}"
+                + "]}";
+
+        jwks = Files.createTempFile("jwks", ".json");
+        Files.writeString(jwks, content);
+
+        keySet = new JwksKeySet(jwks.toString(), 60_000, alg -> JWT.require(alg).build());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        Files.deleteIfExists(jwks);
+    }
+
+    @Test
+    public void testRS256() {
+        var token = JWT.create()
+                .withKeyId("rsa")
+                .withSubject("user")
+                .sign(Algorithm.RSA256(null, (RSAPrivateKey) rsa.getPrivate()));
+
+        var verifier = keySet.verifier("rsa", "RS256");
+
+        assertNotNull(verifier);
+        assertEquals("user", verifier.verify(token).getSubject());
+    }
+
+    @Test
+    public void testES256() {
+        var token = JWT.create()
+                .withKeyId("ec")
+                .withSubject("user")
+                .sign(Algorithm.ECDSA256(null, (ECPrivateKey) ec.getPrivate()));
+
+        var verifier = keySet.verifier("ec", "ES256");
+
+        assertNotNull(verifier);
+        assertEquals("user", verifier.verify(token).getSubject());
+    }
+
+    @Test(expected = SignatureVerificationException.class)
+    public void testWrongSignature() throws Exception {
+        var generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        var other = generator.generateKeyPair();
+
+        var token = JWT.create()
+                .withKeyId("rsa")
+                .sign(Algorithm.RSA256(null, (RSAPrivateKey) other.getPrivate()));
+
+        keySet.verifier("rsa", "RS256").verify(token);
+    }
+
+    @Test
+    public void testUnknownKid() {
+        assertNull(keySet.verifier("unknown", "RS256"));
+        assertNull(keySet.verifier(null, "RS256"));
+        // oct keys are not supported
+        assertNull(keySet.verifier("hmac", "HS256"));
+    }
+
+    @Test
+    public void testMismatchedAlg() {
+        assertNull(keySet.verifier("rsa", null));
+        assertNull(keySet.verifier("rsa", "HS256"));
+        assertNull(keySet.verifier("rsa", "none"));
+        assertNull(keySet.verifier("rsa", "ES256"));
+        // differs from the alg of the JWK
+        assertNull(keySet.verifier("rsa", "RS384"));
+
+        assertNull(keySet.verifier("ec", "HS256"));
+        assertNull(keySet.verifier("ec", "none"));
+        assertNull(keySet.verifier("ec", "RS256"));
+    }
+
+    /**
+     * @return the unsigned big-endian value, base64url encoded without padding
+     */
+    private static String base64(BigInteger value) {
+        var bytes = value.toByteArray();
+
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+}